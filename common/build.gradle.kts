@@ -0,0 +1,28 @@
+plugins {
+    `java-library`
+}
+
+// Platform independent code, provided at runtime by both Velocity and Paper
+dependencies {
+    compileOnlyApi(libs.adventureApi)
+    compileOnlyApi(libs.adventureMiniMessage)
+    compileOnlyApi(libs.adventurePlainSerializer)
+    compileOnlyApi(libs.configurateYaml)
+    compileOnlyApi(libs.slf4jApi)
+    compileOnlyApi(libs.annotations)
+
+    // Compile only dependencies aren't on the test classpath
+    testImplementation(libs.adventureApi)
+    testImplementation(libs.adventureMiniMessage)
+    testImplementation(libs.adventurePlainSerializer)
+    testImplementation(libs.configurateYaml)
+    testImplementation(libs.slf4jApi)
+    testImplementation(libs.annotations)
+    testImplementation(platform(libs.junitBom))
+    testImplementation(libs.junitJupiter)
+    testRuntimeOnly(libs.junitPlatformLauncher)
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
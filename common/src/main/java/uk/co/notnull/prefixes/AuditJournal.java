@@ -0,0 +1,503 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of prefix changes
+ * Events are queued by the caller and written in batches by a single background thread, so recording an event never
+ * blocks on disk I/O. Events are appended to a memory-mapped file, which is rotated once it reaches the configured size.
+ * If the queue is full, events are dropped and counted rather than blocking.
+ *
+ * Record format: payload length int, CRC32C of the payload, then the payload. A zero length or mismatched checksum marks
+ * the end of the journal, so a partially written record is discarded when the journal is next opened.
+ */
+public class AuditJournal {
+	private static final String FILE_NAME = "journal.bin";
+	private static final int RECORD_HEADER_LENGTH = 8;
+	private static final int MAP_CHUNK_SIZE = 64 * 1024;
+	private static final int QUEUE_CAPACITY = 8192;
+	private static final int BATCH_SIZE = 256;
+	private static final long FLUSH_INTERVAL = 500;
+
+	public enum Action {
+		APPLY,
+		APPLY_TEMPORARY,
+		CLEAR,
+		EXPIRE,
+		REPAIR,
+		UNDO
+	}
+
+	public enum Outcome {
+		SUCCESS,
+		FAILED,
+		DEFERRED
+	}
+
+	/**
+	 * A recorded prefix change
+	 *
+	 * @param timestamp - When the change happened, in epoch milliseconds
+	 * @param action - The kind of change
+	 * @param outcome - Whether the change was saved
+	 * @param actor - The uuid of the player who made the change, or null for the console or the plugin itself
+	 * @param actorName - The name of whoever made the change
+	 * @param target - The uuid of the player whose prefix changed
+	 * @param targetName - The name of the player whose prefix changed
+	 * @param server - The server the change applies to, or null for global prefixes
+	 * @param oldPrefix - The previous prefix id, if any
+	 * @param oldColour - The previous colour id, if any
+	 * @param newPrefix - The new prefix id, if any
+	 * @param newColour - The new colour id, if any
+	 */
+	public record Event(long timestamp, @NotNull Action action, @NotNull Outcome outcome, @Nullable UUID actor,
+						@NotNull String actorName, @NotNull UUID target, @NotNull String targetName,
+						@Nullable String server, @Nullable String oldPrefix, @Nullable String oldColour,
+						@Nullable String newPrefix, @Nullable String newColour) {
+		byte[] encode() {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+
+			try (DataOutputStream out = new DataOutputStream(bytes)) {
+				out.writeLong(timestamp);
+				out.writeByte(action.ordinal());
+				out.writeByte(outcome.ordinal());
+				out.writeBoolean(actor != null);
+
+				if (actor != null) {
+					out.writeLong(actor.getMostSignificantBits());
+					out.writeLong(actor.getLeastSignificantBits());
+				}
+
+				writeString(out, actorName);
+				out.writeLong(target.getMostSignificantBits());
+				out.writeLong(target.getLeastSignificantBits());
+				writeString(out, targetName);
+				writeString(out, server);
+				writeString(out, oldPrefix);
+				writeString(out, oldColour);
+				writeString(out, newPrefix);
+				writeString(out, newColour);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+
+			return bytes.toByteArray();
+		}
+
+		static Event decode(ByteBuffer buffer) {
+			long timestamp = buffer.getLong();
+			Action action = Action.values()[buffer.get()];
+			Outcome outcome = Outcome.values()[buffer.get()];
+			UUID actor = buffer.get() != 0 ? new UUID(buffer.getLong(), buffer.getLong()) : null;
+			String actorName = nullToEmpty(readString(buffer));
+			UUID target = new UUID(buffer.getLong(), buffer.getLong());
+
+			return new Event(timestamp, action, outcome, actor, actorName,
+							 target, nullToEmpty(readString(buffer)), readString(buffer), readString(buffer),
+							 readString(buffer), readString(buffer), readString(buffer));
+		}
+
+		/**
+		 * Returns whether the given player made this change or was affected by it
+		 *
+		 * @param uuid - The player's uuid
+		 * @return - Whether the event involves the player
+		 */
+		public boolean involves(UUID uuid) {
+			return target.equals(uuid) || uuid.equals(actor);
+		}
+	}
+
+	/**
+	 * @param maxFileSize - The size in bytes at which the journal file is rotated
+	 * @param maxFiles - The number of journal files to keep, including the current file
+	 */
+	public record Settings(long maxFileSize, int maxFiles) {
+		public Settings {
+			maxFileSize = Math.max(MAP_CHUNK_SIZE, maxFileSize);
+			maxFiles = Math.max(1, maxFiles);
+		}
+	}
+
+	private final Path directory;
+	private final Settings settings;
+	private final long maxFileSize;
+	private final int maxFiles;
+	private final Logger logger;
+
+	private final BlockingQueue<Event> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+	private final LongAdder written = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	private FileChannel channel;
+	private MappedByteBuffer mapped;
+	private long mappedStart;
+	private long position;
+
+	private volatile boolean running;
+	private Thread thread;
+
+	public AuditJournal(@NotNull Path directory, @NotNull Settings settings, @NotNull Logger logger) {
+		this.directory = directory;
+		this.settings = settings;
+		this.maxFileSize = settings.maxFileSize();
+		this.maxFiles = settings.maxFiles();
+		this.logger = logger;
+	}
+
+	public Settings getSettings() {
+		return settings;
+	}
+
+	public long getWritten() {
+		return written.sum();
+	}
+
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Opens the journal and starts the writer thread
+	 *
+	 * @throws IOException - If the journal could not be opened
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) {
+			return;
+		}
+
+		Files.createDirectories(directory);
+		open();
+
+		running = true;
+		thread = new Thread(this::run, "Prefixes audit writer");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops the writer thread, writing any queued events before closing the journal
+	 */
+	public void stop() {
+		Thread writer;
+
+		synchronized (this) {
+			writer = thread;
+			thread = null;
+		}
+
+		if (writer == null) {
+			return;
+		}
+
+		// The writer isn't interrupted, as that would close the file channel if it is mid-write
+		running = false;
+
+		try {
+			writer.join(FLUSH_INTERVAL * 10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		synchronized (this) {
+			List<Event> remaining = new ArrayList<>();
+			queue.drainTo(remaining);
+			append(remaining);
+			close();
+		}
+	}
+
+	/**
+	 * Queues the given event to be written
+	 * The event is dropped if the queue is full
+	 *
+	 * @param event - The event
+	 */
+	public void record(@NotNull Event event) {
+		if (!queue.offer(event)) {
+			dropped.increment();
+		}
+	}
+
+	/**
+	 * Finds the most recent events involving the given player, across the current and rotated journal files
+	 * Events which have been queued but not yet written are not included.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param limit - The maximum number of events to return
+	 * @return - The matching events, oldest first
+	 * @throws IOException - If a journal file could not be read
+	 */
+	public synchronized List<Event> query(@NotNull UUID uuid, int limit) throws IOException {
+		Deque<Event> results = new ArrayDeque<>(limit);
+
+		// Newest file first, stopping once enough events have been found
+		for (int i = 0; i < maxFiles && results.size() < limit; i++) {
+			Path file = getFile(i);
+			long length = i == 0 && channel != null ? position : Files.exists(file) ? Files.size(file) : 0;
+
+			if (length == 0) {
+				continue;
+			}
+
+			List<Event> matches = new ArrayList<>();
+
+			try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+				ByteBuffer buffer = reader.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(length, reader.size()));
+
+				readRecords(buffer, event -> {
+					if (event.involves(uuid)) {
+						matches.add(event);
+					}
+				});
+			}
+
+			for (int j = matches.size() - 1; j >= 0 && results.size() < limit; j--) {
+				results.addFirst(matches.get(j));
+			}
+		}
+
+		return new ArrayList<>(results);
+	}
+
+	private void run() {
+		List<Event> batch = new ArrayList<>(BATCH_SIZE);
+
+		while (running) {
+			try {
+				Event event = queue.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+
+				if (event == null) {
+					continue;
+				}
+
+				batch.add(event);
+				queue.drainTo(batch, BATCH_SIZE - 1);
+
+				synchronized (this) {
+					append(batch);
+				}
+
+				batch.clear();
+			} catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+
+	private void append(List<Event> events) {
+		if (channel == null) {
+			return;
+		}
+
+		for (Event event : events) {
+			try {
+				byte[] payload = event.encode();
+				int length = RECORD_HEADER_LENGTH + payload.length;
+
+				if (position > 0 && position + length > maxFileSize) {
+					rotate();
+				}
+
+				ensureMapped(length);
+
+				CRC32C crc = new CRC32C();
+				crc.update(payload);
+
+				int offset = (int) (position - mappedStart);
+				mapped.putInt(offset + 4, (int) crc.getValue());
+				mapped.put(offset + RECORD_HEADER_LENGTH, payload);
+				// Length is written last, so the record is only readable once complete
+				mapped.putInt(offset, payload.length);
+
+				position += length;
+				written.increment();
+			} catch (IOException e) {
+				logger.error("Failed to write audit event", e);
+				dropped.increment();
+			}
+		}
+	}
+
+	private void ensureMapped(int length) throws IOException {
+		if (mapped != null && position + length <= mappedStart + mapped.capacity()) {
+			return;
+		}
+
+		mappedStart = position;
+		mapped = channel.map(FileChannel.MapMode.READ_WRITE, position, Math.max(MAP_CHUNK_SIZE, length));
+	}
+
+	private void open() throws IOException {
+		channel = FileChannel.open(getFile(0), StandardOpenOption.CREATE, StandardOpenOption.READ,
+								   StandardOpenOption.WRITE);
+		mapped = null;
+		position = 0;
+
+		if (channel.size() > 0) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			position = readRecords(buffer, event -> {});
+		}
+
+		// Discard any unused mapped space or partially written record left by the previous run
+		channel.truncate(position);
+	}
+
+	private void close() {
+		if (channel == null) {
+			return;
+		}
+
+		try {
+			if (mapped != null) {
+				mapped.force();
+			}
+
+			mapped = null;
+			channel.truncate(position);
+			channel.close();
+		} catch (IOException e) {
+			logger.error("Failed to close audit journal", e);
+		}
+
+		channel = null;
+	}
+
+	private void rotate() throws IOException {
+		close();
+
+		Files.deleteIfExists(getFile(maxFiles - 1));
+
+		for (int i = maxFiles - 2; i >= 0; i--) {
+			Path file = getFile(i);
+
+			if (Files.exists(file)) {
+				Files.move(file, getFile(i + 1), StandardCopyOption.REPLACE_EXISTING);
+			}
+		}
+
+		open();
+	}
+
+	private Path getFile(int index) {
+		return directory.resolve(index == 0 ? FILE_NAME : "journal." + index + ".bin");
+	}
+
+	/**
+	 * Reads the complete records in the given buffer
+	 *
+	 * @param buffer - The buffer to read
+	 * @param consumer - Consumer for each record
+	 * @return - The offset of the end of the last complete record
+	 */
+	private static long readRecords(ByteBuffer buffer, Consumer<Event> consumer) {
+		int offset = 0;
+
+		while (buffer.limit() - offset >= RECORD_HEADER_LENGTH) {
+			int length = buffer.getInt(offset);
+
+			if (length <= 0 || length > buffer.limit() - offset - RECORD_HEADER_LENGTH) {
+				break;
+			}
+
+			ByteBuffer payload = buffer.slice(offset + RECORD_HEADER_LENGTH, length);
+			CRC32C crc = new CRC32C();
+			crc.update(payload.duplicate());
+
+			if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+				break;
+			}
+
+			try {
+				consumer.accept(Event.decode(payload));
+			} catch (BufferUnderflowException | IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+				break;
+			}
+
+			offset += RECORD_HEADER_LENGTH + length;
+		}
+
+		return offset;
+	}
+
+	private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static @Nullable String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+
+		if (length == -1) {
+			return null;
+		}
+
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String nullToEmpty(@Nullable String value) {
+		return value != null ? value : "";
+	}
+}
@@ -0,0 +1,205 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * BK-tree of values keyed by lowercase id, using edit distance as the metric
+ * Used to find ids similar to unknown command input without comparing the input against every id
+ *
+ * @param <T> - The type of stored value
+ */
+public class BKTree<T> {
+	private Node<T> root = null;
+	private int size = 0;
+
+	public record Match<T>(@NotNull String id, @NotNull T value, int distance) {
+	}
+
+	private static final class Node<T> {
+		private final String id;
+		private final T value;
+		private Node<T>[] children = null; // Indexed by distance from this node
+
+		private Node(String id, T value) {
+			this.id = id;
+			this.value = value;
+		}
+
+		private Node<T> getChild(int distance) {
+			return children != null && distance < children.length ? children[distance] : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private void setChild(int distance, Node<T> child) {
+			if (children == null) {
+				children = (Node<T>[]) new Node<?>[distance + 1];
+			} else if (distance >= children.length) {
+				children = Arrays.copyOf(children, distance + 1);
+			}
+
+			children[distance] = child;
+		}
+	}
+
+	public BKTree(@NotNull Map<String, T> entries) {
+		entries.forEach(this::add);
+	}
+
+	private void add(String id, T value) {
+		String key = id.toLowerCase();
+		size++;
+
+		if (root == null) {
+			root = new Node<>(key, value);
+			return;
+		}
+
+		Node<T> node = root;
+		int[][] rows = createRows(key);
+
+		while (true) {
+			int distance = distance(key, node.id, rows, Integer.MAX_VALUE);
+
+			if (distance == 0) {
+				size--;
+				return;
+			}
+
+			Node<T> child = node.getChild(distance);
+
+			if (child == null) {
+				node.setChild(distance, new Node<>(key, value));
+				return;
+			}
+
+			node = child;
+		}
+	}
+
+	/**
+	 * Finds all values whose id is within the given edit distance of the input, ignoring case
+	 *
+	 * @param input - The input to match
+	 * @param maxDistance - The maximum edit distance
+	 * @return - Matches ordered by distance, then id
+	 */
+	public List<Match<T>> search(@NotNull String input, int maxDistance) {
+		List<Match<T>> matches = new ArrayList<>();
+
+		if (root == null) {
+			return matches;
+		}
+
+		String key = input.toLowerCase();
+		int[][] rows = createRows(key);
+		Deque<Node<T>> queue = new ArrayDeque<>();
+		queue.add(root);
+
+		while (!queue.isEmpty()) {
+			Node<T> node = queue.poll();
+			// Distances beyond the last child's range can't affect the result, so the computation can stop early
+			int cap = (node.children != null ? node.children.length - 1 : 0) + maxDistance + 1;
+			int distance = distance(key, node.id, rows, cap);
+
+			if (distance <= maxDistance) {
+				matches.add(new Match<>(node.id, node.value, distance));
+			}
+
+			if (node.children == null) {
+				continue;
+			}
+
+			// Triangle inequality: only children within maxDistance of this node's distance can match
+			int end = Math.min(node.children.length - 1, distance + maxDistance);
+
+			for (int i = Math.max(1, distance - maxDistance); i <= end; i++) {
+				if (node.children[i] != null) {
+					queue.add(node.children[i]);
+				}
+			}
+		}
+
+		matches.sort(Comparator.<Match<T>>comparingInt(Match::distance).thenComparing(Match::id));
+		return matches;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private static int[][] createRows(String key) {
+		return new int[][] {new int[key.length() + 1], new int[key.length() + 1]};
+	}
+
+	/**
+	 * Levenshtein distance between the given key and id, using the given pair of rows sized for the key
+	 * Rows are reused between calls to avoid allocating for every node visited.
+	 * Returns the cap instead once the distance is known to be at least the cap.
+	 */
+	private static int distance(String key, String id, int[][] rows, int cap) {
+		if (Math.abs(key.length() - id.length()) >= cap) {
+			return cap;
+		}
+
+		int[] previous = rows[0];
+		int[] current = rows[1];
+
+		for (int j = 0; j <= key.length(); j++) {
+			previous[j] = j;
+		}
+
+		for (int i = 1; i <= id.length(); i++) {
+			current[0] = i;
+			char c = id.charAt(i - 1);
+
+			int rowMinimum = current[0];
+
+			for (int j = 1; j <= key.length(); j++) {
+				int cost = key.charAt(j - 1) == c ? 0 : 1;
+				current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+				rowMinimum = Math.min(rowMinimum, current[j]);
+			}
+
+			if (rowMinimum >= cap) {
+				return cap;
+			}
+
+			int[] swap = previous;
+			previous = current;
+			current = swap;
+		}
+
+		return Math.min(previous[key.length()], cap);
+	}
+}
@@ -0,0 +1,168 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Runs an asynchronous operation over a list of items, with a bounded number of operations in flight at once
+ * Outcomes are aggregated into counts, so a bulk change can be reported as a single result rather than one message per
+ * item. Operations which complete immediately, such as items needing no change, are processed in a loop rather than
+ * through chained callbacks.
+ *
+ * @param <T> - The type of item
+ */
+public final class BulkPipeline<T> {
+	public enum Outcome {
+		CHANGED,
+		UNCHANGED,
+		SKIPPED,
+		FAILED
+	}
+
+	/**
+	 * The aggregated outcome of a bulk change
+	 *
+	 * @param changed - The number of items which were changed
+	 * @param unchanged - The number of items which already matched the change
+	 * @param skipped - The number of items the change could not be applied to
+	 * @param failed - The number of items for which the change failed
+	 */
+	public record Result(int changed, int unchanged, int skipped, int failed) {
+		public int total() {
+			return changed + unchanged + skipped + failed;
+		}
+	}
+
+	private final List<T> items;
+	private final Function<T, CompletableFuture<Outcome>> operation;
+	private final int concurrency;
+	private final @Nullable BiConsumer<Integer, Integer> progress;
+
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicInteger workers = new AtomicInteger();
+	private final AtomicInteger processed = new AtomicInteger();
+	private final LongAdder[] counts = new LongAdder[Outcome.values().length];
+	private final CompletableFuture<Result> result = new CompletableFuture<>();
+
+	/**
+	 * Creates a pipeline, which is started by {@link #run()}
+	 *
+	 * @param items - The items to process
+	 * @param operation - The operation to run for each item
+	 * @param concurrency - The maximum number of operations in flight at once
+	 * @param progress - Called with the number of processed items and the total number of items after each item
+	 */
+	public BulkPipeline(@NotNull List<T> items, @NotNull Function<T, CompletableFuture<Outcome>> operation,
+						int concurrency, @Nullable BiConsumer<Integer, Integer> progress) {
+		this.items = List.copyOf(items);
+		this.operation = operation;
+		this.concurrency = Math.max(1, concurrency);
+		this.progress = progress;
+
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] = new LongAdder();
+		}
+	}
+
+	/**
+	 * Starts processing the items
+	 * Exceptions thrown or returned by the operation are counted as failures.
+	 *
+	 * @return - Completable future of the aggregated result, completed once every operation has completed
+	 */
+	public CompletableFuture<Result> run() {
+		int started = Math.min(concurrency, items.size());
+
+		if (started == 0) {
+			result.complete(new Result(0, 0, 0, 0));
+			return result;
+		}
+
+		workers.set(started);
+
+		for (int i = 0; i < started; i++) {
+			drain();
+		}
+
+		return result;
+	}
+
+	/**
+	 * Runs operations until one is still in flight, which continues draining once it completes, or no items remain
+	 */
+	private void drain() {
+		while (true) {
+			int index = next.getAndIncrement();
+
+			if (index >= items.size()) {
+				if (workers.decrementAndGet() == 0) {
+					result.complete(new Result(count(Outcome.CHANGED), count(Outcome.UNCHANGED),
+											   count(Outcome.SKIPPED), count(Outcome.FAILED)));
+				}
+
+				return;
+			}
+
+			CompletableFuture<Outcome> future;
+
+			try {
+				future = operation.apply(items.get(index));
+			} catch (RuntimeException e) {
+				future = CompletableFuture.failedFuture(e);
+			}
+
+			if (future.isDone()) {
+				record(future.exceptionally(e -> Outcome.FAILED).join());
+				continue;
+			}
+
+			future.whenComplete((outcome, e) -> {
+				record(e != null ? Outcome.FAILED : outcome);
+				drain();
+			});
+
+			return;
+		}
+	}
+
+	private void record(@Nullable Outcome outcome) {
+		counts[(outcome != null ? outcome : Outcome.FAILED).ordinal()].increment();
+
+		if (progress != null) {
+			progress.accept(processed.incrementAndGet(), items.size());
+		}
+	}
+
+	private int count(Outcome outcome) {
+		return counts[outcome.ordinal()].intValue();
+	}
+}
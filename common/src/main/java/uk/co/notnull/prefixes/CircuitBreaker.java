@@ -0,0 +1,215 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Circuit breaker for calls to a slow or failing backend
+ * Outcomes of recent calls are kept in a fixed size window, and calls which fail or take longer than the slow call
+ * threshold are counted as bad. Once enough calls have been made and the proportion of bad calls reaches the failure
+ * rate, the breaker opens and rejects calls. After the open duration a single probe call is allowed through, which
+ * closes the breaker if it succeeds or reopens it if it fails.
+ */
+public class CircuitBreaker {
+	public enum State {
+		CLOSED,
+		OPEN,
+		HALF_OPEN
+	}
+
+	/**
+	 * @param window - The number of recent calls to consider
+	 * @param minimumCalls - The number of calls required in the window before the breaker can open
+	 * @param failureRate - The proportion of bad calls at which the breaker opens, between 0.01 and 1
+	 * @param slowCallMillis - The latency above which a successful call is counted as bad
+	 * @param timeoutMillis - The time after which a call is abandoned and counted as failed
+	 * @param openMillis - How long the breaker stays open before allowing a probe call
+	 */
+	public record Settings(int window, int minimumCalls, double failureRate, long slowCallMillis,
+						   long timeoutMillis, long openMillis) {
+		public Settings {
+			window = Math.max(1, window);
+			minimumCalls = Math.max(1, Math.min(minimumCalls, window));
+			failureRate = Math.max(0.01, Math.min(1, failureRate));
+		}
+	}
+
+	private final Settings settings;
+	private final Runnable onClose;
+
+	private final boolean[] outcomes;
+	private int next = 0;
+	private int calls = 0;
+	private int badCalls = 0;
+
+	private State state = State.CLOSED;
+	private long openedAt = 0;
+	private boolean probeInFlight = false;
+	private long trips = 0;
+	private long rejected = 0;
+
+	/**
+	 * @param settings - The breaker settings
+	 * @param onClose - Called after the breaker closes following a successful probe, outside of any lock
+	 */
+	public CircuitBreaker(@NotNull Settings settings, @NotNull Runnable onClose) {
+		this.settings = settings;
+		this.onClose = onClose;
+		this.outcomes = new boolean[settings.window()];
+	}
+
+	public Settings getSettings() {
+		return settings;
+	}
+
+	/**
+	 * Attempts to start a call
+	 * Every successful acquire must be followed by a call to {@link #onSuccess(long)} or {@link #onFailure()}
+	 *
+	 * @return - Whether the call may proceed
+	 */
+	public synchronized boolean tryAcquire() {
+		switch (state) {
+			case CLOSED -> {
+				return true;
+			}
+			case OPEN -> {
+				if (System.currentTimeMillis() - openedAt < settings.openMillis()) {
+					rejected++;
+					return false;
+				}
+
+				state = State.HALF_OPEN;
+				probeInFlight = true;
+				return true;
+			}
+			default -> {
+				if (probeInFlight) {
+					rejected++;
+					return false;
+				}
+
+				probeInFlight = true;
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Returns whether a call would currently be allowed, without starting one
+	 *
+	 * @return - Whether calls are allowed
+	 */
+	public synchronized boolean isAvailable() {
+		return switch (state) {
+			case CLOSED -> true;
+			case OPEN -> System.currentTimeMillis() - openedAt >= settings.openMillis();
+			case HALF_OPEN -> !probeInFlight;
+		};
+	}
+
+	/**
+	 * Records a completed call
+	 *
+	 * @param latencyMillis - How long the call took
+	 */
+	public void onSuccess(long latencyMillis) {
+		record(latencyMillis > settings.slowCallMillis());
+	}
+
+	/**
+	 * Records a failed or timed out call
+	 */
+	public void onFailure() {
+		record(true);
+	}
+
+	private void record(boolean bad) {
+		boolean closed = false;
+
+		synchronized (this) {
+			switch (state) {
+				case HALF_OPEN -> {
+					probeInFlight = false;
+
+					if (bad) {
+						open();
+					} else {
+						reset();
+						state = State.CLOSED;
+						closed = true;
+					}
+				}
+				case CLOSED -> {
+					if (calls == outcomes.length) {
+						badCalls -= outcomes[next] ? 1 : 0;
+					} else {
+						calls++;
+					}
+
+					outcomes[next] = bad;
+					badCalls += bad ? 1 : 0;
+					next = (next + 1) % outcomes.length;
+
+					if (calls >= settings.minimumCalls() && badCalls >= settings.failureRate() * calls) {
+						open();
+					}
+				}
+				default -> {
+					// Calls started before the breaker opened are ignored
+				}
+			}
+		}
+
+		if (closed) {
+			onClose.run();
+		}
+	}
+
+	private void open() {
+		state = State.OPEN;
+		openedAt = System.currentTimeMillis();
+		trips++;
+		reset();
+	}
+
+	private void reset() {
+		next = 0;
+		calls = 0;
+		badCalls = 0;
+	}
+
+	public synchronized State getState() {
+		return state;
+	}
+
+	public synchronized long getTrips() {
+		return trips;
+	}
+
+	public synchronized long getRejectedCount() {
+		return rejected;
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The validated colour and prefix definitions from a single config file
+ * Definitions are kept as plain strings so shards can be parsed independently and cached, colours are resolved and
+ * ordinals assigned once all shards are loaded.
+ *
+ * Binary format: version byte, int colour count, colours, int prefix count, prefixes.
+ * Strings are an int byte length followed by UTF-8 bytes, with a length of -1 for null. String lists are an int count
+ * followed by strings, with a count of -1 for null.
+ */
+public record ConfigShard(@NotNull String name, @NotNull List<ColourDefinition> colours,
+						  @NotNull List<PrefixDefinition> prefixes) {
+	public static final byte VERSION = 2;
+
+	public record ColourDefinition(@NotNull String id, @NotNull String start, @NotNull String end,
+								   @Nullable String permission, @Nullable String description, boolean unlockable,
+								   boolean retired) {
+	}
+
+	public record PrefixDefinition(@NotNull String id, @NotNull String prefix, @Nullable String permission,
+								   @Nullable String description, @Nullable String defaultColour, boolean unlockable,
+								   boolean retired, @Nullable String category, @Nullable List<String> allowedColours,
+								   @Nullable List<String> deniedColours, @Nullable List<String> frames) {
+	}
+
+	/**
+	 * Parses and validates the colours and prefixes sections of the given config
+	 * Invalid definitions are logged and skipped
+	 *
+	 * @param name - The name of the config file, used in log messages
+	 * @param configuration - The root config node
+	 * @param logger - The logger to log invalid definitions to
+	 * @return - The parsed shard
+	 */
+	public static ConfigShard parse(@NotNull String name, @NotNull ConfigurationNode configuration,
+									@NotNull Logger logger) {
+		List<ColourDefinition> colours = new ArrayList<>();
+		List<PrefixDefinition> prefixes = new ArrayList<>();
+
+		configuration.node("colours").childrenMap().forEach((Object id, ConfigurationNode child) -> {
+			String colourStart = child.node("start").getString();
+
+			if (colourStart == null) {
+				logger.warn("Ignoring colour " + id + " in " + name + " as it has no defined start");
+				return;
+			}
+
+			colours.add(new ColourDefinition(id.toString(), colourStart, child.node("end").getString(""),
+											 child.node("permission").getString(),
+											 child.node("description").getString(),
+											 child.node("unlockable").getBoolean(false),
+											 child.node("retired").getBoolean(false)));
+		});
+
+		configuration.node("prefixes").childrenMap().forEach((Object id, ConfigurationNode child) -> {
+			String prefix = child.node("prefix").getString();
+
+			if (prefix == null) {
+				logger.warn("Ignoring prefix " + id + " in " + name + " as it has no defined prefix");
+				return;
+			}
+
+			List<String> frames = getStringList(child.node("frames"));
+
+			if (frames != null && frames.size() < 2) {
+				logger.warn("Ignoring frames for prefix " + id + " in " + name + " as fewer than two are defined");
+				frames = null;
+			}
+
+			prefixes.add(new PrefixDefinition(id.toString(), prefix, child.node("permission").getString(),
+											  child.node("description").getString(),
+											  child.node("default-colour").getString(),
+											  child.node("unlockable").getBoolean(false),
+											  child.node("retired").getBoolean(false),
+											  child.node("category").getString(),
+											  getStringList(child.node("allowed-colours")),
+											  getStringList(child.node("denied-colours")),
+											  frames));
+		});
+
+		return new ConfigShard(name, List.copyOf(colours), List.copyOf(prefixes));
+	}
+
+	private static @Nullable List<String> getStringList(ConfigurationNode node) {
+		if (node.virtual()) {
+			return null;
+		}
+
+		List<String> values = new ArrayList<>();
+
+		for (ConfigurationNode child : node.childrenList()) {
+			String value = child.getString();
+
+			if (value != null) {
+				values.add(value);
+			}
+		}
+
+		return values;
+	}
+
+	public byte[] encode() {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + (colours.size() + prefixes.size()) * 96);
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeInt(colours.size());
+
+			for (ColourDefinition colour : colours) {
+				writeString(out, colour.id());
+				writeString(out, colour.start());
+				writeString(out, colour.end());
+				writeString(out, colour.permission());
+				writeString(out, colour.description());
+				out.writeBoolean(colour.unlockable());
+				out.writeBoolean(colour.retired());
+			}
+
+			out.writeInt(prefixes.size());
+
+			for (PrefixDefinition prefix : prefixes) {
+				writeString(out, prefix.id());
+				writeString(out, prefix.prefix());
+				writeString(out, prefix.permission());
+				writeString(out, prefix.description());
+				writeString(out, prefix.defaultColour());
+				out.writeBoolean(prefix.unlockable());
+				out.writeBoolean(prefix.retired());
+				writeString(out, prefix.category());
+				writeStringList(out, prefix.allowedColours());
+				writeStringList(out, prefix.deniedColours());
+				writeStringList(out, prefix.frames());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Decodes a shard from the given buffer
+	 *
+	 * @param name - The name of the config file the shard was parsed from
+	 * @param buffer - The buffer, positioned at the start of the encoded shard
+	 * @return - The decoded shard
+	 * @throws IllegalArgumentException - If the data is malformed or uses a different version
+	 */
+	public static ConfigShard decode(@NotNull String name, @NotNull ByteBuffer buffer) {
+		try {
+			byte version = buffer.get();
+
+			if (version != VERSION) {
+				throw new IllegalArgumentException("Unsupported shard cache version " + version);
+			}
+
+			int colourCount = readCount(buffer);
+			List<ColourDefinition> colours = new ArrayList<>(colourCount);
+
+			for (int i = 0; i < colourCount; i++) {
+				colours.add(new ColourDefinition(readRequiredString(buffer), readRequiredString(buffer),
+												 readRequiredString(buffer), readString(buffer), readString(buffer),
+												 buffer.get() != 0, buffer.get() != 0));
+			}
+
+			int prefixCount = readCount(buffer);
+			List<PrefixDefinition> prefixes = new ArrayList<>(prefixCount);
+
+			for (int i = 0; i < prefixCount; i++) {
+				prefixes.add(new PrefixDefinition(readRequiredString(buffer), readRequiredString(buffer),
+												  readString(buffer), readString(buffer), readString(buffer),
+												  buffer.get() != 0, buffer.get() != 0, readString(buffer),
+												  readStringList(buffer), readStringList(buffer),
+												  readStringList(buffer)));
+			}
+
+			return new ConfigShard(name, List.copyOf(colours), List.copyOf(prefixes));
+		} catch (BufferUnderflowException e) {
+			throw new IllegalArgumentException("Truncated shard cache", e);
+		}
+	}
+
+	private static void writeString(DataOutputStream out, @Nullable String value) throws IOException {
+		if (value == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static void writeStringList(DataOutputStream out, @Nullable List<String> values) throws IOException {
+		if (values == null) {
+			out.writeInt(-1);
+			return;
+		}
+
+		out.writeInt(values.size());
+
+		for (String value : values) {
+			writeString(out, value);
+		}
+	}
+
+	private static int readCount(ByteBuffer buffer) {
+		int count = buffer.getInt();
+
+		if (count < 0 || count > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid count " + count);
+		}
+
+		return count;
+	}
+
+	private static @Nullable String readString(ByteBuffer buffer) {
+		int length = buffer.getInt();
+
+		if (length == -1) {
+			return null;
+		}
+
+		if (length < 0 || length > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid string length " + length);
+		}
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static @NotNull String readRequiredString(ByteBuffer buffer) {
+		String value = readString(buffer);
+
+		if (value == null) {
+			throw new IllegalArgumentException("Missing required string");
+		}
+
+		return value;
+	}
+
+	private static @Nullable List<String> readStringList(ByteBuffer buffer) {
+		int count = buffer.getInt();
+
+		if (count == -1) {
+			return null;
+		}
+
+		if (count < 0 || count > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid list size " + count);
+		}
+
+		List<String> values = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			values.add(readRequiredString(buffer));
+		}
+
+		return List.copyOf(values);
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Watches the data directory and prefixes.d for changes to .yml files, and triggers a reload once writes have stopped
+ * Bursts of writes, such as an editor saving several times, are coalesced into a single reload after the debounce
+ * delay has passed without any further changes.
+ * The reload itself is left to the platform, which reports whether the new config was applied.
+ */
+public class ConfigWatcher {
+	private final BooleanSupplier reload;
+	private final Path dataDirectory;
+	private final long debounce;
+	private final Logger logger;
+
+	private WatchService watchService;
+	private Thread thread;
+
+	public ConfigWatcher(@NotNull Path dataDirectory, long debounce, @NotNull BooleanSupplier reload,
+						 @NotNull Logger logger) {
+		this.reload = reload;
+		this.dataDirectory = dataDirectory;
+		this.debounce = Math.max(debounce, 50);
+		this.logger = logger;
+	}
+
+	public long getDebounce() {
+		return debounce;
+	}
+
+	/**
+	 * Starts watching for changes on a new daemon thread
+	 *
+	 * @throws IOException - If the directories could not be registered with the watch service
+	 */
+	public synchronized void start() throws IOException {
+		if (thread != null) {
+			return;
+		}
+
+		watchService = dataDirectory.getFileSystem().newWatchService();
+		register(dataDirectory);
+
+		Path shardDirectory = dataDirectory.resolve("prefixes.d");
+
+		if (Files.isDirectory(shardDirectory)) {
+			register(shardDirectory);
+		}
+
+		thread = new Thread(this::run, "Prefixes config watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching for changes
+	 * Any pending reload is discarded. If called from a reload triggered by this watcher, the watcher thread is not
+	 * interrupted, so the reload can finish, and exits once it returns.
+	 */
+	public synchronized void stop() {
+		if (thread == null) {
+			return;
+		}
+
+		try {
+			watchService.close();
+		} catch (IOException e) {
+			logger.warn("Failed to close config watcher", e);
+		}
+
+		if (thread != Thread.currentThread()) {
+			thread.interrupt();
+		}
+
+		thread = null;
+		watchService = null;
+	}
+
+	private void register(Path directory) throws IOException {
+		directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+						   StandardWatchEventKinds.ENTRY_DELETE);
+	}
+
+	private void run() {
+		WatchService watchService = this.watchService;
+
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				// Wait for the first relevant change
+				if (!drain(watchService.take())) {
+					continue;
+				}
+
+				// Keep waiting until no changes have been made for the debounce delay
+				WatchKey key;
+
+				while ((key = watchService.poll(debounce, TimeUnit.MILLISECONDS)) != null) {
+					drain(key);
+				}
+
+				logger.info("Configuration changed, reloading");
+
+				if (!reload.getAsBoolean()) {
+					logger.warn("Automatic reload failed, the previous configuration is still active");
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException ignored) {
+		}
+	}
+
+	/**
+	 * Consumes the events of the given key and resets it
+	 *
+	 * @param key - The key
+	 * @return - Whether any events were for .yml files
+	 */
+	private boolean drain(WatchKey key) {
+		boolean relevant = false;
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+			if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+				relevant = true;
+			} else if (event.context() instanceof Path path && path.toString().endsWith(".yml")) {
+				relevant = true;
+			} else if (event.context() instanceof Path path && path.toString().equals("prefixes.d")
+					&& event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+				// Start watching a shard directory created after startup
+				try {
+					register(dataDirectory.resolve(path));
+					relevant = true;
+				} catch (IOException e) {
+					logger.warn("Failed to watch prefixes.d", e);
+				}
+			}
+		}
+
+		key.reset();
+
+		return relevant;
+	}
+}
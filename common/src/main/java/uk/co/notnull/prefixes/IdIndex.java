@@ -0,0 +1,82 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index of values sorted by lowercase id, used for prefix matching of command input
+ * Built once when the config is loaded, so lookups are a binary search rather than a scan of every value
+ *
+ * @param <T> - The type of indexed value
+ */
+public class IdIndex<T> {
+	private final String[] ids;
+	private final List<T> values;
+
+	public IdIndex(@NotNull Map<String, T> entries) {
+		List<Map.Entry<String, T>> sorted = new ArrayList<>(entries.entrySet());
+		sorted.sort(Comparator.comparing(entry -> entry.getKey().toLowerCase()));
+
+		List<T> values = new ArrayList<>(sorted.size());
+		ids = new String[sorted.size()];
+
+		for (int i = 0; i < sorted.size(); i++) {
+			ids[i] = sorted.get(i).getKey().toLowerCase();
+			values.add(sorted.get(i).getValue());
+		}
+
+		this.values = Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * Returns all values whose id starts with the given input, ignoring case, in id order
+	 *
+	 * @param input - The input to match
+	 * @return - Unmodifiable list of matching values
+	 */
+	public List<T> startingWith(@NotNull String input) {
+		String lower = input.toLowerCase();
+		int start = lowerBound(lower);
+		int end = lowerBound(lower + Character.MAX_VALUE);
+
+		return values.subList(start, end);
+	}
+
+	public int size() {
+		return ids.length;
+	}
+
+	private int lowerBound(String key) {
+		int index = Arrays.binarySearch(ids, key);
+		return index < 0 ? -(index + 1) : index;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2022 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.identity.Identity;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.ComponentLike;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.text.minimessage.tag.resolver.Placeholder;
+import net.kyori.adventure.text.minimessage.tag.resolver.TagResolver;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Message templates, loaded from messages.yml and optional messages_&lt;locale&gt;.yml bundles
+ * Each bundle is flattened once into an immutable table of message ids to templates, with missing messages filled in
+ * from the language bundle and then messages.yml. Looking up a bundle for a locale is then at most two map lookups.
+ * Every template is also parsed once when loaded, and sent as is when no replacements are given. MiniMessage resolves
+ * placeholders while parsing, and can't parse a template ahead of time and fill in placeholders later, so messages
+ * sent with replacements are parsed each time they are sent.
+ */
+public class Messages {
+    public static final MiniMessage miniMessage = MiniMessage.miniMessage();
+
+    private static volatile Table table = new Table(Bundle.parse(Map.of()), Map.of());
+
+    private record Bundle(Map<String, String> templates, Map<String, Component> components) {
+        static Bundle parse(Map<String, String> templates) {
+            Map<String, Component> components = new HashMap<>();
+            templates.forEach((id, template) -> components.put(id, miniMessage.deserialize(template)));
+
+            return new Bundle(Map.copyOf(templates), Map.copyOf(components));
+        }
+    }
+
+    private record Table(Bundle defaultBundle, Map<Locale, Bundle> bundles) {
+        Table {
+            bundles = Map.copyOf(bundles);
+        }
+
+        Bundle get(@Nullable Locale locale) {
+            if (locale == null || bundles.isEmpty()) {
+                return defaultBundle;
+            }
+
+            Bundle bundle = bundles.get(locale);
+
+            if (bundle == null && !locale.getCountry().isEmpty()) {
+                bundle = bundles.get(Locale.of(locale.getLanguage()));
+            }
+
+            return bundle != null ? bundle : defaultBundle;
+        }
+    }
+
+    public static void set(ConfigurationNode messages) {
+        set(messages, Collections.emptyMap());
+    }
+
+    /**
+     * Flattens and parses the given messages into per-locale bundles and replaces the current messages
+     * Bundles for a language and country fall back to the bundle for the language, if one exists, then the default
+     * messages
+     *
+     * @param messages - The default messages
+     * @param localeMessages - Messages for specific locales
+     */
+    public static void set(ConfigurationNode messages, Map<Locale, ConfigurationNode> localeMessages) {
+        Map<String, String> defaults = new HashMap<>();
+        flatten(messages, "", defaults);
+
+        Map<Locale, Map<String, String>> flattened = new HashMap<>();
+
+        localeMessages.forEach((locale, node) -> {
+            Map<String, String> templates = new HashMap<>();
+            flatten(node, "", templates);
+            flattened.put(locale, templates);
+        });
+
+        Map<Locale, Bundle> bundles = new HashMap<>();
+
+        flattened.forEach((locale, templates) -> {
+            Map<String, String> merged = new HashMap<>(defaults);
+
+            if (!locale.getCountry().isEmpty()) {
+                merged.putAll(flattened.getOrDefault(Locale.of(locale.getLanguage()), Collections.emptyMap()));
+            }
+
+            merged.putAll(templates);
+            bundles.put(locale, Bundle.parse(merged));
+        });
+
+        table = new Table(Bundle.parse(defaults), bundles);
+    }
+
+    private static void flatten(ConfigurationNode node, String prefix, Map<String, String> templates) {
+        node.childrenMap().forEach((key, child) -> {
+            String id = prefix.isEmpty() ? key.toString() : prefix + "." + key;
+
+            if (child.isMap()) {
+                flatten(child, id, templates);
+            } else if (child.getString() != null) {
+                templates.put(id, child.getString());
+            }
+        });
+    }
+
+    public static String get(String id) {
+        return get(id, Collections.emptyMap());
+    }
+
+    public static String get(String id, Map<String, String> replacements) {
+        return get(null, id, replacements);
+    }
+
+    public static String get(@Nullable Locale locale, String id, Map<String, String> replacements) {
+        String message = getTemplate(table.get(locale), id);
+
+        for (Map.Entry<String, String> entry : replacements.entrySet()) {
+            message = message.replace(entry.getKey(), entry.getValue());
+        }
+
+        return message;
+    }
+
+    private static String getTemplate(Bundle bundle, String id) {
+        String template = bundle.templates().get(id);
+        return template != null ? template : "Message " + id + " does not exist";
+    }
+
+    public static Component getComponent(String id) {
+        return getComponent((Locale) null, id);
+    }
+
+    public static Component getComponent(@Nullable Locale locale, String id) {
+        Bundle bundle = table.get(locale);
+        Component component = bundle.components().get(id);
+
+        return component != null ? component : miniMessage.deserialize(getTemplate(bundle, id));
+    }
+
+    public static Component getComponent(String id, Map<String, String> stringReplacements, Map<String, ComponentLike> componentReplacmenets) {
+        return getComponent(null, id, stringReplacements, componentReplacmenets);
+    }
+
+    public static Component getComponent(@Nullable Locale locale, String id, Map<String, String> stringReplacements, Map<String, ComponentLike> componentReplacmenets) {
+        if (stringReplacements.isEmpty() && componentReplacmenets.isEmpty()) {
+            return getComponent(locale, id);
+        }
+
+        String message = getTemplate(table.get(locale), id);
+
+        TagResolver.@NotNull Builder placeholders = TagResolver.builder();
+
+        for (Map.Entry<String, String> entry : stringReplacements.entrySet()) {
+            placeholders.resolver(Placeholder.parsed(entry.getKey(), entry.getValue()));
+        }
+
+        for (Map.Entry<String, ComponentLike> entry : componentReplacmenets.entrySet()) {
+            placeholders.resolver(Placeholder.component(entry.getKey(), entry.getValue()));
+        }
+
+        return miniMessage.deserialize(message, placeholders.build());
+    }
+
+    /**
+     * Gets the locale messages should be sent to the given recipient in
+     *
+     * @param recipient - The recipient
+     * @return - The recipient's locale, or null to use the default messages
+     */
+    public static @Nullable Locale getLocale(Audience recipient) {
+        return recipient.pointers().get(Identity.LOCALE).orElse(null);
+    }
+
+    public static void sendComponent(Audience recipient, String messageId) {
+        recipient.sendMessage(getComponent(getLocale(recipient), messageId));
+    }
+
+    public static void sendComponent(Audience recipient, String messageId, Map<String, String> stringReplacements, Map<String, ComponentLike> componentReplacmenets) {
+        recipient.sendMessage(getComponent(getLocale(recipient), messageId, stringReplacements, componentReplacmenets));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A filter used to choose the online players a bulk prefix change applies to
+ * Selectors are written as all or type:value, and when several are given separated by spaces a player must match all
+ * of them.
+ *
+ * @param type - The type of selector
+ * @param value - The value to match, or null for {@link Type#ALL}
+ */
+public record PlayerSelector(@NotNull Type type, @Nullable String value) {
+	public enum Type {
+		ALL("all"),
+		SERVER("server"),
+		PERMISSION("permission"),
+		CURRENT_PREFIX("current-prefix");
+
+		private final String name;
+
+		Type(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+	}
+
+	/**
+	 * Parses a space separated list of selectors
+	 *
+	 * @param input - The selectors
+	 * @return - The parsed selectors
+	 * @throws IllegalArgumentException - If any selector is invalid, with the invalid selector as the message
+	 */
+	public static List<PlayerSelector> parse(@NotNull String input) {
+		List<PlayerSelector> selectors = new ArrayList<>();
+
+		for (String token : input.trim().split("\\s+")) {
+			if (token.isEmpty()) {
+				continue;
+			}
+
+			if (token.equalsIgnoreCase(Type.ALL.getName())) {
+				selectors.add(new PlayerSelector(Type.ALL, null));
+				continue;
+			}
+
+			int separator = token.indexOf(':');
+			Type type = separator > 0 ? getType(token.substring(0, separator)) : null;
+
+			if (type == null || type == Type.ALL || separator == token.length() - 1) {
+				throw new IllegalArgumentException(token);
+			}
+
+			selectors.add(new PlayerSelector(type, token.substring(separator + 1)));
+		}
+
+		if (selectors.isEmpty()) {
+			throw new IllegalArgumentException(input);
+		}
+
+		return selectors;
+	}
+
+	private static @Nullable Type getType(String name) {
+		String lowerName = name.toLowerCase(Locale.ROOT);
+
+		for (Type type : Type.values()) {
+			if (type.getName().equals(lowerName)) {
+				return type;
+			}
+		}
+
+		return null;
+	}
+
+	@Override
+	public String toString() {
+		return value != null ? type.getName() + ":" + value : type.getName();
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2022 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+public class Prefix {
+	private final String id;
+	private final String prefix;
+	private final String permission;
+	private final String description;
+	private final @NotNull PrefixColour defaultColour;
+	private final boolean unlockable;
+	private final boolean retired;
+	private final String category;
+	private final @Nullable BitSet colourMask;
+	private final int ordinal;
+	private final @Nullable PrefixRender.Truncation truncation;
+	private final @Nullable List<String> frames;
+	private final Map<String, PrefixRender> renderedPrefixes = new ConcurrentHashMap<>();
+	private final Map<String, List<PrefixRender>> renderedFrames = new ConcurrentHashMap<>();
+
+	public Prefix(
+			String id, String prefix, String permission, String description, @NotNull PrefixColour defaultColour, boolean unlockable, boolean retired) {
+		this(id, prefix, permission, description, defaultColour, unlockable, retired, null, null, -1);
+	}
+
+	public Prefix(
+			String id, String prefix, String permission, String description, @NotNull PrefixColour defaultColour, boolean unlockable, boolean retired, String category, @Nullable BitSet colourMask, int ordinal) {
+		this(id, prefix, permission, description, defaultColour, unlockable, retired, category, colourMask, ordinal, null, null);
+	}
+
+	public Prefix(
+			String id, String prefix, String permission, String description, @NotNull PrefixColour defaultColour, boolean unlockable, boolean retired, String category, @Nullable BitSet colourMask, int ordinal, @Nullable PrefixRender.Truncation truncation, @Nullable List<String> frames) {
+		this.id = id;
+		this.prefix = prefix;
+		this.permission = permission;
+		this.description = description;
+		this.defaultColour = defaultColour;
+		this.unlockable = unlockable;
+		this.retired = retired;
+		this.category = category;
+		this.colourMask = colourMask != null ? (BitSet) colourMask.clone() : null;
+		this.ordinal = ordinal;
+		this.truncation = truncation;
+		this.frames = frames != null && frames.size() > 1 ? List.copyOf(frames) : null;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getRawPrefix() {
+		return prefix;
+	}
+
+	public String getPrefix() {
+		return prefix.replace("<colourstart>", defaultColour.getColourStart())
+				.replace("<colourend>", defaultColour.getColourEnd());
+	}
+
+	public String getPrefix(@NotNull PrefixColour colour) {
+		return applyColour(prefix, colour);
+	}
+
+	private static String applyColour(String prefix, PrefixColour colour) {
+		return prefix.replace("<colourstart>", colour.getColourStart())
+				.replace("<colourend>", colour.getColourEnd());
+	}
+
+	/**
+	 * Gets this prefix rendered with the given colour, along with its measured width and Bedrock variant
+	 * Renders are cached for the lifetime of this prefix, which is replaced on reload
+	 *
+	 * @param colour - The colour to render the prefix with
+	 * @return - The render
+	 */
+	public PrefixRender getRender(@NotNull PrefixColour colour) {
+		return renderedPrefixes.computeIfAbsent(colour.getId(),
+												(key) -> PrefixRender.create(getPrefix(colour), truncation));
+	}
+
+	/**
+	 * Returns whether this prefix has animation frames
+	 * Animated prefixes are shown frame by frame in the tab list, and as the static prefix everywhere else.
+	 *
+	 * @return - Whether the prefix is animated
+	 */
+	public boolean isAnimated() {
+		return frames != null;
+	}
+
+	/**
+	 * Gets the animation frames of this prefix rendered with the given colour
+	 * Frames are cached in the same way as {@link #getRender(PrefixColour)}, so advancing an animation never parses
+	 * MiniMessage.
+	 *
+	 * @param colour - The colour to render the frames with
+	 * @return - The rendered frames, or a list containing only the static prefix if this prefix isn't animated
+	 */
+	public List<PrefixRender> getFrames(@NotNull PrefixColour colour) {
+		if (frames == null) {
+			return List.of(getRender(colour));
+		}
+
+		return renderedFrames.computeIfAbsent(colour.getId(), (key) -> frames.stream()
+				.map(frame -> PrefixRender.create(applyColour(frame, colour), truncation))
+				.toList());
+	}
+
+	/**
+	 * Gets the animation frame of this prefix to show at the given animation tick
+	 *
+	 * @param colour - The colour to render the frame with
+	 * @param tick - The animation tick
+	 * @return - The rendered frame, or the static prefix if this prefix isn't animated
+	 */
+	public PrefixRender getFrame(@NotNull PrefixColour colour, long tick) {
+		if (frames == null) {
+			return getRender(colour);
+		}
+
+		List<PrefixRender> rendered = getFrames(colour);
+		return rendered.get(Math.floorMod(tick, rendered.size()));
+	}
+
+	/**
+	 * Gets this prefix rendered with the given colour
+	 *
+	 * @param colour - The colour to render the prefix with
+	 * @return - The rendered prefix
+	 */
+	public Component getPrefixComponent(@NotNull PrefixColour colour) {
+		return getRender(colour).getComponent();
+	}
+
+	/**
+	 * Gets this prefix rendered with the given colour, shortened for Bedrock players if the truncation policy requires
+	 *
+	 * @param colour - The colour to render the prefix with
+	 * @return - The rendered prefix
+	 */
+	public Component getBedrockPrefixComponent(@NotNull PrefixColour colour) {
+		return getRender(colour).getBedrockComponent();
+	}
+
+	public boolean hasPermission() {
+		return permission != null;
+	}
+
+	public String getPermission() {
+		return permission;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+	public @NotNull PrefixColour getDefaultColour() {
+		return defaultColour;
+	}
+
+	public boolean isRetired() {
+		return retired;
+	}
+
+	public boolean isUnlockable() {
+		return unlockable;
+	}
+
+	/**
+	 * Returns whether a player with the given permissions is allowed to use this prefix
+	 *
+	 * @param permissions - Whether the player has a given permission
+	 * @param includeLocked - Whether to allow this prefix if it is a locked unlockable prefix
+	 * @return - Whether the prefix is allowed
+	 */
+	public boolean isAllowed(@NotNull Predicate<String> permissions, boolean includeLocked) {
+		return (!retired || permissions.test("prefixes.use-retired"))
+				&& (permission == null || (includeLocked && unlockable) || permissions.test(permission));
+	}
+
+	/**
+	 * Gets the id of the category this prefix belongs to
+	 *
+	 * @return - The category id, or null if the prefix is uncategorised
+	 */
+	public String getCategory() {
+		return category;
+	}
+
+	/**
+	 * Returns whether the given colour can be used with this prefix
+	 * The prefix's default colour and colours not loaded from config are always compatible
+	 *
+	 * @param colour - The colour
+	 * @return - Whether the colour is compatible
+	 */
+	public boolean isColourCompatible(@NotNull PrefixColour colour) {
+		return colourMask == null || colour.getOrdinal() < 0 || colour.equals(defaultColour)
+				|| colourMask.get(colour.getOrdinal());
+	}
+
+	/**
+	 * Removes colours which are incompatible with this prefix from the given set of colour ordinals
+	 *
+	 * @param colours - The colour ordinals to filter, modified in place
+	 * @return - The given set
+	 */
+	public BitSet filterColours(@NotNull BitSet colours) {
+		if (colourMask != null) {
+			colours.and(colourMask);
+		}
+
+		return colours;
+	}
+
+	/**
+	 * Gets the position of this prefix in the loaded config, or -1 if it was not loaded from config
+	 * Ordinals are only stable within a single registry generation
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		Prefix prefix1 = (Prefix) o;
+		return isUnlockable() == prefix1.isUnlockable() && isRetired() == prefix1.isRetired() && getId().equals(
+				prefix1.getId()) && getRawPrefix().equals(prefix1.getRawPrefix()) && Objects.equals(getPermission(),
+																							  prefix1.getPermission()) && Objects.equals(
+				getDescription(), prefix1.getDescription());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(getId(), getRawPrefix(), getPermission(), getDescription(), isUnlockable(), isRetired());
+	}
+
+	@Override
+	public String toString() {
+		return "Prefix{" +
+				"id='" + id + '\'' +
+				", prefix='" + prefix + '\'' +
+				", permission='" + permission + '\'' +
+				", description='" + description + '\'' +
+				", defaultColour='" + defaultColour + '\'' +
+				", unlockable=" + unlockable +
+				", retired=" + retired +
+				", category='" + category + '\'' +
+				'}';
+	}
+
+	public Component getListItem(String playerName, boolean bedrock) {
+		return getListItem(playerName, bedrock, null);
+	}
+
+	public Component getListItem(String playerName, boolean bedrock, @Nullable Locale locale) {
+		if(bedrock) {
+			return createComponent(locale, "prefix-list-bedrock.item", playerName, getDefaultColour(), true);
+		} else {
+			return createComponent(locale, "prefix-list.item", playerName, getDefaultColour(), false);
+		}
+	}
+
+	public Component getLockedListItem(String playerName, boolean bedrock) {
+		return getLockedListItem(playerName, bedrock, null);
+	}
+
+	public Component getLockedListItem(String playerName, boolean bedrock, @Nullable Locale locale) {
+		if(bedrock) {
+			return createComponent(locale, "prefix-list-bedrock.item-locked", playerName, getDefaultColour(), true);
+		} else {
+			return createComponent(locale, "prefix-list.item-locked", playerName, getDefaultColour(), false);
+		}
+	}
+
+	public Component getSelectedListItem(String playerName, PrefixColour colour, boolean bedrock) {
+		return getSelectedListItem(playerName, colour, bedrock, null);
+	}
+
+	public Component getSelectedListItem(String playerName, PrefixColour colour, boolean bedrock, @Nullable Locale locale) {
+		if(bedrock) {
+			return createComponent(locale, "prefix-list-bedrock.item-selected", playerName, colour, true);
+		} else {
+			return createComponent(locale, "prefix-list.item-selected", playerName, colour, false);
+		}
+	}
+
+	private Component createComponent(@Nullable Locale locale, String key, String playerName, PrefixColour colour, boolean bedrock) {
+		return Messages.getComponent(locale, key, Map.of(
+					"id", id,
+					"description", description != null ? description : ""
+			), Collections.singletonMap("preview", getRender(colour).withSuffix(playerName, bedrock)));
+	}
+}
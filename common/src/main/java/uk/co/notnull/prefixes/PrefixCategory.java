@@ -0,0 +1,220 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * A group of prefixes shown together in the category menu
+ * Member lists and a summary of member permissions are computed once when the config is loaded, so the menu can
+ * tell whether a category is locked, and a category page can be sliced, without checking every member.
+ */
+public class PrefixCategory {
+	private final String id;
+	private final String name;
+	private final String description;
+	private final String permission;
+
+	private final List<Prefix> members;
+	private final List<Prefix> listedMembers;
+	private final boolean allListed;
+	private final boolean hasOpenMember;
+	private final Set<String> memberPermissions;
+	private final boolean hasRetiredMember;
+
+	public PrefixCategory(String id, String name, String description, @Nullable String permission, List<Prefix> members) {
+		this.id = id;
+		this.name = name != null ? name : id;
+		this.description = description;
+		this.permission = permission;
+		this.members = List.copyOf(members);
+
+		List<Prefix> listedMembers = new ArrayList<>();
+		Set<String> memberPermissions = new LinkedHashSet<>();
+		boolean hasOpenMember = false;
+		boolean hasRetiredMember = false;
+
+		for (Prefix prefix : members) {
+			if (prefix.isRetired()) {
+				hasRetiredMember = true;
+				continue;
+			}
+
+			if (!prefix.hasPermission()) {
+				hasOpenMember = true;
+			} else {
+				memberPermissions.add(prefix.getPermission());
+			}
+
+			// Listed for every player, either as available or locked
+			if (!prefix.hasPermission() || prefix.isUnlockable()) {
+				listedMembers.add(prefix);
+			}
+		}
+
+		this.listedMembers = Collections.unmodifiableList(listedMembers);
+		this.allListed = listedMembers.size() == members.size();
+		this.hasOpenMember = hasOpenMember;
+		this.memberPermissions = Collections.unmodifiableSet(memberPermissions);
+		this.hasRetiredMember = hasRetiredMember;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public boolean hasPermission() {
+		return permission != null;
+	}
+
+	public String getPermission() {
+		return permission;
+	}
+
+	/**
+	 * Gets all prefixes in this category, in config order
+	 *
+	 * @return - The category's prefixes
+	 */
+	public List<Prefix> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Returns whether the given player can use none of the prefixes in this category
+	 * Uses the precomputed summary, so at most one check is made per distinct member permission
+	 *
+	 * @param permissions - Whether the player has a given permission
+	 * @return - Whether the category is locked
+	 */
+	public boolean isLocked(@NotNull Predicate<String> permissions) {
+		if (permission != null && !permissions.test(permission)) {
+			return true;
+		}
+
+		if (hasOpenMember) {
+			return false;
+		}
+
+		for (String memberPermission : memberPermissions) {
+			if (permissions.test(memberPermission)) {
+				return false;
+			}
+		}
+
+		if (hasRetiredMember && permissions.test("prefixes.use-retired")) {
+			return members.stream().noneMatch(prefix -> prefix.isRetired()
+					&& (!prefix.hasPermission() || permissions.test(prefix.getPermission())));
+		}
+
+		return true;
+	}
+
+	/**
+	 * Gets the prefixes in this category which should be listed for the given player
+	 * If every member is listed for every player the precomputed list is returned without any permission checks
+	 *
+	 * @param allowed - Whether the player is allowed to use a given prefix, including locked unlockable prefixes
+	 * @return - The listed prefixes, in config order
+	 */
+	public List<Prefix> getListedMembers(@NotNull Predicate<Prefix> allowed) {
+		if (allListed) {
+			return listedMembers;
+		}
+
+		return members.stream().filter(allowed).toList();
+	}
+
+	/**
+	 * Gets the number of prefixes listed for every player
+	 *
+	 * @return - The number of listed prefixes
+	 */
+	public int getListedCount() {
+		return listedMembers.size();
+	}
+
+	/**
+	 * Creates the menu item for this category
+	 *
+	 * @param bedrock - Whether the item is for a bedrock player
+	 * @param locale - The locale to use
+	 * @param count - The number of prefixes in this category listed for the player
+	 * @return - The menu item
+	 */
+	public Component getListItem(boolean bedrock, @Nullable Locale locale, int count) {
+		return createComponent(locale, bedrock ? "category-menu-bedrock.item" : "category-menu.item", count);
+	}
+
+	/**
+	 * Creates the locked menu item for this category
+	 *
+	 * @param bedrock - Whether the item is for a bedrock player
+	 * @param locale - The locale to use
+	 * @param count - The number of prefixes in this category listed for the player
+	 * @return - The menu item
+	 */
+	public Component getLockedListItem(boolean bedrock, @Nullable Locale locale, int count) {
+		return createComponent(locale, bedrock ? "category-menu-bedrock.item-locked" : "category-menu.item-locked", count);
+	}
+
+	private Component createComponent(@Nullable Locale locale, String key, int count) {
+		return Messages.getComponent(locale, key, Map.of(
+				"id", id,
+				"name", name,
+				"description", description != null ? description : "",
+				"count", String.valueOf(count)
+		), Collections.emptyMap());
+	}
+
+	@Override
+	public String toString() {
+		return "PrefixCategory{" +
+				"id='" + id + '\'' +
+				", name='" + name + '\'' +
+				", description='" + description + '\'' +
+				", permission='" + permission + '\'' +
+				", members=" + members.size() +
+				'}';
+	}
+}
@@ -25,9 +25,12 @@ package uk.co.notnull.prefixes;
 
 import net.kyori.adventure.text.Component;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.Predicate;
 
 public class PrefixColour {
 	private final String id;
@@ -37,13 +40,19 @@ public class PrefixColour {
 	private final String description;
 	private final boolean unlockable;
 	private final boolean retired;
+	private final int ordinal;
 
 	public PrefixColour(String id, String colour) {
-		this(id, colour, "", null, null, false, false);
+		this(id, colour, "", null, null, false, false, -1);
 	}
 
 	public PrefixColour(
 			String id, String colourStart, String colourEnd, String permission, String description, boolean unlockable, boolean retired) {
+		this(id, colourStart, colourEnd, permission, description, unlockable, retired, -1);
+	}
+
+	public PrefixColour(
+			String id, String colourStart, String colourEnd, String permission, String description, boolean unlockable, boolean retired, int ordinal) {
 		Objects.requireNonNull(id);
 		Objects.requireNonNull(colourStart);
 		Objects.requireNonNull(colourEnd);
@@ -55,6 +64,7 @@ public class PrefixColour {
 		this.description = description;
 		this.unlockable = unlockable;
 		this.retired = retired;
+		this.ordinal = ordinal;
 	}
 
 	public @NotNull String getId() {
@@ -89,6 +99,26 @@ public class PrefixColour {
 		return unlockable;
 	}
 
+	/**
+	 * Returns whether a player with the given permissions is allowed to use this colour
+	 *
+	 * @param permissions - Whether the player has a given permission
+	 * @param includeLocked - Whether to allow this colour if it is a locked unlockable colour
+	 * @return - Whether the colour is allowed
+	 */
+	public boolean isAllowed(@NotNull Predicate<String> permissions, boolean includeLocked) {
+		return (!retired || permissions.test("prefixes.use-retired"))
+				&& (permission == null || (includeLocked && unlockable) || permissions.test(permission));
+	}
+
+	/**
+	 * Gets the position of this colour in the loaded config, or -1 if it was not loaded from config
+	 * Ordinals are only stable within a single registry generation
+	 */
+	public int getOrdinal() {
+		return ordinal;
+	}
+
 	@Override
 	public boolean equals(Object o) {
 		if (this == o) return true;
@@ -121,34 +151,46 @@ public class PrefixColour {
 	}
 
 	public Component getListItem(Prefix prefix, boolean bedrock) {
+		return getListItem(prefix, bedrock, null);
+	}
+
+	public Component getListItem(Prefix prefix, boolean bedrock, @Nullable Locale locale) {
 		if(bedrock) {
-			return createComponent("colour-list-bedrock.item", prefix);
+			return createComponent(locale, "colour-list-bedrock.item", prefix, true);
 		} else {
-			return createComponent("colour-list.item", prefix);
+			return createComponent(locale, "colour-list.item", prefix, false);
 		}
 	}
 
 	public Component getLockedListItem(Prefix prefix, boolean bedrock) {
+		return getLockedListItem(prefix, bedrock, null);
+	}
+
+	public Component getLockedListItem(Prefix prefix, boolean bedrock, @Nullable Locale locale) {
 		if(bedrock) {
-			return createComponent("colour-list-bedrock.item-locked", prefix);
+			return createComponent(locale, "colour-list-bedrock.item-locked", prefix, true);
 		} else {
-			return createComponent("colour-list.item-locked", prefix);
+			return createComponent(locale, "colour-list.item-locked", prefix, false);
 		}
 	}
 
 	public Component getSelectedListItem(Prefix prefix, boolean bedrock) {
+		return getSelectedListItem(prefix, bedrock, null);
+	}
+
+	public Component getSelectedListItem(Prefix prefix, boolean bedrock, @Nullable Locale locale) {
 		if(bedrock) {
-			return createComponent("colour-list-bedrock.item-selected", prefix);
+			return createComponent(locale, "colour-list-bedrock.item-selected", prefix, true);
 		} else {
-			return createComponent("colour-list.item-selected", prefix);
+			return createComponent(locale, "colour-list.item-selected", prefix, false);
 		}
 	}
 
-	private Component createComponent(String key, Prefix prefix) {
-		return Messages.getComponent(key, Map.of(
+	private Component createComponent(@Nullable Locale locale, String key, Prefix prefix, boolean bedrock) {
+		return Messages.getComponent(locale, key, Map.of(
 					"id", id,
 					"prefix", prefix.getId(),
 					"description", description != null ? description : ""
-			), Map.of("preview", Messages.miniMessage.deserialize(prefix.getPrefix(this))));
+			), Map.of("preview", bedrock ? prefix.getBedrockPrefixComponent(this) : prefix.getPrefixComponent(this)));
 	}
 }
@@ -0,0 +1,162 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Plugin-owned executor for continuations of LuckPerms futures and other prefix work
+ * Keeps message rendering and sending off LuckPerms' own threads. Can either start a virtual thread per task, or use a
+ * bounded pool of platform threads which runs tasks on the submitting thread once its queue is full.
+ * Tasks submitted after shutdown also run on the submitting thread, as continuations of futures started before a
+ * reload replaced the executor may still arrive.
+ * Tracks the number of queued tasks and how long tasks wait before starting.
+ */
+public class PrefixExecutor implements Executor {
+	public enum Type {
+		VIRTUAL,
+		POOL
+	}
+
+	/**
+	 * @param type - The type of executor
+	 * @param threads - The number of threads in the pool, ignored for virtual threads
+	 * @param queueSize - The maximum number of queued tasks in the pool, ignored for virtual threads
+	 */
+	public record Settings(Type type, int threads, int queueSize) {
+		public Settings {
+			threads = Math.max(1, threads);
+			queueSize = Math.max(1, queueSize);
+		}
+	}
+
+	private final Settings settings;
+	private final ExecutorService delegate;
+
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder completed = new LongAdder();
+	private final LongAdder totalWaitNanos = new LongAdder();
+	private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0);
+
+	public PrefixExecutor(@NotNull Settings settings) {
+		this.settings = settings;
+
+		if (settings.type() == Type.VIRTUAL) {
+			delegate = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("Prefixes worker ", 0).factory());
+		} else {
+			AtomicInteger count = new AtomicInteger();
+			ThreadFactory factory = runnable -> {
+				Thread thread = new Thread(runnable, "Prefixes worker " + count.getAndIncrement());
+				thread.setDaemon(true);
+				return thread;
+			};
+
+			delegate = new ThreadPoolExecutor(settings.threads(), settings.threads(), 60, TimeUnit.SECONDS,
+											  new ArrayBlockingQueue<>(settings.queueSize()), factory,
+											  new ThreadPoolExecutor.CallerRunsPolicy());
+		}
+	}
+
+	public Settings getSettings() {
+		return settings;
+	}
+
+	@Override
+	public void execute(@NotNull Runnable command) {
+		long submitted = System.nanoTime();
+		queued.incrementAndGet();
+
+		Runnable task = () -> {
+			long wait = System.nanoTime() - submitted;
+
+			queued.decrementAndGet();
+			totalWaitNanos.add(wait);
+			maxWaitNanos.accumulate(wait);
+
+			try {
+				command.run();
+			} finally {
+				completed.increment();
+			}
+		};
+
+		try {
+			delegate.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.run();
+		}
+	}
+
+	/**
+	 * Stops starting new threads, already queued tasks will still run
+	 * Tasks submitted afterwards run on the submitting thread rather than being rejected.
+	 */
+	public void shutdown() {
+		delegate.shutdown();
+	}
+
+	/**
+	 * Gets the number of tasks which have been submitted but not yet started
+	 *
+	 * @return - The queue depth
+	 */
+	public int getQueued() {
+		return queued.get();
+	}
+
+	public long getCompletedCount() {
+		return completed.sum();
+	}
+
+	/**
+	 * Gets the average time tasks have spent queued before starting
+	 *
+	 * @return - The average wait in milliseconds
+	 */
+	public double getAverageWaitMillis() {
+		long count = completed.sum();
+		return count == 0 ? 0 : totalWaitNanos.sum() / (double) count / 1_000_000d;
+	}
+
+	/**
+	 * Gets the longest time a task has spent queued before starting
+	 *
+	 * @return - The maximum wait in milliseconds
+	 */
+	public double getMaxWaitMillis() {
+		return maxWaitNanos.get() / 1_000_000d;
+	}
+}
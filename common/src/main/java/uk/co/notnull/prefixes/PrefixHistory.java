@@ -0,0 +1,270 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed size ring buffer of a player's previous prefix selections
+ * Entries are held as packed prefix and colour ordinals of the registry they were recorded against, and are resolved
+ * by id against the current registry when read, so a history stays usable across reloads. Entries whose prefix or
+ * colour no longer exists are skipped.
+ */
+public final class PrefixHistory {
+	private final PrefixRegistry registry;
+	private final long[] entries;
+	private int head = 0;
+	private int size = 0;
+
+	/**
+	 * Creates an empty history
+	 *
+	 * @param registry - The registry entries are recorded against
+	 * @param capacity - The maximum number of entries, after which the oldest entry is replaced
+	 */
+	public PrefixHistory(@NotNull PrefixRegistry registry, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("capacity must be positive");
+		}
+
+		this.registry = registry;
+		this.entries = new long[capacity];
+	}
+
+	/**
+	 * Creates a copy of this history, which can be modified without affecting this one
+	 *
+	 * @return - The copy
+	 */
+	public synchronized PrefixHistory copy() {
+		PrefixHistory copy = new PrefixHistory(registry, entries.length);
+		System.arraycopy(entries, 0, copy.entries, 0, entries.length);
+		copy.head = head;
+		copy.size = size;
+
+		return copy;
+	}
+
+	/**
+	 * Adds the given selection as the newest entry
+	 * Ignored if the selection is the same as the newest entry, or its prefix doesn't exist in the registry
+	 *
+	 * @param selection - The selection to add
+	 */
+	public synchronized void push(@NotNull PrefixSelection selection) {
+		Prefix prefix = registry.getPrefix(selection.prefix().getId());
+
+		if (prefix == null) {
+			return;
+		}
+
+		PrefixColour colour = registry.getColour(selection.colour().getId());
+		long entry = pack(prefix.getOrdinal(), colour != null ? colour.getOrdinal() : -1);
+
+		if (size > 0 && entries[index(size - 1)] == entry) {
+			return;
+		}
+
+		entries[head] = entry;
+		head = (head + 1) % entries.length;
+		size = Math.min(size + 1, entries.length);
+	}
+
+	/**
+	 * Gets the newest entry which exists in the given registry, without removing it
+	 *
+	 * @param current - The registry to resolve the entry against
+	 * @return - The newest entry, or null if there are none
+	 */
+	public synchronized @Nullable PrefixSelection peek(@NotNull PrefixRegistry current) {
+		for (int i = size - 1; i >= 0; i--) {
+			PrefixSelection selection = resolve(entries[index(i)], current);
+
+			if (selection != null) {
+				return selection;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Removes and returns the newest entry which exists in the given registry
+	 * Any newer entries which no longer exist are also removed.
+	 *
+	 * @param current - The registry to resolve the entry against
+	 * @return - The removed entry, or null if there are none
+	 */
+	public synchronized @Nullable PrefixSelection pop(@NotNull PrefixRegistry current) {
+		while (size > 0) {
+			head = (head - 1 + entries.length) % entries.length;
+			size--;
+
+			PrefixSelection selection = resolve(entries[head], current);
+
+			if (selection != null) {
+				return selection;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets all entries which exist in the given registry
+	 *
+	 * @param current - The registry to resolve entries against
+	 * @return - The entries, newest first
+	 */
+	public synchronized List<PrefixSelection> getEntries(@NotNull PrefixRegistry current) {
+		List<PrefixSelection> result = new ArrayList<>(size);
+
+		for (int i = size - 1; i >= 0; i--) {
+			PrefixSelection selection = resolve(entries[index(i)], current);
+
+			if (selection != null) {
+				result.add(selection);
+			}
+		}
+
+		return result;
+	}
+
+	public synchronized boolean isEmpty() {
+		return size == 0;
+	}
+
+	public int getCapacity() {
+		return entries.length;
+	}
+
+	/**
+	 * Encodes this history for storage, as comma separated prefix:colour id pairs, oldest first
+	 * Ids are stored rather than ordinals, as ordinals change when prefixes are added or removed.
+	 *
+	 * @return - The encoded history
+	 */
+	public synchronized String encode() {
+		StringBuilder builder = new StringBuilder();
+
+		for (int i = 0; i < size; i++) {
+			long entry = entries[index(i)];
+
+			if (i > 0) {
+				builder.append(',');
+			}
+
+			builder.append(registry.getPrefix(prefixOrdinal(entry)).getId()).append(':')
+					.append(colourOrdinal(entry) >= 0
+									? registry.getColour(colourOrdinal(entry)).getId()
+									: PrefixRegistry.FALLBACK_COLOUR.getId());
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Decodes a history created by {@link #encode()}
+	 * Entries for prefixes which no longer exist are dropped, and only the newest entries are kept if there are
+	 * more than the capacity.
+	 *
+	 * @param value - The encoded history, or null for an empty history
+	 * @param registry - The registry to record entries against
+	 * @param capacity - The maximum number of entries
+	 * @return - The history
+	 */
+	public static PrefixHistory decode(@Nullable String value, @NotNull PrefixRegistry registry, int capacity) {
+		PrefixHistory history = new PrefixHistory(registry, capacity);
+
+		if (value == null || value.isEmpty()) {
+			return history;
+		}
+
+		for (String pair : value.split(",")) {
+			int separator = pair.indexOf(':');
+
+			if (separator < 0) {
+				continue;
+			}
+
+			Prefix prefix = registry.getPrefix(pair.substring(0, separator));
+			PrefixColour colour = registry.getColour(pair.substring(separator + 1));
+
+			if (prefix != null) {
+				history.push(new PrefixSelection(prefix, colour != null ? colour : PrefixRegistry.FALLBACK_COLOUR));
+			}
+		}
+
+		return history;
+	}
+
+	/**
+	 * Resolves a packed entry recorded against this history's registry to the equivalent selection in the given one
+	 *
+	 * @param entry - The packed entry
+	 * @param current - The registry to resolve against
+	 * @return - The selection, or null if its prefix no longer exists
+	 */
+	private @Nullable PrefixSelection resolve(long entry, PrefixRegistry current) {
+		Prefix prefix = registry.getPrefix(prefixOrdinal(entry));
+		int colourOrdinal = colourOrdinal(entry);
+		PrefixColour colour = colourOrdinal >= 0 ? registry.getColour(colourOrdinal) : null;
+
+		if (current != registry) {
+			prefix = current.getPrefix(prefix.getId());
+			colour = colour != null ? current.getColour(colour.getId()) : null;
+		}
+
+		if (prefix == null) {
+			return null;
+		}
+
+		return new PrefixSelection(prefix, colour != null ? colour : prefix.getDefaultColour());
+	}
+
+	/**
+	 * Converts a position from the oldest entry to an index in the entries array
+	 *
+	 * @param position - The position, 0 being the oldest entry
+	 * @return - The array index
+	 */
+	private int index(int position) {
+		return (head - size + position + entries.length) % entries.length;
+	}
+
+	private static long pack(int prefixOrdinal, int colourOrdinal) {
+		return ((long) prefixOrdinal << 32) | (colourOrdinal & 0xffffffffL);
+	}
+
+	private static int prefixOrdinal(long entry) {
+		return (int) (entry >>> 32);
+	}
+
+	private static int colourOrdinal(long entry) {
+		return (int) entry;
+	}
+}
@@ -0,0 +1,325 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Paginated prefix, category and colour lists sent by the list commands
+ * Only the requested page is rendered, from the cached list items of each prefix, colour and category. Lists are
+ * built for a {@link Viewer}, which holds everything the platform knows about the player the list is for.
+ */
+public final class PrefixMenus {
+	public static final int ITEMS_PER_PAGE = 5;
+
+	/**
+	 * The player a list is sent to
+	 *
+	 * @param audience - The audience to send the list to
+	 * @param name - The player's name, used in list item commands
+	 * @param bedrock - Whether the player is a Bedrock player
+	 * @param permissions - Whether the player has a given permission
+	 * @param currentPrefix - The player's global prefix, if any
+	 * @param currentColour - The colour of the player's global prefix, if any
+	 */
+	public record Viewer(@NotNull Audience audience, @NotNull String name, boolean bedrock,
+						 @NotNull Predicate<String> permissions, @Nullable Prefix currentPrefix,
+						 @Nullable PrefixColour currentColour) {
+	}
+
+	private PrefixMenus() {
+	}
+
+	/**
+	 * Sends the given prefixes as the prefix list, with the viewer's current prefix at the top
+	 *
+	 * @param viewer - The viewer
+	 * @param prefixes - The prefixes listed for the viewer, in registry order
+	 * @param page - The page of the list to send
+	 */
+	public static void sendPrefixList(@NotNull Viewer viewer, @NotNull List<Prefix> prefixes, int page) {
+		Prefix currentPrefix = viewer.currentPrefix();
+		List<Prefix> list = new ArrayList<>(prefixes.size() + 1);
+
+		//Add player's currently selected prefix to top of list
+		if(currentPrefix != null) {
+			list.add(currentPrefix);
+		}
+
+		for (Prefix prefix : prefixes) {
+			if (!prefix.equals(currentPrefix)) {
+				list.add(prefix);
+			}
+		}
+
+		if (list.isEmpty() && page == 1) {
+			Messages.sendComponent(viewer.audience(), "errors.no-prefixes");
+			return;
+		}
+
+		sendPrefixPage(viewer, list, page, "prefix-list", Collections.emptyMap());
+	}
+
+	/**
+	 * Renders and sends a page of the given prefix list
+	 * Header and pagination messages are read from the given message section, list items are shared by all lists
+	 *
+	 * @param viewer - The viewer
+	 * @param prefixes - The prefixes in the list
+	 * @param page - The page of the list to send
+	 * @param messageSection - The message section containing the header and pagination messages
+	 * @param replacements - Additional replacements for the header and pagination messages
+	 */
+	public static void sendPrefixPage(@NotNull Viewer viewer, @NotNull List<Prefix> prefixes, int page,
+									  @NotNull String messageSection, @NotNull Map<String, String> replacements) {
+		Audience audience = viewer.audience();
+		boolean bedrock = viewer.bedrock();
+		Locale locale = Messages.getLocale(audience);
+		int start = (page - 1) * ITEMS_PER_PAGE;
+		int pages = (int) Math.ceil((float) prefixes.size() / ITEMS_PER_PAGE);
+
+		if (page > pages) {
+			Messages.sendComponent(audience, "errors.no-page",
+								   Collections.singletonMap("page", String.valueOf(page)),
+								   Collections.emptyMap());
+			return;
+		}
+
+		Map<String, String> headerReplacements = new HashMap<>(replacements);
+		headerReplacements.put("page", String.valueOf(page));
+		headerReplacements.put("pages", String.valueOf(pages));
+
+		Component list = Messages.getComponent(locale, messageSection + ".header", headerReplacements, Collections.emptyMap())
+				.append(Component.newline());
+		Component pagination = Component.empty();
+
+		if (page > 1 && !bedrock) {
+			Map<String, String> prevReplacements = new HashMap<>(replacements);
+			prevReplacements.put("page", String.valueOf(page - 1));
+
+			pagination = pagination.append(
+					Messages.getComponent(locale, messageSection + ".prev", prevReplacements, Collections.emptyMap()));
+		}
+
+		if (pages > page) {
+			Map<String, String> nextReplacements = new HashMap<>(replacements);
+			nextReplacements.put("page", String.valueOf(page + 1));
+
+			pagination = pagination.append(Component.space())
+					.append(Messages.getComponent(locale, bedrock ? messageSection + "-bedrock.next" : messageSection + ".next",
+												  nextReplacements, Collections.emptyMap()));
+		}
+
+		// Only the visible page is rendered, list items are built lazily from the cached prefix components
+		for (Prefix prefix : prefixes.subList(start, Math.min(start + ITEMS_PER_PAGE, prefixes.size()))) {
+			if (prefix.hasPermission() && !viewer.permissions().test(prefix.getPermission())) {
+				list = list.append(prefix.getLockedListItem(viewer.name(), bedrock, locale)).append(Component.newline());
+			} else if (prefix.equals(viewer.currentPrefix())) {
+				PrefixColour colour = viewer.currentColour() != null ? viewer.currentColour() : prefix.getDefaultColour();
+				list = list.append(prefix.getSelectedListItem(viewer.name(), colour, bedrock, locale))
+						.append(Component.newline());
+			} else {
+				list = list.append(prefix.getListItem(viewer.name(), bedrock, locale)).append(Component.newline());
+			}
+		}
+
+		audience.sendMessage(list.append(pagination));
+	}
+
+	/**
+	 * Sends the category menu
+	 * Locked categories are listed after unlocked ones, and each category shows the number of its prefixes listed for
+	 * the viewer
+	 *
+	 * @param viewer - The viewer
+	 * @param categories - The categories, in config order
+	 * @param allowed - Whether a prefix is listed for the viewer, including locked unlockable prefixes
+	 * @param page - The page of the menu to send
+	 */
+	public static void sendCategoryMenu(@NotNull Viewer viewer, @NotNull Collection<PrefixCategory> categories,
+										@NotNull Predicate<Prefix> allowed, int page) {
+		List<PrefixCategory> unlocked = new ArrayList<>();
+		List<PrefixCategory> locked = new ArrayList<>();
+
+		for (PrefixCategory category : categories) {
+			(category.isLocked(viewer.permissions()) ? locked : unlocked).add(category);
+		}
+
+		Audience audience = viewer.audience();
+		boolean bedrock = viewer.bedrock();
+		Locale locale = Messages.getLocale(audience);
+		int start = (page - 1) * ITEMS_PER_PAGE;
+		int total = unlocked.size() + locked.size();
+		int pages = (int) Math.ceil((float) total / ITEMS_PER_PAGE);
+
+		if (total == 0 && page == 1) {
+			Messages.sendComponent(audience, "errors.no-prefixes");
+			return;
+		}
+
+		if (page > pages) {
+			Messages.sendComponent(audience, "errors.no-page",
+								   Collections.singletonMap("page", String.valueOf(page)),
+								   Collections.emptyMap());
+			return;
+		}
+
+		Component list = Messages.getComponent(locale, "category-menu.header", Map.of(
+						"page", String.valueOf(page),
+						"pages", String.valueOf(pages)
+				), Collections.emptyMap())
+				.append(Component.newline());
+		Component pagination = Component.empty();
+
+		if (page > 1 && !bedrock) {
+			pagination = pagination.append(
+					Messages.getComponent(locale, "category-menu.prev",
+										  Collections.singletonMap("page", String.valueOf(page - 1)),
+										  Collections.emptyMap()));
+		}
+
+		if (pages > page) {
+			pagination = pagination.append(Component.space())
+					.append(Messages.getComponent(locale, bedrock ? "category-menu-bedrock.next" : "category-menu.next",
+												  Collections.singletonMap("page", String.valueOf(page + 1)),
+												  Collections.emptyMap()));
+		}
+
+		for (int i = start; i < Math.min(start + ITEMS_PER_PAGE, total); i++) {
+			if (i < unlocked.size()) {
+				PrefixCategory category = unlocked.get(i);
+				int count = category.getListedMembers(allowed).size();
+				list = list.append(category.getListItem(bedrock, locale, count)).append(Component.newline());
+			} else {
+				PrefixCategory category = locked.get(i - unlocked.size());
+				int count = category.getListedMembers(allowed).size();
+				list = list.append(category.getLockedListItem(bedrock, locale, count)).append(Component.newline());
+			}
+		}
+
+		list = list.append(Messages.getComponent(locale, bedrock ? "category-menu-bedrock.all" : "category-menu.all"))
+				.append(Component.newline());
+
+		audience.sendMessage(list.append(pagination));
+	}
+
+	/**
+	 * Sends the colours which can be used with the given prefix
+	 * The viewer's current colour is listed first, followed by the prefix's default colour
+	 *
+	 * @param viewer - The viewer
+	 * @param prefix - The prefix to use in colour previews
+	 * @param colours - The colours listed for the viewer with the prefix, in registry order
+	 * @param page - The page of the list to send
+	 */
+	public static void sendColourList(@NotNull Viewer viewer, @NotNull Prefix prefix,
+									  @NotNull List<PrefixColour> colours, int page) {
+		PrefixColour currentColour = viewer.currentColour();
+		List<PrefixColour> list = new ArrayList<>(colours.size() + 2);
+
+		//Add player's currently selected colour to top of list
+		if(currentColour != null && !currentColour.equals(prefix.getDefaultColour())
+				&& prefix.isColourCompatible(currentColour)) {
+			list.add(currentColour);
+		}
+
+		//Add prefix's default colour next
+		if(!prefix.getDefaultColour().equals(PrefixRegistry.FALLBACK_COLOUR)) {
+			list.add(prefix.getDefaultColour());
+		}
+
+		for (PrefixColour colour : colours) {
+			if (!colour.equals(prefix.getDefaultColour()) && !colour.equals(currentColour)) {
+				list.add(colour);
+			}
+		}
+
+		Audience audience = viewer.audience();
+		boolean bedrock = viewer.bedrock();
+		Locale locale = Messages.getLocale(audience);
+		int start = (page - 1) * ITEMS_PER_PAGE;
+		int pages = (int) Math.ceil((float) list.size() / ITEMS_PER_PAGE);
+
+		if (page > pages) {
+			if (page == 1) {
+				Messages.sendComponent(audience, "errors.no-colours");
+			} else {
+				Messages.sendComponent(audience, "errors.no-page",
+									   Collections.singletonMap("page", String.valueOf(page)),
+									   Collections.emptyMap());
+			}
+
+			return;
+		}
+
+		Component component = Messages.getComponent(locale, "colour-list.header", Map.of(
+						"page", String.valueOf(page),
+						"pages", String.valueOf(pages)
+				), Collections.emptyMap())
+				.append(Component.newline());
+		Component pagination = Component.empty();
+
+		if (page > 1 && !bedrock) {
+			pagination = pagination.append(
+					Messages.getComponent(locale, "colour-list.prev",
+										  Map.of(
+												  "page", String.valueOf(page - 1),
+												  "prefix", prefix.getId()),
+										  Collections.emptyMap()));
+		}
+
+		if (pages > page) {
+			pagination = pagination.append(Component.space())
+					.append(Messages.getComponent(locale, bedrock ? "colour-list-bedrock.next" : "colour-list.next",
+												  Map.of(
+														  "page", String.valueOf(page + 1),
+														  "prefix", prefix.getId()),
+												  Collections.emptyMap()));
+		}
+
+		for (PrefixColour colour : list.subList(start, Math.min(start + ITEMS_PER_PAGE, list.size()))) {
+			if (colour.hasPermission() && !viewer.permissions().test(colour.getPermission())) {
+				component = component.append(colour.getLockedListItem(prefix, bedrock, locale)).append(Component.newline());
+			} else if (colour.equals(currentColour)) {
+				component = component.append(colour.getSelectedListItem(prefix, bedrock, locale))
+						.append(Component.newline());
+			} else {
+				component = component.append(colour.getListItem(prefix, bedrock, locale)).append(Component.newline());
+			}
+		}
+
+		audience.sendMessage(component.append(pagination));
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable set of loaded prefixes, colours and categories, along with the indexes built from them
+ * A new registry is built each time the config is loaded and replaces the previous one as a whole, so readers always
+ * see a consistent set without any locking. Contains no platform types, so it can be shared by every adapter.
+ */
+public final class PrefixRegistry {
+	public static final PrefixColour FALLBACK_COLOUR = new PrefixColour("fallback", "<white>");
+
+	private final Map<String, Prefix> prefixes;
+	private final List<Prefix> prefixesByOrdinal;
+	private final Map<String, PrefixColour> colours;
+	private final List<PrefixColour> coloursByOrdinal;
+	private final List<Prefix> unlockablePrefixes;
+	private final List<PrefixColour> unlockableColours;
+	private final Map<String, PrefixCategory> categories;
+	private final IdIndex<Prefix> prefixIndex;
+	private final IdIndex<PrefixColour> colourIndex;
+	private final SearchIndex searchIndex;
+	private final BKTree<Prefix> prefixTree;
+	private final BKTree<PrefixColour> colourTree;
+	private final int generation;
+
+	private PrefixRegistry(Map<String, Prefix> prefixes, Map<String, PrefixColour> colours,
+						   Map<String, PrefixCategory> categories, int generation) {
+		this.prefixes = Collections.unmodifiableMap(prefixes);
+		this.prefixesByOrdinal = List.copyOf(prefixes.values());
+		this.colours = Collections.unmodifiableMap(colours);
+		this.coloursByOrdinal = List.copyOf(colours.values());
+		this.unlockablePrefixes = prefixesByOrdinal.stream()
+				.filter(prefix -> prefix.isUnlockable() && prefix.hasPermission() && !prefix.isRetired())
+				.toList();
+		this.unlockableColours = coloursByOrdinal.stream()
+				.filter(colour -> colour.isUnlockable() && colour.hasPermission() && !colour.isRetired())
+				.toList();
+		this.categories = Collections.unmodifiableMap(categories);
+		this.prefixIndex = new IdIndex<>(prefixes);
+		this.colourIndex = new IdIndex<>(colours);
+		this.searchIndex = new SearchIndex(prefixes.values());
+		this.prefixTree = new BKTree<>(prefixes);
+		this.colourTree = new BKTree<>(colours);
+		this.generation = generation;
+	}
+
+	/**
+	 * Creates a registry with no prefixes, colours or categories, for use before the config has been loaded
+	 *
+	 * @return - The empty registry
+	 */
+	public static PrefixRegistry empty() {
+		return new PrefixRegistry(new LinkedHashMap<>(), new LinkedHashMap<>(), new LinkedHashMap<>(), 0);
+	}
+
+	/**
+	 * Builds a registry from the given config shards
+	 * Shards are applied in order, with the first definition of a prefix or colour taking precedence over any later
+	 * duplicates.
+	 *
+	 * @param shards - The shards to load, main config first
+	 * @param categoryConfig - The categories config section
+	 * @param truncation - The policy for shortening prefixes shown to Bedrock players, or null to show them in full
+	 * @param generation - The generation of the new registry
+	 * @param logger - The logger to report invalid definitions to
+	 * @return - The registry
+	 */
+	public static PrefixRegistry load(@NotNull List<ConfigShard> shards, @NotNull ConfigurationNode categoryConfig,
+									  @Nullable PrefixRender.Truncation truncation, int generation,
+									  @NotNull Logger logger) {
+		LinkedHashMap<String, Prefix> prefixes = new LinkedHashMap<>();
+		LinkedHashMap<String, PrefixColour> colours = new LinkedHashMap<>();
+		LinkedHashMap<String, PrefixCategory> categories = new LinkedHashMap<>();
+
+		for (ConfigShard shard : shards) {
+			for (ConfigShard.ColourDefinition definition : shard.colours()) {
+				if (colours.containsKey(definition.id())) {
+					logger.warn("Ignoring duplicate colour " + definition.id() + " in " + shard.name());
+					continue;
+				}
+
+				colours.put(definition.id(), new PrefixColour(
+						definition.id(), definition.start(), definition.end(), definition.permission(),
+						definition.description(), definition.unlockable(), definition.retired(), colours.size()));
+			}
+		}
+
+		for (ConfigShard shard : shards) {
+			for (ConfigShard.PrefixDefinition definition : shard.prefixes()) {
+				String id = definition.id();
+				String defaultColour = definition.defaultColour();
+
+				if (prefixes.containsKey(id)) {
+					logger.warn("Ignoring duplicate prefix " + id + " in " + shard.name());
+					continue;
+				}
+
+				if(defaultColour == null) {
+					logger.warn("Prefix " + id + " has no default colour");
+				} else if (!colours.containsKey(defaultColour)) {
+					logger.warn("Default colour " + defaultColour + " for prefix " + id + " does not exist");
+				}
+
+				PrefixColour colour = colours.getOrDefault(defaultColour, FALLBACK_COLOUR);
+				BitSet colourMask = compileColourMask(definition, colours, colour, logger);
+
+				prefixes.put(id, new Prefix(id, definition.prefix(), definition.permission(),
+											definition.description(), colour, definition.unlockable(),
+											definition.retired(), definition.category(), colourMask,
+											prefixes.size(), truncation, definition.frames()));
+			}
+		}
+
+		loadCategories(categoryConfig, prefixes, categories, logger);
+
+		// Render every selectable combination up front, so widths are known and lists don't parse prefixes on demand
+		for (Prefix prefix : prefixes.values()) {
+			prefix.getRender(prefix.getDefaultColour());
+			prefix.getFrames(prefix.getDefaultColour());
+
+			for (PrefixColour colour : colours.values()) {
+				if (prefix.isColourCompatible(colour)) {
+					prefix.getRender(colour);
+					prefix.getFrames(colour);
+				}
+			}
+		}
+
+		return new PrefixRegistry(prefixes, colours, categories, generation);
+	}
+
+	/**
+	 * Compiles the allowed-colours and denied-colours options of a prefix into a set of colour ordinals
+	 * If allowed-colours is missing all colours are allowed before denied-colours is applied.
+	 * The prefix's default colour is always allowed.
+	 *
+	 * @param definition - The prefix definition
+	 * @param colours - The loaded colours
+	 * @param defaultColour - The prefix's default colour
+	 * @param logger - The logger to report unknown colours to
+	 * @return - The compatible colour ordinals, or null if all colours are compatible
+	 */
+	private static @Nullable BitSet compileColourMask(ConfigShard.PrefixDefinition definition,
+													  Map<String, PrefixColour> colours, PrefixColour defaultColour,
+													  Logger logger) {
+		String id = definition.id();
+		List<String> allowed = definition.allowedColours();
+		List<String> denied = definition.deniedColours();
+
+		if (allowed == null && denied == null) {
+			return null;
+		}
+
+		BitSet mask = new BitSet(colours.size());
+
+		if (allowed == null) {
+			mask.set(0, colours.size());
+		} else {
+			for (String colourId : allowed) {
+				PrefixColour colour = colours.get(colourId);
+
+				if (colour == null) {
+					logger.warn("Allowed colour " + colourId + " for prefix " + id + " does not exist");
+				} else {
+					mask.set(colour.getOrdinal());
+				}
+			}
+		}
+
+		for (String colourId : denied != null ? denied : List.<String>of()) {
+			PrefixColour colour = colours.get(colourId);
+
+			if (colour == null) {
+				logger.warn("Denied colour " + colourId + " for prefix " + id + " does not exist");
+			} else if (colour.equals(defaultColour)) {
+				logger.warn("Ignoring denied colour " + colourId + " for prefix " + id + " as it is the default colour");
+			} else {
+				mask.clear(colour.getOrdinal());
+			}
+		}
+
+		if (defaultColour.getOrdinal() >= 0) {
+			mask.set(defaultColour.getOrdinal());
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Groups the loaded prefixes into categories
+	 * Categories are only created if at least one prefix has a category, uncategorised prefixes are then placed in an
+	 * "other" category at the end of the menu
+	 *
+	 * @param categoryConfig - The categories config section
+	 * @param prefixes - The loaded prefixes
+	 * @param categories - The map to add the categories to
+	 * @param logger - The logger to report empty categories to
+	 */
+	private static void loadCategories(ConfigurationNode categoryConfig, Map<String, Prefix> prefixes,
+									   Map<String, PrefixCategory> categories, Logger logger) {
+		Map<String, List<Prefix>> members = new LinkedHashMap<>();
+		List<Prefix> uncategorised = new ArrayList<>();
+
+		categoryConfig.childrenMap().keySet().forEach(id -> members.put(id.toString(), new ArrayList<>()));
+
+		for (Prefix prefix : prefixes.values()) {
+			if (prefix.getCategory() == null) {
+				uncategorised.add(prefix);
+			} else {
+				members.computeIfAbsent(prefix.getCategory(), key -> new ArrayList<>()).add(prefix);
+			}
+		}
+
+		if (members.values().stream().allMatch(List::isEmpty)) {
+			return;
+		}
+
+		if (!uncategorised.isEmpty()) {
+			members.computeIfAbsent("other", key -> new ArrayList<>()).addAll(uncategorised);
+		}
+
+		members.forEach((id, categoryMembers) -> {
+			ConfigurationNode child = categoryConfig.node(id);
+
+			if (categoryConfig.childrenMap().containsKey(id) && categoryMembers.isEmpty()) {
+				logger.warn("Ignoring category " + id + " as it has no prefixes");
+				return;
+			}
+
+			categories.put(id, new PrefixCategory(id, child.node("name").getString(),
+												  child.node("description").getString(),
+												  child.node("permission").getString(), categoryMembers));
+		});
+	}
+
+	/**
+	 * Checks whether the given selection is still valid in this registry
+	 *
+	 * @param selection - The selection to check
+	 * @return - PREFIX_REMOVED or COLOUR_REMOVED if the selection can no longer be used, PREFIX_UPDATED if its
+	 * rendered prefix has changed, otherwise NO_CHANGE
+	 */
+	public PrefixCheckResult check(@NotNull PrefixSelection selection) {
+		Prefix prefix = prefixes.get(selection.prefix().getId());
+
+		if (prefix == null) {
+			return PrefixCheckResult.PREFIX_REMOVED;
+		}
+
+		PrefixColour colour = colours.get(selection.colour().getId());
+
+		if (colour == null || !prefix.isColourCompatible(colour)) {
+			return PrefixCheckResult.COLOUR_REMOVED;
+		}
+
+		if (!prefix.getPrefix(colour).equals(selection.render())) {
+			return PrefixCheckResult.PREFIX_UPDATED;
+		}
+
+		return PrefixCheckResult.NO_CHANGE;
+	}
+
+	/**
+	 * Resolves stored prefix and colour ids to a selection in this registry
+	 * A colour which no longer exists, isn't compatible with the prefix or is missing is replaced with the prefix's
+	 * default colour.
+	 *
+	 * @param prefixId - The stored prefix id
+	 * @param colourId - The stored colour id
+	 * @return - The selection, or null if the prefix no longer exists
+	 */
+	public @Nullable PrefixSelection resolve(@Nullable String prefixId, @Nullable String colourId) {
+		Prefix prefix = prefixId != null ? prefixes.get(prefixId) : null;
+
+		if (prefix == null) {
+			return null;
+		}
+
+		PrefixColour colour = colourId != null ? colours.get(colourId) : null;
+
+		if (colour == null || !prefix.isColourCompatible(colour)) {
+			colour = prefix.getDefaultColour();
+		}
+
+		return new PrefixSelection(prefix, colour);
+	}
+
+	public @Nullable Prefix getPrefix(String id) {
+		return prefixes.get(id);
+	}
+
+	/**
+	 * Gets the prefix with the given ordinal
+	 *
+	 * @param ordinal - The ordinal
+	 * @return - The prefix
+	 * @throws IndexOutOfBoundsException - If no prefix has the given ordinal in this registry
+	 */
+	public Prefix getPrefix(int ordinal) {
+		return prefixesByOrdinal.get(ordinal);
+	}
+
+	public @Nullable PrefixColour getColour(String id) {
+		return colours.get(id);
+	}
+
+	/**
+	 * Gets the colour with the given ordinal
+	 *
+	 * @param ordinal - The ordinal
+	 * @return - The colour
+	 * @throws IndexOutOfBoundsException - If no colour has the given ordinal in this registry
+	 */
+	public PrefixColour getColour(int ordinal) {
+		return coloursByOrdinal.get(ordinal);
+	}
+
+	public @Nullable PrefixCategory getCategory(String id) {
+		return categories.get(id);
+	}
+
+	/**
+	 * Gets all prefixes, in config order
+	 *
+	 * @return - The prefixes
+	 */
+	public List<Prefix> getPrefixes() {
+		return prefixesByOrdinal;
+	}
+
+	/**
+	 * Gets all colours, in ordinal order
+	 *
+	 * @return - The colours
+	 */
+	public List<PrefixColour> getColours() {
+		return coloursByOrdinal;
+	}
+
+	/**
+	 * Gets the prefixes which are shown as locked until a player is given their permission
+	 * Retired prefixes are excluded, as they can no longer be unlocked
+	 *
+	 * @return - The unlockable prefixes, in ordinal order
+	 */
+	public List<Prefix> getUnlockablePrefixes() {
+		return unlockablePrefixes;
+	}
+
+	/**
+	 * Gets the colours which are shown as locked until a player is given their permission
+	 * Retired colours are excluded, as they can no longer be unlocked
+	 *
+	 * @return - The unlockable colours, in ordinal order
+	 */
+	public List<PrefixColour> getUnlockableColours() {
+		return unlockableColours;
+	}
+
+	/**
+	 * Gets all categories, in menu order
+	 *
+	 * @return - The categories, empty if no prefixes have a category
+	 */
+	public Collection<PrefixCategory> getCategories() {
+		return categories.values();
+	}
+
+	public IdIndex<Prefix> getPrefixIndex() {
+		return prefixIndex;
+	}
+
+	public IdIndex<PrefixColour> getColourIndex() {
+		return colourIndex;
+	}
+
+	public SearchIndex getSearchIndex() {
+		return searchIndex;
+	}
+
+	public BKTree<Prefix> getPrefixTree() {
+		return prefixTree;
+	}
+
+	public BKTree<PrefixColour> getColourTree() {
+		return colourTree;
+	}
+
+	/**
+	 * Gets the generation of this registry, which is incremented each time the config is loaded
+	 * Prefix and colour ordinals are only comparable within a single generation
+	 *
+	 * @return - The generation
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+}
@@ -0,0 +1,304 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.flattener.ComponentFlattener;
+import net.kyori.adventure.text.flattener.FlattenerListener;
+import net.kyori.adventure.text.format.Style;
+import net.kyori.adventure.text.format.TextDecoration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.spongepowered.configurate.ConfigurationNode;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A prefix rendered with a colour, along with display metrics computed once when it is created
+ * Widths are estimated from the advance widths of the default Minecraft font, so consumers can check how much space a
+ * prefix will take up without parsing and measuring it again. If a truncation policy is given a shortened variant is
+ * also created for Bedrock players, whose chat and nametags wrap long prefixes badly.
+ */
+public final class PrefixRender {
+	/**
+	 * Policy for shortening prefixes shown to Bedrock players
+	 *
+	 * @param maxWidth - The maximum estimated width in pixels, including the ellipsis
+	 * @param ellipsis - The text appended to shortened prefixes
+	 */
+	public record Truncation(int maxWidth, @NotNull String ellipsis) {
+		/**
+		 * Reads a truncation policy from the given config section
+		 *
+		 * @param config - The bedrock-truncation config section
+		 * @return - The policy, or null if truncation is disabled
+		 */
+		public static @Nullable Truncation fromConfig(@NotNull ConfigurationNode config) {
+			if (!config.node("enabled").getBoolean(false)) {
+				return null;
+			}
+
+			return new Truncation(Math.max(config.node("max-width").getInt(80), 1),
+								  config.node("ellipsis").getString("\u2026"));
+		}
+	}
+
+	private record Segment(String text, Style style) {
+	}
+
+	// Appended when parsing to find the style text following the prefix would have, as player names do in previews
+	private static final String SENTINEL = "\uE000";
+
+	private final String miniMessage;
+	private final Component component;
+	private final Component bedrockComponent;
+	private final Style trailingStyle;
+	private final String plainText;
+	private final int length;
+	private final int width;
+	private final boolean truncated;
+
+	private PrefixRender(String miniMessage, Component component, Component bedrockComponent, Style trailingStyle,
+						 String plainText, int width, boolean truncated) {
+		this.miniMessage = miniMessage;
+		this.component = component;
+		this.bedrockComponent = bedrockComponent;
+		this.trailingStyle = trailingStyle;
+		this.plainText = plainText;
+		this.length = plainText.codePointCount(0, plainText.length());
+		this.width = width;
+		this.truncated = truncated;
+	}
+
+	/**
+	 * Renders and measures the given MiniMessage prefix
+	 *
+	 * @param miniMessage - The prefix, with the colour already applied
+	 * @param truncation - The policy for the Bedrock variant, or null to use the full prefix for Bedrock players
+	 * @return - The render
+	 */
+	public static PrefixRender create(@NotNull String miniMessage, @Nullable Truncation truncation) {
+		Component component = Messages.miniMessage.deserialize(miniMessage);
+		List<Segment> segments = flatten(Messages.miniMessage.deserialize(miniMessage + SENTINEL));
+		Style trailingStyle = Style.empty();
+
+		// Remove the sentinel, which always ends the last segment
+		if (!segments.isEmpty()) {
+			Segment last = segments.remove(segments.size() - 1);
+			String text = last.text().substring(0, last.text().length() - SENTINEL.length());
+			trailingStyle = last.style();
+
+			if (!text.isEmpty()) {
+				segments.add(new Segment(text, last.style()));
+			}
+		}
+
+		StringBuilder plainText = new StringBuilder();
+		int width = 0;
+
+		for (Segment segment : segments) {
+			plainText.append(segment.text());
+			width += estimateWidth(segment.text(), segment.style().hasDecoration(TextDecoration.BOLD));
+		}
+
+		if (truncation != null && width > truncation.maxWidth()) {
+			return new PrefixRender(miniMessage, component, truncate(segments, truncation), trailingStyle,
+									plainText.toString(), width, true);
+		}
+
+		return new PrefixRender(miniMessage, component, component, trailingStyle, plainText.toString(), width, false);
+	}
+
+	/**
+	 * Flattens a component into runs of text, each with the full style inherited from its parents
+	 *
+	 * @param component - The component
+	 * @return - The text runs, in order
+	 */
+	private static List<Segment> flatten(Component component) {
+		List<Segment> segments = new ArrayList<>();
+		Deque<Style> styles = new ArrayDeque<>();
+		styles.push(Style.empty());
+
+		ComponentFlattener.basic().flatten(component, new FlattenerListener() {
+			@Override
+			public void pushStyle(@NotNull Style style) {
+				styles.push(style.merge(styles.peek(), Style.Merge.Strategy.IF_ABSENT_ON_TARGET));
+			}
+
+			@Override
+			public void component(@NotNull String text) {
+				if (!text.isEmpty()) {
+					segments.add(new Segment(text, styles.peek()));
+				}
+			}
+
+			@Override
+			public void popStyle(@NotNull Style style) {
+				styles.pop();
+			}
+		});
+
+		return segments;
+	}
+
+	/**
+	 * Creates a copy of the given text runs shortened to fit the given policy, ending with its ellipsis
+	 *
+	 * @param segments - The text runs
+	 * @param truncation - The policy
+	 * @return - The shortened component
+	 */
+	private static Component truncate(List<Segment> segments, Truncation truncation) {
+		int remaining = truncation.maxWidth() - estimateWidth(truncation.ellipsis(), false);
+		TextComponent.Builder builder = Component.text();
+		Style lastStyle = Style.empty();
+
+		for (Segment segment : segments) {
+			String text = segment.text();
+			boolean bold = segment.style().hasDecoration(TextDecoration.BOLD);
+			int end = 0;
+
+			while (end < text.length()) {
+				int codePoint = text.codePointAt(end);
+				int characterWidth = estimateWidth(codePoint, bold);
+
+				if (characterWidth > remaining) {
+					break;
+				}
+
+				remaining -= characterWidth;
+				end += Character.charCount(codePoint);
+			}
+
+			if (end > 0) {
+				builder.append(Component.text(text.substring(0, end), segment.style()));
+				lastStyle = segment.style();
+			}
+
+			if (end < text.length()) {
+				break;
+			}
+		}
+
+		return builder.append(Component.text(truncation.ellipsis(), lastStyle)).build();
+	}
+
+	/**
+	 * Estimates the width of the given text in the default Minecraft font
+	 *
+	 * @param text - The text
+	 * @param bold - Whether the text is bold, which adds a pixel to each character
+	 * @return - The estimated width in pixels
+	 */
+	public static int estimateWidth(@NotNull String text, boolean bold) {
+		int width = 0;
+
+		for (int i = 0; i < text.length(); ) {
+			int codePoint = text.codePointAt(i);
+			width += estimateWidth(codePoint, bold);
+			i += Character.charCount(codePoint);
+		}
+
+		return width;
+	}
+
+	private static int estimateWidth(int codePoint, boolean bold) {
+		int width = switch (codePoint) {
+			case ' ' -> 4;
+			case '!', '\'', ',', '.', ':', ';', 'i', '|' -> 2;
+			case '`', 'l' -> 3;
+			case 'I', '[', ']', 't' -> 4;
+			case '"', '(', ')', '*', '<', '>', 'f', 'k', '{', '}' -> 5;
+			case '@', '~' -> 7;
+			default -> Character.isIdeographic(codePoint) ? 9 : 6;
+		};
+
+		return bold && codePoint != ' ' ? width + 1 : width;
+	}
+
+	/**
+	 * Gets the prefix followed by the given text, in the style the text would have if it was appended to the
+	 * MiniMessage prefix, such as a player name in a list preview
+	 *
+	 * @param text - The text to append
+	 * @param bedrock - Whether to use the Bedrock variant of the prefix
+	 * @return - The combined component
+	 */
+	public Component withSuffix(@NotNull String text, boolean bedrock) {
+		return Component.text().append(bedrock ? bedrockComponent : component)
+				.append(Component.text(text, trailingStyle)).build();
+	}
+
+	public String getMiniMessage() {
+		return miniMessage;
+	}
+
+	public Component getComponent() {
+		return component;
+	}
+
+	/**
+	 * Gets the variant of the prefix to show Bedrock players
+	 *
+	 * @return - The shortened prefix if it was wider than the truncation policy allows, otherwise the full prefix
+	 */
+	public Component getBedrockComponent() {
+		return bedrockComponent;
+	}
+
+	public String getPlainText() {
+		return plainText;
+	}
+
+	/**
+	 * Gets the number of characters in the plain text of the prefix
+	 *
+	 * @return - The length in code points
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Gets the estimated width of the prefix in the default Minecraft font
+	 *
+	 * @return - The width in pixels
+	 */
+	public int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Returns whether the Bedrock variant of the prefix has been shortened
+	 *
+	 * @return - Whether the prefix was truncated
+	 */
+	public boolean isTruncated() {
+		return truncated;
+	}
+}
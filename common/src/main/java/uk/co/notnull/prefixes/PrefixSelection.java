@@ -0,0 +1,72 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A prefix and colour selected by a player
+ *
+ * @param prefix - The selected prefix
+ * @param colour - The selected colour
+ */
+public record PrefixSelection(@NotNull Prefix prefix, @NotNull PrefixColour colour) {
+	/**
+	 * Gets the MiniMessage prefix string for this selection
+	 *
+	 * @return - The prefix with the colour applied
+	 */
+	public String render() {
+		return prefix.getPrefix(colour);
+	}
+
+	/**
+	 * Gets the cached rendered component for this selection
+	 *
+	 * @return - The rendered prefix
+	 */
+	public Component component() {
+		return prefix.getPrefixComponent(colour);
+	}
+
+	/**
+	 * Gets the cached render for this selection, including its measured width and Bedrock variant
+	 *
+	 * @return - The render
+	 */
+	public PrefixRender prefixRender() {
+		return prefix.getRender(colour);
+	}
+
+	/**
+	 * Gets the cached render of the animation frame to show at the given animation tick
+	 *
+	 * @param tick - The animation tick
+	 * @return - The frame, or the static render if the prefix isn't animated
+	 */
+	public PrefixRender frame(long tick) {
+		return prefix.getFrame(colour, tick);
+	}
+}
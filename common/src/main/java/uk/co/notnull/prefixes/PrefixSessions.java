@@ -0,0 +1,312 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Prefix selections of online players, as last read from or saved to LuckPerms
+ * Each player can have a global selection, per-server selections and a temporary selection, from which the selection
+ * that applies on their current server is resolved and cached. Selections refer to the registry they were read with
+ * until the player is rechecked, so anything compared against a newer registry is resolved by id.
+ */
+public class PrefixSessions {
+	private final Map<UUID, Prefix> prefixes = new ConcurrentHashMap<>();
+	private final Map<UUID, PrefixColour> colours = new ConcurrentHashMap<>();
+	private final Map<UUID, Map<String, PrefixSelection>> serverSelections = new ConcurrentHashMap<>();
+	private final Map<UUID, PrefixSelection> temporarySelections = new ConcurrentHashMap<>();
+	private final Map<UUID, PrefixSelection> activeSelections = new ConcurrentHashMap<>();
+	private final Map<UUID, PrefixHistory> histories = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the global prefix of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The prefix, or null if none is set
+	 */
+	public @Nullable Prefix getPrefix(@NotNull UUID uuid) {
+		return prefixes.get(uuid);
+	}
+
+	/**
+	 * Gets the colour of the global prefix of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The colour, or null if none is set
+	 */
+	public @Nullable PrefixColour getColour(@NotNull UUID uuid) {
+		return colours.get(uuid);
+	}
+
+	/**
+	 * Sets the global prefix and colour of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @param prefix - The prefix, or null to remove it
+	 * @param colour - The colour, or null to remove it
+	 */
+	public void setGlobal(@NotNull UUID uuid, @Nullable Prefix prefix, @Nullable PrefixColour colour) {
+		if (prefix != null) {
+			prefixes.put(uuid, prefix);
+		} else {
+			prefixes.remove(uuid);
+		}
+
+		if (colour != null) {
+			colours.put(uuid, colour);
+		} else {
+			colours.remove(uuid);
+		}
+	}
+
+	/**
+	 * Gets a player's selection for the given server
+	 *
+	 * @param uuid - The player's uuid
+	 * @param server - The server, or null for the player's global selection
+	 * @return - The selection, if one is set
+	 */
+	public @Nullable PrefixSelection getSelection(@NotNull UUID uuid, @Nullable String server) {
+		if (server != null) {
+			return getServerSelections(uuid).get(server);
+		}
+
+		Prefix prefix = prefixes.get(uuid);
+		PrefixColour colour = colours.get(uuid);
+
+		return prefix != null ? new PrefixSelection(prefix, colour != null ? colour : prefix.getDefaultColour()) : null;
+	}
+
+	/**
+	 * Gets the per-server selections of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The selections keyed by server name, which may be empty
+	 */
+	public Map<String, PrefixSelection> getServerSelections(@NotNull UUID uuid) {
+		Map<String, PrefixSelection> selections = serverSelections.get(uuid);
+		return selections != null ? Collections.unmodifiableMap(selections) : Collections.emptyMap();
+	}
+
+	/**
+	 * Replaces all per-server selections of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @param selections - The selections keyed by server name
+	 */
+	public void setServerSelections(@NotNull UUID uuid, @NotNull Map<String, PrefixSelection> selections) {
+		if (selections.isEmpty()) {
+			serverSelections.remove(uuid);
+		} else {
+			serverSelections.put(uuid, new ConcurrentHashMap<>(selections));
+		}
+	}
+
+	/**
+	 * Sets or removes the selection of the given player for a single server
+	 *
+	 * @param uuid - The player's uuid
+	 * @param server - The server name
+	 * @param selection - The selection, or null to remove it
+	 */
+	public void setServerSelection(@NotNull UUID uuid, @NotNull String server, @Nullable PrefixSelection selection) {
+		if (selection != null) {
+			serverSelections.computeIfAbsent(uuid, (key) -> new ConcurrentHashMap<>()).put(server, selection);
+			return;
+		}
+
+		serverSelections.computeIfPresent(uuid, (key, selections) -> {
+			selections.remove(server);
+			return selections.isEmpty() ? null : selections;
+		});
+	}
+
+	/**
+	 * Gets the temporary selection of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The selection, or null if the player has no temporary prefix
+	 */
+	public @Nullable PrefixSelection getTemporarySelection(@NotNull UUID uuid) {
+		return temporarySelections.get(uuid);
+	}
+
+	/**
+	 * Sets or removes the temporary selection of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @param selection - The selection, or null to remove it
+	 * @return - The previous temporary selection, if any
+	 */
+	public @Nullable PrefixSelection setTemporarySelection(@NotNull UUID uuid, @Nullable PrefixSelection selection) {
+		return selection != null ? temporarySelections.put(uuid, selection) : temporarySelections.remove(uuid);
+	}
+
+	/**
+	 * Resolves and caches the selection which applies to the given player on the given server
+	 * A temporary selection takes priority over a per-server selection, which takes priority over the player's global
+	 * selection
+	 *
+	 * @param uuid - The player's uuid
+	 * @param server - The server name, or null if the player isn't connected to a server
+	 * @return - The active selection, or null if none applies
+	 */
+	public @Nullable PrefixSelection resolve(@NotNull UUID uuid, @Nullable String server) {
+		PrefixSelection selection = temporarySelections.get(uuid);
+
+		if (selection == null && server != null) {
+			selection = getServerSelections(uuid).get(server);
+		}
+
+		if (selection == null) {
+			selection = getSelection(uuid, null);
+		}
+
+		if (selection != null) {
+			activeSelections.put(uuid, selection);
+		} else {
+			activeSelections.remove(uuid);
+		}
+
+		return selection;
+	}
+
+	/**
+	 * Gets the selection last resolved for the given player by {@link #resolve(UUID, String)}
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The active selection, or null if none applies
+	 */
+	public @Nullable PrefixSelection getActiveSelection(@NotNull UUID uuid) {
+		return activeSelections.get(uuid);
+	}
+
+	/**
+	 * Calls the given consumer with each player's active selection
+	 *
+	 * @param consumer - The consumer
+	 */
+	public void forEachActive(@NotNull BiConsumer<UUID, PrefixSelection> consumer) {
+		activeSelections.forEach(consumer);
+	}
+
+	/**
+	 * Creates a sync entry for the active selection of the given player, using ordinals from the given registry
+	 * Selections whose prefix or colour no longer exists in the registry are sent as cleared.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param registry - The registry the entry's batch will be sent with
+	 * @return - The entry
+	 */
+	public PrefixSyncMessage.Entry createSyncEntry(@NotNull UUID uuid, @NotNull PrefixRegistry registry) {
+		PrefixSelection selection = activeSelections.get(uuid);
+		Prefix prefix = selection != null ? registry.getPrefix(selection.prefix().getId()) : null;
+		PrefixColour colour = selection != null ? registry.getColour(selection.colour().getId()) : null;
+
+		if (prefix == null || colour == null) {
+			return PrefixSyncMessage.Entry.cleared(uuid);
+		}
+
+		return new PrefixSyncMessage.Entry(uuid, prefix.getOrdinal(), colour.getOrdinal(), prefix.getPrefix(colour));
+	}
+
+	/**
+	 * Gets the loaded history of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The history, or null if history is disabled or hasn't been loaded for the player
+	 */
+	public @Nullable PrefixHistory getHistory(@NotNull UUID uuid) {
+		return histories.get(uuid);
+	}
+
+	/**
+	 * Sets or removes the loaded history of the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @param history - The history, or null to remove it
+	 */
+	public void setHistory(@NotNull UUID uuid, @Nullable PrefixHistory history) {
+		if (history != null) {
+			histories.put(uuid, history);
+		} else {
+			histories.remove(uuid);
+		}
+	}
+
+	/**
+	 * Replaces the loaded history of the given player with an updated copy, if one is still loaded
+	 *
+	 * @param uuid - The player's uuid
+	 * @param history - The updated history
+	 */
+	public void replaceHistory(@NotNull UUID uuid, @NotNull PrefixHistory history) {
+		histories.replace(uuid, history);
+	}
+
+	/**
+	 * Creates a copy of the history of the given player with their current global selection added
+	 * The copy is stored alongside the change which replaces the current selection, and replaces the loaded history
+	 * once the change has been saved.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param next - The selection which will replace the current one, or null if it will be cleared
+	 * @return - The updated history, or null if the history is unchanged or the player has no loaded history
+	 */
+	public @Nullable PrefixHistory pushHistory(@NotNull UUID uuid, @Nullable PrefixSelection next) {
+		PrefixHistory history = histories.get(uuid);
+		PrefixSelection current = getSelection(uuid, null);
+
+		if (history == null || current == null || (next != null
+				&& current.prefix().getId().equals(next.prefix().getId())
+				&& current.colour().getId().equals(next.colour().getId()))) {
+			return null;
+		}
+
+		PrefixHistory updated = history.copy();
+		updated.push(current);
+
+		return updated;
+	}
+
+	/**
+	 * Removes all state for the given player, should be called when they disconnect
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	public void remove(@NotNull UUID uuid) {
+		prefixes.remove(uuid);
+		colours.remove(uuid);
+		serverSelections.remove(uuid);
+		temporarySelections.remove(uuid);
+		activeSelections.remove(uuid);
+		histories.remove(uuid);
+	}
+}
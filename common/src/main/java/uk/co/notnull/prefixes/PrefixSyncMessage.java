@@ -0,0 +1,147 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Wire format for the prefixes:sync plugin messaging channel
+ * Contains no proxy types so backend plugins can decode messages with the same class
+ *
+ * Format: version byte, long proxy session, varint registry generation, varint entry count, then per entry the uuid
+ * as two longs,
+ * a varint prefix ordinal and a varint colour ordinal (both offset by one so -1 encodes as 0),
+ * followed by the rendered prefix as a UTF string. A prefix ordinal of -1 indicates a cleared prefix.
+ */
+public final class PrefixSyncMessage {
+	public static final String CHANNEL = "prefixes:sync";
+	public static final byte VERSION = 2;
+
+	private PrefixSyncMessage() {
+	}
+
+	public record Entry(@NotNull UUID uuid, int prefix, int colour, @NotNull String rendered) {
+		public static Entry cleared(@NotNull UUID uuid) {
+			return new Entry(uuid, -1, -1, "");
+		}
+
+		public boolean isCleared() {
+			return prefix < 0;
+		}
+	}
+
+	/**
+	 * @param session - Random id of the proxy process which sent the batch
+	 * @param generation - The registry generation the entries' ordinals refer to
+	 * @param entries - The entries
+	 */
+	public record Batch(long session, int generation, @NotNull List<Entry> entries) {
+	}
+
+	public static byte[] encode(long session, int generation, @NotNull Collection<Entry> entries) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + entries.size() * 48);
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(VERSION);
+			out.writeLong(session);
+			writeVarInt(out, generation);
+			writeVarInt(out, entries.size());
+
+			for (Entry entry : entries) {
+				out.writeLong(entry.uuid().getMostSignificantBits());
+				out.writeLong(entry.uuid().getLeastSignificantBits());
+				writeVarInt(out, entry.prefix() + 1);
+				writeVarInt(out, entry.colour() + 1);
+				out.writeUTF(entry.rendered());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+
+		return bytes.toByteArray();
+	}
+
+	public static Batch decode(byte[] data) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+		byte version = in.readByte();
+
+		if (version != VERSION) {
+			throw new IOException("Unsupported prefix sync version " + version);
+		}
+
+		long session = in.readLong();
+		int generation = readVarInt(in);
+		int count = readVarInt(in);
+		List<Entry> entries = new ArrayList<>(count);
+
+		for (int i = 0; i < count; i++) {
+			UUID uuid = new UUID(in.readLong(), in.readLong());
+			int prefix = readVarInt(in) - 1;
+			int colour = readVarInt(in) - 1;
+			entries.add(new Entry(uuid, prefix, colour, in.readUTF()));
+		}
+
+		return new Batch(session, generation, entries);
+	}
+
+	private static void writeVarInt(DataOutput out, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.writeByte(value);
+	}
+
+	private static int readVarInt(DataInput in) throws IOException {
+		int value = 0;
+		int shift = 0;
+		byte current;
+
+		do {
+			if (shift >= 35) {
+				throw new IOException("VarInt too long");
+			}
+
+			current = in.readByte();
+			value |= (current & 0x7F) << shift;
+			shift += 7;
+		} while ((current & 0x80) != 0);
+
+		return value;
+	}
+}
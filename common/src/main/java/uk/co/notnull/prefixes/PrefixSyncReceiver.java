@@ -0,0 +1,121 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Backend-side receiver for the prefixes:sync channel
+ * Keeps the most recently published prefix of each player in memory, so backend servers can show prefixes
+ * without querying LuckPerms themselves. Backend plugins should pass incoming channel messages to
+ * {@link #handle(byte[])} and call {@link #remove(UUID)} when a player leaves.
+ * Ordinals are only valid within one registry generation, so batches from an older generation are discarded and
+ * all entries are dropped when a newer generation or a restarted proxy is seen. The proxy republishes every online
+ * player after a reload.
+ */
+public class PrefixSyncReceiver {
+	private final Map<UUID, PrefixSyncMessage.Entry> entries = new ConcurrentHashMap<>();
+	private volatile int generation = -1;
+	private long session;
+
+	/**
+	 * Applies a received message to the in-memory map
+	 *
+	 * @param message - The raw plugin message
+	 * @throws IOException - If the message is malformed
+	 */
+	public synchronized void handle(byte[] message) throws IOException {
+		PrefixSyncMessage.Batch batch = PrefixSyncMessage.decode(message);
+
+		if (generation != -1 && batch.session() == session) {
+			// Delayed batch sent before a reload
+			if (batch.generation() < generation) {
+				return;
+			}
+
+			if (batch.generation() > generation) {
+				entries.clear();
+			}
+		} else {
+			entries.clear();
+			session = batch.session();
+		}
+
+		generation = batch.generation();
+
+		for (PrefixSyncMessage.Entry entry : batch.entries()) {
+			if (entry.isCleared()) {
+				entries.remove(entry.uuid());
+			} else {
+				entries.put(entry.uuid(), entry);
+			}
+		}
+	}
+
+	/**
+	 * Gets the last entry received for the given player
+	 * Prefix and colour ordinals are only comparable between entries of the same registry generation
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The entry, if the player has a prefix
+	 */
+	public @Nullable PrefixSyncMessage.Entry get(@NotNull UUID uuid) {
+		return entries.get(uuid);
+	}
+
+	/**
+	 * Gets the rendered MiniMessage prefix for the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The rendered prefix, or an empty string if the player has no prefix
+	 */
+	public @NotNull String getRendered(@NotNull UUID uuid) {
+		PrefixSyncMessage.Entry entry = entries.get(uuid);
+		return entry != null ? entry.rendered() : "";
+	}
+
+	/**
+	 * Removes the given player from the map, should be called when the player leaves the backend
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	public void remove(@NotNull UUID uuid) {
+		entries.remove(uuid);
+	}
+
+	/**
+	 * Gets the registry generation of the most recently received message
+	 *
+	 * @return - The generation, or -1 if nothing has been received
+	 */
+	public int getGeneration() {
+		return generation;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-player token bucket rate limiter
+ * Each player has a bucket holding up to burst tokens, refilled at a fixed rate. Buckets are updated with a
+ * compare-and-set loop on an immutable state, so players never block each other or themselves.
+ * Changes made by one player to another player's prefix take a token from both players' buckets.
+ */
+public class RateLimiter {
+	private final int burst;
+	private final double refillPerSecond;
+	private final double refillPerNano;
+	private final Map<UUID, AtomicReference<State>> buckets = new ConcurrentHashMap<>();
+
+	private final LongAdder allowed = new LongAdder();
+	private final LongAdder rejected = new LongAdder();
+
+	private record State(double tokens, long updated) {
+	}
+
+	/**
+	 * @param burst - The maximum number of tokens a bucket can hold
+	 * @param refillPerSecond - The number of tokens added to each bucket per second
+	 */
+	public RateLimiter(int burst, double refillPerSecond) {
+		if (burst < 1 || refillPerSecond <= 0) {
+			throw new IllegalArgumentException("Burst and refill rate must be positive");
+		}
+
+		this.burst = burst;
+		this.refillPerSecond = refillPerSecond;
+		this.refillPerNano = refillPerSecond / 1_000_000_000d;
+	}
+
+	/**
+	 * Attempts to take a token from the given player's bucket
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - Whether a token was available
+	 */
+	public boolean tryAcquire(@NotNull UUID uuid) {
+		return tryAcquire(uuid, System.nanoTime());
+	}
+
+	boolean tryAcquire(@NotNull UUID uuid, long now) {
+		if (take(uuid, now)) {
+			allowed.increment();
+			return true;
+		}
+
+		rejected.increment();
+		return false;
+	}
+
+	/**
+	 * Attempts to take a token for a change made by one player to another player's prefix
+	 * A token is needed from both buckets, so a player can't make changes faster than their own limit by spreading
+	 * them across many targets, and a target can't be changed faster than their limit by several players. Neither
+	 * bucket is charged unless both have a token available.
+	 *
+	 * @param actor - The uuid of the player making the change
+	 * @param target - The uuid of the player whose prefix is changing
+	 * @return - Whether a token was available in both buckets
+	 */
+	public boolean tryAcquire(@NotNull UUID actor, @NotNull UUID target) {
+		return tryAcquire(actor, target, System.nanoTime());
+	}
+
+	boolean tryAcquire(@NotNull UUID actor, @NotNull UUID target, long now) {
+		if (actor.equals(target)) {
+			return tryAcquire(actor, now);
+		}
+
+		if (take(actor, now)) {
+			if (take(target, now)) {
+				allowed.increment();
+				return true;
+			}
+
+			refund(actor);
+		}
+
+		rejected.increment();
+		return false;
+	}
+
+	private boolean take(UUID uuid, long now) {
+		AtomicReference<State> bucket = buckets.computeIfAbsent(uuid, key -> new AtomicReference<>(
+				new State(burst, now)));
+
+		while (true) {
+			State current = bucket.get();
+			double tokens = refill(current, now);
+
+			if (tokens < 1) {
+				return false;
+			}
+
+			if (bucket.compareAndSet(current, new State(tokens - 1, Math.max(now, current.updated())))) {
+				return true;
+			}
+		}
+	}
+
+	private void refund(UUID uuid) {
+		AtomicReference<State> bucket = buckets.get(uuid);
+
+		if (bucket != null) {
+			bucket.updateAndGet(state -> new State(Math.min(burst, state.tokens() + 1), state.updated()));
+		}
+	}
+
+	/**
+	 * Gets the time until the given player's bucket will next have a token available
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The wait in milliseconds, or 0 if a token is available now
+	 */
+	public long getWaitMillis(@NotNull UUID uuid) {
+		AtomicReference<State> bucket = buckets.get(uuid);
+
+		if (bucket == null) {
+			return 0;
+		}
+
+		double tokens = refill(bucket.get(), System.nanoTime());
+
+		return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillPerNano / 1_000_000d);
+	}
+
+	private double refill(State state, long now) {
+		long elapsed = Math.max(0, now - state.updated());
+		return Math.min(burst, state.tokens() + elapsed * refillPerNano);
+	}
+
+	/**
+	 * Removes the bucket of the given player, should be called when they disconnect
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	public void remove(@NotNull UUID uuid) {
+		buckets.remove(uuid);
+	}
+
+	public int getBurst() {
+		return burst;
+	}
+
+	public double getRefillPerSecond() {
+		return refillPerSecond;
+	}
+
+	public long getAllowedCount() {
+		return allowed.sum();
+	}
+
+	public long getRejectedCount() {
+		return rejected.sum();
+	}
+
+	public int getTrackedPlayers() {
+		return buckets.size();
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The result of checking online players' prefixes against a config which hasn't been applied yet
+ *
+ * @param prefixes - The number of prefixes in the new config
+ * @param colours - The number of colours in the new config
+ * @param players - The number of online players checked
+ * @param results - The number of players with each check result
+ * @param samples - The names of some of the players with each check result
+ * @param serverSelectionsChanged - The number of per-server selections which would be removed or updated
+ */
+public record ReloadPreview(int prefixes, int colours, int players, @NotNull Map<PrefixCheckResult, Integer> results,
+							@NotNull Map<PrefixCheckResult, List<String>> samples, int serverSelectionsChanged) {
+	/**
+	 * Checks the session state of the given players against a registry which hasn't been applied yet
+	 * Players are checked in the same way as when they are rechecked after a reload, without loading any stored data.
+	 *
+	 * @param registry - The new registry
+	 * @param sessions - The session state of online players
+	 * @param players - The names of the players to check, keyed by uuid
+	 * @param perServer - Whether per-server prefixes are enabled in the new config
+	 * @param sampleLimit - The maximum number of player names to keep for each result
+	 * @return - The preview
+	 */
+	public static ReloadPreview create(@NotNull PrefixRegistry registry, @NotNull PrefixSessions sessions,
+									   @NotNull Map<UUID, String> players, boolean perServer, int sampleLimit) {
+		Map<PrefixCheckResult, Integer> results = new EnumMap<>(PrefixCheckResult.class);
+		Map<PrefixCheckResult, List<String>> samples = new EnumMap<>(PrefixCheckResult.class);
+		int serverSelectionsChanged = 0;
+
+		for (Map.Entry<UUID, String> player : players.entrySet()) {
+			PrefixSelection selection = sessions.getSelection(player.getKey(), null);
+
+			if (selection != null) {
+				PrefixCheckResult result = registry.check(selection);
+
+				if (result != PrefixCheckResult.NO_CHANGE) {
+					results.merge(result, 1, Integer::sum);
+					List<String> names = samples.computeIfAbsent(result, key -> new ArrayList<>());
+
+					if (names.size() < sampleLimit) {
+						names.add(player.getValue());
+					}
+				}
+			}
+
+			if (perServer) {
+				for (PrefixSelection serverSelection : sessions.getServerSelections(player.getKey()).values()) {
+					if (registry.check(serverSelection) != PrefixCheckResult.NO_CHANGE) {
+						serverSelectionsChanged++;
+					}
+				}
+			}
+		}
+
+		return new ReloadPreview(registry.getPrefixes().size(), registry.getColours().size(), players.size(), results,
+								 samples, serverSelectionsChanged);
+	}
+
+	public int getCount(PrefixCheckResult result) {
+		return results.getOrDefault(result, 0);
+	}
+
+	public List<String> getSamples(PrefixCheckResult result) {
+		return samples.getOrDefault(result, List.of());
+	}
+}
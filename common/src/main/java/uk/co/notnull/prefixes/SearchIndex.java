@@ -0,0 +1,178 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over prefix ids, plain text renders and descriptions, used by /prefix search
+ * Built once when the config is loaded. Searches look up the posting list of each query trigram, and candidates
+ * sharing at least half of the query's trigrams are ranked by trigram overlap plus bonuses for substring matches.
+ */
+public class SearchIndex {
+	private static final int GRAM_LENGTH = 3;
+
+	private final List<Prefix> prefixes;
+	private final String[] ids;
+	private final String[] plainPrefixes;
+	private final String[] descriptions;
+	private final Map<String, int[]> postings;
+
+	public SearchIndex(@NotNull Collection<Prefix> prefixes) {
+		this.prefixes = List.copyOf(prefixes);
+		ids = new String[this.prefixes.size()];
+		plainPrefixes = new String[this.prefixes.size()];
+		descriptions = new String[this.prefixes.size()];
+
+		Map<String, List<Integer>> postings = new HashMap<>();
+
+		for (int i = 0; i < this.prefixes.size(); i++) {
+			Prefix prefix = this.prefixes.get(i);
+
+			ids[i] = normalise(prefix.getId());
+			plainPrefixes[i] = normalise(prefix.getRender(prefix.getDefaultColour()).getPlainText());
+			descriptions[i] = prefix.getDescription() != null ? normalise(prefix.getDescription()) : "";
+
+			Set<String> grams = new HashSet<>();
+			addGrams(ids[i], grams);
+			addGrams(plainPrefixes[i], grams);
+			addGrams(descriptions[i], grams);
+
+			for (String gram : grams) {
+				postings.computeIfAbsent(gram, (key) -> new ArrayList<>()).add(i);
+			}
+		}
+
+		this.postings = new HashMap<>(postings.size());
+		postings.forEach((gram, documents) -> this.postings.put(
+				gram, documents.stream().mapToInt(Integer::intValue).toArray()));
+	}
+
+	/**
+	 * Searches for prefixes matching the given query
+	 *
+	 * @param query - The query
+	 * @return - Matching prefixes, best match first
+	 */
+	public List<Prefix> search(@NotNull String query) {
+		String normalised = normalise(query);
+
+		if (normalised.isEmpty()) {
+			return List.of();
+		}
+
+		Set<String> grams = new HashSet<>();
+		addGrams(normalised, grams);
+
+		// Scores are only kept for prefixes sharing a trigram with the query, rather than the whole catalogue
+		Map<Integer, Double> scores = new HashMap<>();
+
+		if (grams.isEmpty()) { // Query is shorter than a trigram, check every prefix
+			for (int i = 0; i < prefixes.size(); i++) {
+				if (containsQuery(i, normalised)) {
+					scores.put(i, score(i, normalised, 1));
+				}
+			}
+		} else {
+			Map<Integer, Integer> hits = new HashMap<>();
+
+			for (String gram : grams) {
+				int[] documents = postings.get(gram);
+
+				if (documents != null) {
+					for (int document : documents) {
+						hits.merge(document, 1, Integer::sum);
+					}
+				}
+			}
+
+			int minimumHits = Math.max(1, (grams.size() + 1) / 2);
+
+			hits.forEach((document, count) -> {
+				if (count >= minimumHits) {
+					scores.put(document, score(document, normalised, (double) count / grams.size()));
+				}
+			});
+		}
+
+		List<Integer> candidates = new ArrayList<>(scores.keySet());
+		candidates.sort(Comparator.<Integer>comparingDouble(candidate -> -scores.get(candidate))
+								.thenComparingInt(candidate -> candidate));
+
+		List<Prefix> results = new ArrayList<>(candidates.size());
+
+		for (int candidate : candidates) {
+			results.add(prefixes.get(candidate));
+		}
+
+		return results;
+	}
+
+	private double score(int document, String query, double overlap) {
+		String compactQuery = query.replace(" ", "");
+		double score = overlap;
+
+		if (ids[document].equals(compactQuery)) {
+			score += 4;
+		} else if (ids[document].startsWith(compactQuery)) {
+			score += 2;
+		} else if (ids[document].contains(compactQuery)) {
+			score += 1;
+		}
+
+		if (plainPrefixes[document].contains(query)) {
+			score += 1;
+		}
+
+		if (descriptions[document].contains(query)) {
+			score += 0.5;
+		}
+
+		return score;
+	}
+
+	private boolean containsQuery(int document, String query) {
+		return ids[document].contains(query) || plainPrefixes[document].contains(query)
+				|| descriptions[document].contains(query);
+	}
+
+	private static void addGrams(String text, Set<String> grams) {
+		for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+			grams.add(text.substring(i, i + GRAM_LENGTH));
+		}
+	}
+
+	private static String normalise(String text) {
+		return text.toLowerCase().replaceAll("\\s+", " ").trim();
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Writes stored prefix selections to a CSV or JSONL file
+ * Rows are written as soon as they are read, so memory use doesn't depend on the number of rows exported. The export is
+ * written to a .part file which is only moved into place once the export is complete.
+ */
+public class SelectionExporter implements Closeable {
+	public enum Format {
+		CSV,
+		JSONL;
+
+		public String getExtension() {
+			return name().toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private final Path file;
+	private final Path partFile;
+	private final Format format;
+	private final BufferedWriter writer;
+	private long rows = 0;
+
+	/**
+	 * Creates an exporter writing to the given file
+	 *
+	 * @param file - The file to export to
+	 * @param format - The format to export in
+	 * @throws IOException - If the file could not be created
+	 */
+	public SelectionExporter(@NotNull Path file, @NotNull Format format) throws IOException {
+		this.file = file;
+		this.partFile = file.resolveSibling(file.getFileName() + ".part");
+		this.format = format;
+
+		Files.createDirectories(file.getParent());
+		writer = Files.newBufferedWriter(partFile, StandardCharsets.UTF_8);
+
+		if (format == Format.CSV) {
+			writer.write("uuid,username,server,prefix,colour");
+			writer.newLine();
+		}
+	}
+
+	public Path getFile() {
+		return file;
+	}
+
+	public synchronized long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Writes a selection
+	 *
+	 * @param uuid - The player's uuid
+	 * @param username - The player's username, if known
+	 * @param server - The server the selection applies to, or null for global selections
+	 * @param prefix - The selected prefix id
+	 * @param colour - The selected colour id, if any
+	 * @throws IOException - If the selection could not be written
+	 */
+	public synchronized void write(@NotNull UUID uuid, @Nullable String username, @Nullable String server,
+								   @NotNull String prefix, @Nullable String colour) throws IOException {
+		if (format == Format.CSV) {
+			writer.write(uuid + "," + csv(username) + "," + csv(server) + "," + csv(prefix) + "," + csv(colour));
+		} else {
+			writer.write("{\"uuid\":\"" + uuid + "\",\"username\":" + json(username) + ",\"server\":" + json(server)
+								 + ",\"prefix\":" + json(prefix) + ",\"colour\":" + json(colour) + "}");
+		}
+
+		writer.newLine();
+		rows++;
+	}
+
+	/**
+	 * Completes the export, moving the written file into place
+	 *
+	 * @throws IOException - If the file could not be written or moved
+	 */
+	public synchronized void complete() throws IOException {
+		writer.close();
+		Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Closes the exporter, deleting the partially written file if the export wasn't completed
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		writer.close();
+		Files.deleteIfExists(partFile);
+	}
+
+	private static String csv(@Nullable String value) {
+		if (value == null) {
+			return "";
+		}
+
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+			return value;
+		}
+
+		return "\"" + value.replace("\"", "\"\"") + "\"";
+	}
+
+	private static String json(@Nullable String value) {
+		if (value == null) {
+			return "null";
+		}
+
+		StringBuilder builder = new StringBuilder(value.length() + 2).append('"');
+
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+
+			switch (c) {
+				case '"' -> builder.append("\\\"");
+				case '\\' -> builder.append("\\\\");
+				case '\n' -> builder.append("\\n");
+				case '\r' -> builder.append("\\r");
+				case '\t' -> builder.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						builder.append(String.format("\\u%04x", (int) c));
+					} else {
+						builder.append(c);
+					}
+				}
+			}
+		}
+
+		return builder.append('"').toString();
+	}
+}
@@ -0,0 +1,501 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Memory-mapped index of each player's global prefix selection, for answering queries about offline players without
+ * loading them from LuckPerms storage
+ * Selections are stored in an open-addressing hash table of fixed size slots keyed by uuid, which is doubled in size
+ * once it is 70% full. Prefix and colour ids are stored as ordinals into an append-only dictionary of ids, so stored
+ * ordinals stay valid when prefixes are added, removed or reordered in the config.
+ *
+ * Reads use an optimistic lock and don't block on writes in the common case.
+ *
+ * Table format: magic int, capacity int, then capacity slots of uuid msb long, uuid lsb long, prefix ordinal int,
+ * colour ordinal int and last updated long. Empty slots have a zero uuid. A prefix ordinal of -1 records a cleared
+ * prefix.
+ * Dictionary format: magic int, prefix id count int, prefix ids, colour id count int, colour ids. Ids are length
+ * prefixed UTF-8.
+ */
+public class SelectionIndex {
+	private static final int TABLE_MAGIC = 0x50585349; // PXSI
+	private static final int DICTIONARY_MAGIC = 0x50585344; // PXSD
+	private static final int HEADER_LENGTH = 8;
+	private static final int SLOT_LENGTH = 32;
+	private static final int INITIAL_CAPACITY = 1024;
+	private static final int NONE = -1;
+
+	/**
+	 * A stored selection
+	 *
+	 * @param prefixId - The selected prefix id, or null if the player's prefix was cleared
+	 * @param colourId - The selected colour id, or null if the player's prefix was cleared
+	 * @param updated - When the selection was last changed, in epoch milliseconds
+	 */
+	public record Entry(@Nullable String prefixId, @Nullable String colourId, long updated) {
+	}
+
+	private final Path tableFile;
+	private final Path dictionaryFile;
+	private final StampedLock lock = new StampedLock();
+
+	private FileChannel channel;
+	private volatile MappedByteBuffer table;
+	private volatile int capacity;
+	private int size;
+
+	private final List<String> prefixIds = new ArrayList<>();
+	private final List<String> colourIds = new ArrayList<>();
+	private final Map<String, Integer> prefixOrdinals = new HashMap<>();
+	private final Map<String, Integer> colourOrdinals = new HashMap<>();
+
+	public SelectionIndex(@NotNull Path directory) {
+		this.tableFile = directory.resolve("selections.bin");
+		this.dictionaryFile = directory.resolve("ids.bin");
+	}
+
+	/**
+	 * Opens the index, creating it if it doesn't exist
+	 * An index with an invalid header or dictionary is discarded and recreated empty.
+	 *
+	 * @throws IOException - If the index could not be opened
+	 */
+	public void open() throws IOException {
+		long stamp = lock.writeLock();
+
+		try {
+			Files.createDirectories(tableFile.getParent());
+
+			boolean valid = readDictionary();
+			channel = FileChannel.open(tableFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+									   StandardOpenOption.WRITE);
+
+			if (valid && channel.size() >= HEADER_LENGTH) {
+				MappedByteBuffer existing = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+				int existingCapacity = existing.getInt(4);
+
+				if (existing.getInt(0) == TABLE_MAGIC && existingCapacity > 0
+						&& Integer.bitCount(existingCapacity) == 1
+						&& channel.size() == HEADER_LENGTH + (long) existingCapacity * SLOT_LENGTH) {
+					table = existing;
+					capacity = existingCapacity;
+					size = countSlots();
+					return;
+				}
+			}
+
+			prefixIds.clear();
+			colourIds.clear();
+			prefixOrdinals.clear();
+			colourOrdinals.clear();
+			writeDictionary();
+			allocate(INITIAL_CAPACITY);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Flushes and closes the index
+	 */
+	public void close() {
+		long stamp = lock.writeLock();
+
+		try {
+			if (channel == null) {
+				return;
+			}
+
+			table.force();
+			channel.close();
+			channel = null;
+		} catch (IOException e) {
+			// Written pages are still flushed by the OS
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the stored selection for the given player
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The stored selection, or null if nothing is stored for the player
+	 */
+	public @Nullable Entry get(@NotNull UUID uuid) {
+		long stamp = lock.tryOptimisticRead();
+		Entry entry = null;
+
+		if (stamp != 0) {
+			try {
+				entry = find(uuid);
+			} catch (IndexOutOfBoundsException e) {
+				// Table was resized during the read, retried below
+			}
+		}
+
+		if (stamp == 0 || !lock.validate(stamp)) {
+			stamp = lock.readLock();
+
+			try {
+				entry = find(uuid);
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		return entry;
+	}
+
+	/**
+	 * Stores the given selection for the given player
+	 * Nothing is written if the stored selection is unchanged.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param prefixId - The selected prefix id, or null if the player's prefix was cleared
+	 * @param colourId - The selected colour id, or null if the player's prefix was cleared
+	 * @param updated - When the selection was changed, in epoch milliseconds
+	 * @param replaceNewer - Whether to replace a stored selection which was changed after the given time
+	 * @throws IOException - If the table needed resizing and could not be resized, or the dictionary couldn't be saved
+	 */
+	public void put(@NotNull UUID uuid, @Nullable String prefixId, @Nullable String colourId, long updated,
+					boolean replaceNewer) throws IOException {
+		long stamp = lock.writeLock();
+
+		try {
+			if (channel == null) {
+				return;
+			}
+
+			int prefixOrdinal = prefixId != null ? getOrdinal(prefixId, prefixIds, prefixOrdinals) : NONE;
+			int colourOrdinal = prefixId != null && colourId != null
+					? getOrdinal(colourId, colourIds, colourOrdinals) : NONE;
+			int slot = findSlot(table, capacity, uuid);
+			int offset = HEADER_LENGTH + slot * SLOT_LENGTH;
+
+			if (!isEmpty(table, offset)) {
+				boolean unchanged = table.getInt(offset + 16) == prefixOrdinal
+						&& table.getInt(offset + 20) == colourOrdinal;
+
+				if (unchanged || (!replaceNewer && table.getLong(offset + 24) > updated)) {
+					return;
+				}
+			} else if ((size + 1) * 10L > capacity * 7L) {
+				resize(capacity * 2);
+				offset = HEADER_LENGTH + findSlot(table, capacity, uuid) * SLOT_LENGTH;
+				size++;
+			} else {
+				size++;
+			}
+
+			writeSlot(table, offset, uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+					  prefixOrdinal, colourOrdinal, updated);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Removes the selections of all players not in the given set, unless they were changed at or after the given time
+	 * Used after a rebuild to remove players who no longer exist in LuckPerms storage
+	 *
+	 * @param uuids - The players to keep
+	 * @param updatedSince - The time in epoch milliseconds after which changed selections are kept
+	 * @return - The number of removed selections
+	 * @throws IOException - If the table could not be rewritten
+	 */
+	public int retain(@NotNull Set<UUID> uuids, long updatedSince) throws IOException {
+		long stamp = lock.writeLock();
+
+		try {
+			if (channel == null) {
+				return 0;
+			}
+
+			int before = size;
+			rehash(capacity, uuids, updatedSince);
+
+			return before - size;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private @Nullable Entry find(UUID uuid) {
+		MappedByteBuffer table = this.table;
+		int capacity = this.capacity;
+
+		if (table == null) {
+			return null;
+		}
+
+		int offset = HEADER_LENGTH + findSlot(table, capacity, uuid) * SLOT_LENGTH;
+
+		if (isEmpty(table, offset)) {
+			return null;
+		}
+
+		int prefixOrdinal = table.getInt(offset + 16);
+		int colourOrdinal = table.getInt(offset + 20);
+		long updated = table.getLong(offset + 24);
+
+		return new Entry(getId(prefixOrdinal, prefixIds), getId(colourOrdinal, colourIds), updated);
+	}
+
+	private static @Nullable String getId(int ordinal, List<String> ids) {
+		return ordinal >= 0 && ordinal < ids.size() ? ids.get(ordinal) : null;
+	}
+
+	/**
+	 * Finds the slot containing the given uuid, or the empty slot it would be inserted into
+	 */
+	private static int findSlot(ByteBuffer table, int capacity, UUID uuid) {
+		long msb = uuid.getMostSignificantBits();
+		long lsb = uuid.getLeastSignificantBits();
+		int mask = capacity - 1;
+		int slot = (int) mix(msb ^ lsb) & mask;
+
+		for (int i = 0; i < capacity; i++) {
+			int offset = HEADER_LENGTH + slot * SLOT_LENGTH;
+
+			if (isEmpty(table, offset) || (table.getLong(offset) == msb && table.getLong(offset + 8) == lsb)) {
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		throw new IllegalStateException("Selection index is full");
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		return value;
+	}
+
+	private static boolean isEmpty(ByteBuffer table, int offset) {
+		return table.getLong(offset) == 0 && table.getLong(offset + 8) == 0;
+	}
+
+	private static void writeSlot(ByteBuffer table, int offset, long msb, long lsb, int prefixOrdinal,
+								  int colourOrdinal, long updated) {
+		table.putLong(offset, msb);
+		table.putLong(offset + 8, lsb);
+		table.putInt(offset + 16, prefixOrdinal);
+		table.putInt(offset + 20, colourOrdinal);
+		table.putLong(offset + 24, updated);
+	}
+
+	private int countSlots() {
+		int count = 0;
+
+		for (int i = 0; i < capacity; i++) {
+			if (!isEmpty(table, HEADER_LENGTH + i * SLOT_LENGTH)) {
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	private void resize(int newCapacity) throws IOException {
+		rehash(newCapacity, null, Long.MIN_VALUE);
+	}
+
+	/**
+	 * Rewrites the table with the given capacity, keeping the selections of the given players and any selections
+	 * changed at or after the given time
+	 * The new table is written to a temporary file and moved into place, so the index is never left half written.
+	 */
+	private void rehash(int newCapacity, @Nullable Set<UUID> uuids, long updatedSince) throws IOException {
+		Path temporary = tableFile.resolveSibling(tableFile.getFileName() + ".tmp");
+		MappedByteBuffer rehashed;
+		int count = 0;
+
+		try (FileChannel output = FileChannel.open(temporary, StandardOpenOption.CREATE,
+												   StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ,
+												   StandardOpenOption.WRITE)) {
+			rehashed = output.map(FileChannel.MapMode.READ_WRITE, 0,
+								  HEADER_LENGTH + (long) newCapacity * SLOT_LENGTH);
+			rehashed.putInt(0, TABLE_MAGIC);
+			rehashed.putInt(4, newCapacity);
+
+			for (int i = 0; i < capacity; i++) {
+				int offset = HEADER_LENGTH + i * SLOT_LENGTH;
+
+				if (isEmpty(table, offset)) {
+					continue;
+				}
+
+				long msb = table.getLong(offset);
+				long lsb = table.getLong(offset + 8);
+				UUID uuid = new UUID(msb, lsb);
+
+				if (uuids != null && !uuids.contains(uuid) && table.getLong(offset + 24) < updatedSince) {
+					continue;
+				}
+
+				int slot = findSlot(rehashed, newCapacity, uuid);
+
+				writeSlot(rehashed, HEADER_LENGTH + slot * SLOT_LENGTH, msb, lsb, table.getInt(offset + 16),
+						  table.getInt(offset + 20), table.getLong(offset + 24));
+				count++;
+			}
+
+			rehashed.force();
+		}
+
+		channel.close();
+		Files.move(temporary, tableFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		channel = FileChannel.open(tableFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		table = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+		capacity = newCapacity;
+		size = count;
+	}
+
+	private void allocate(int newCapacity) throws IOException {
+		channel.truncate(0);
+		table = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_LENGTH + (long) newCapacity * SLOT_LENGTH);
+		table.putInt(0, TABLE_MAGIC);
+		table.putInt(4, newCapacity);
+		capacity = newCapacity;
+		size = 0;
+	}
+
+	private int getOrdinal(String id, List<String> ids, Map<String, Integer> ordinals) throws IOException {
+		Integer ordinal = ordinals.get(id);
+
+		if (ordinal != null) {
+			return ordinal;
+		}
+
+		ids.add(id);
+		ordinals.put(id, ids.size() - 1);
+
+		try {
+			writeDictionary();
+		} catch (IOException e) {
+			ids.remove(ids.size() - 1);
+			ordinals.remove(id);
+			throw e;
+		}
+
+		return ids.size() - 1;
+	}
+
+	private boolean readDictionary() throws IOException {
+		if (!Files.exists(dictionaryFile)) {
+			return false;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(dictionaryFile));
+
+		try {
+			if (buffer.getInt() != DICTIONARY_MAGIC) {
+				return false;
+			}
+
+			readIds(buffer, prefixIds, prefixOrdinals);
+			readIds(buffer, colourIds, colourOrdinals);
+			return true;
+		} catch (BufferUnderflowException | IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	private void writeDictionary() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(DICTIONARY_MAGIC);
+			writeIds(out, prefixIds);
+			writeIds(out, colourIds);
+		}
+
+		Path temporary = dictionaryFile.resolveSibling(dictionaryFile.getFileName() + ".tmp");
+		Files.write(temporary, bytes.toByteArray());
+		Files.move(temporary, dictionaryFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void readIds(ByteBuffer buffer, List<String> ids, Map<String, Integer> ordinals) {
+		int count = buffer.getInt();
+
+		if (count < 0 || count > buffer.remaining()) {
+			throw new IllegalArgumentException("Invalid id count " + count);
+		}
+
+		for (int i = 0; i < count; i++) {
+			int length = buffer.getInt();
+
+			if (length < 0 || length > buffer.remaining()) {
+				throw new IllegalArgumentException("Invalid id length " + length);
+			}
+
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+
+			String id = new String(bytes, StandardCharsets.UTF_8);
+			ordinals.put(id, ids.size());
+			ids.add(id);
+		}
+	}
+
+	private static void writeIds(DataOutputStream out, List<String> ids) throws IOException {
+		out.writeInt(ids.size());
+
+		for (String id : ids) {
+			byte[] bytes = id.getBytes(StandardCharsets.UTF_8);
+			out.writeInt(bytes.length);
+			out.write(bytes);
+		}
+	}
+}
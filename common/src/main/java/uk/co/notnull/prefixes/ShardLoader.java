@@ -0,0 +1,233 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurateException;
+import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+/**
+ * Loads config shards from the prefixes.d directory
+ * Shards are parsed in parallel, and each parsed shard is cached in a binary file keyed by the SHA-256 hash of the
+ * shard's contents. Unchanged shards are loaded by memory-mapping the cache file instead of parsing the YAML again.
+ *
+ * Cache format: magic int, 32 byte content hash, CRC32C of the encoded shard, then the shard encoded by
+ * {@link ConfigShard#encode()}.
+ */
+public class ShardLoader {
+	private static final int MAGIC = 0x50585343; // PXSC
+	private static final int HASH_LENGTH = 32;
+	private static final int HEADER_LENGTH = 4 + HASH_LENGTH + 4;
+
+	private final Path shardDirectory;
+	private final Path cacheDirectory;
+	private final Logger logger;
+
+	public ShardLoader(@NotNull Path shardDirectory, @NotNull Path cacheDirectory, @NotNull Logger logger) {
+		this.shardDirectory = shardDirectory;
+		this.cacheDirectory = cacheDirectory;
+		this.logger = logger;
+	}
+
+	/**
+	 * Loads all shards in the shard directory, in filename order
+	 * Cache files for shards which no longer exist are deleted.
+	 *
+	 * @return - The loaded shards, empty if the shard directory does not exist
+	 * @throws IOException - If any shard could not be read or parsed
+	 */
+	public List<ConfigShard> load() throws IOException {
+		if (!Files.isDirectory(shardDirectory)) {
+			return List.of();
+		}
+
+		List<Path> files = new ArrayList<>();
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(shardDirectory, "*.yml")) {
+			stream.forEach(files::add);
+		}
+
+		files.sort(Comparator.comparing(file -> file.getFileName().toString()));
+
+		try {
+			Files.createDirectories(cacheDirectory);
+		} catch (IOException e) {
+			logger.warn("Failed to create shard cache directory, shards will not be cached", e);
+		}
+
+		List<ConfigShard> shards;
+
+		try {
+			shards = files.parallelStream().map(this::loadShard).toList();
+		} catch (UncheckedIOException e) {
+			throw new IOException(e.getMessage(), e.getCause());
+		}
+
+		removeStaleCaches(files);
+
+		return shards;
+	}
+
+	private ConfigShard loadShard(Path file) {
+		String name = file.getFileName().toString();
+		byte[] contents;
+
+		try {
+			contents = Files.readAllBytes(file);
+		} catch (IOException e) {
+			throw new UncheckedIOException("Failed to read config shard " + name, e);
+		}
+
+		byte[] hash = hash(contents);
+		Path cacheFile = getCacheFile(name);
+		ConfigShard cached = readCache(name, cacheFile, hash);
+
+		if (cached != null) {
+			return cached;
+		}
+
+		ConfigShard shard;
+
+		try {
+			shard = ConfigShard.parse(name, YamlConfigurationLoader.builder()
+					.buildAndLoadString(new String(contents, StandardCharsets.UTF_8)), logger);
+		} catch (ConfigurateException e) {
+			throw new UncheckedIOException("Failed to parse config shard " + name, e);
+		}
+
+		writeCache(cacheFile, hash, shard);
+
+		return shard;
+	}
+
+	private @Nullable ConfigShard readCache(String name, Path cacheFile, byte[] hash) {
+		if (!Files.isRegularFile(cacheFile)) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(cacheFile, StandardOpenOption.READ)) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < HEADER_LENGTH || buffer.getInt() != MAGIC) {
+				return null;
+			}
+
+			byte[] cachedHash = new byte[HASH_LENGTH];
+			buffer.get(cachedHash);
+
+			if (!Arrays.equals(hash, cachedHash)) {
+				return null;
+			}
+
+			int checksum = buffer.getInt();
+			CRC32C crc = new CRC32C();
+			crc.update(buffer.slice());
+
+			if ((int) crc.getValue() != checksum) {
+				logger.warn("Ignoring corrupt cache for config shard " + name);
+				return null;
+			}
+
+			return ConfigShard.decode(name, buffer);
+		} catch (IOException | IllegalArgumentException e) {
+			logger.warn("Ignoring invalid cache for config shard " + name, e);
+			return null;
+		}
+	}
+
+	private void writeCache(Path cacheFile, byte[] hash, ConfigShard shard) {
+		byte[] encoded = shard.encode();
+		CRC32C crc = new CRC32C();
+		crc.update(encoded);
+
+		ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + encoded.length)
+				.putInt(MAGIC)
+				.put(hash)
+				.putInt((int) crc.getValue())
+				.put(encoded);
+
+		try {
+			// Write to a temporary file first so a partially written cache is never read
+			Path temp = Files.createTempFile(cacheDirectory, cacheFile.getFileName().toString(), ".tmp");
+			Files.write(temp, buffer.array());
+			Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			logger.warn("Failed to write cache for config shard " + shard.name(), e);
+		}
+	}
+
+	private void removeStaleCaches(List<Path> files) {
+		if (!Files.isDirectory(cacheDirectory)) {
+			return;
+		}
+
+		Set<Path> expected = new HashSet<>();
+		files.forEach(file -> expected.add(getCacheFile(file.getFileName().toString())));
+
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(cacheDirectory, "*.bin")) {
+			for (Path cacheFile : stream) {
+				if (!expected.contains(cacheFile)) {
+					Files.deleteIfExists(cacheFile);
+				}
+			}
+		} catch (IOException e) {
+			logger.warn("Failed to remove stale config shard caches", e);
+		}
+	}
+
+	private Path getCacheFile(String name) {
+		return cacheDirectory.resolve(name + ".bin");
+	}
+
+	private static byte[] hash(byte[] contents) {
+		try {
+			return MessageDigest.getInstance("SHA-256").digest(contents);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,158 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel for scheduling large numbers of expiries with a single repeating task
+ * Keys are placed in the slot for their deadline tick, modulo the wheel size. Each tick only the keys in the current
+ * slot are examined, and keys with a deadline more than one revolution away are left in place until their deadline is
+ * reached. Scheduling and cancelling are O(1).
+ *
+ * @param <K> - The key type
+ */
+public class TimingWheel<K> {
+	private final long tickMillis;
+	private final List<Set<K>> slots;
+	private final Map<K, Long> deadlines = new HashMap<>();
+	private final Consumer<K> expiryHandler;
+	private long currentTick;
+
+	/**
+	 * @param tickMillis - The duration of each tick in milliseconds
+	 * @param size - The number of slots in the wheel
+	 * @param expiryHandler - Called with each key once its deadline has passed, outside of any lock
+	 */
+	public TimingWheel(long tickMillis, int size, @NotNull Consumer<K> expiryHandler) {
+		if (tickMillis <= 0 || size <= 0) {
+			throw new IllegalArgumentException("Tick duration and size must be positive");
+		}
+
+		this.tickMillis = tickMillis;
+		this.slots = new ArrayList<>(size);
+		this.expiryHandler = expiryHandler;
+		this.currentTick = System.currentTimeMillis() / tickMillis;
+
+		for (int i = 0; i < size; i++) {
+			slots.add(new HashSet<>());
+		}
+	}
+
+	public long getTickMillis() {
+		return tickMillis;
+	}
+
+	/**
+	 * Schedules the given key to expire at the given time, replacing any existing expiry for the key
+	 * Expiries in the past fire on the next tick
+	 *
+	 * @param key - The key
+	 * @param expiryMillis - The expiry time in epoch milliseconds
+	 */
+	public synchronized void schedule(@NotNull K key, long expiryMillis) {
+		cancel(key);
+
+		long deadline = Math.max((expiryMillis + tickMillis - 1) / tickMillis, currentTick + 1);
+
+		deadlines.put(key, deadline);
+		slots.get(slotFor(deadline)).add(key);
+	}
+
+	/**
+	 * Cancels the expiry of the given key, if one is scheduled
+	 *
+	 * @param key - The key
+	 * @return - Whether an expiry was cancelled
+	 */
+	public synchronized boolean cancel(@NotNull K key) {
+		Long deadline = deadlines.remove(key);
+
+		if (deadline == null) {
+			return false;
+		}
+
+		slots.get(slotFor(deadline)).remove(key);
+		return true;
+	}
+
+	public synchronized boolean isScheduled(@NotNull K key) {
+		return deadlines.containsKey(key);
+	}
+
+	public synchronized int size() {
+		return deadlines.size();
+	}
+
+	/**
+	 * Advances the wheel to the current time, firing any expiries which have passed
+	 * Should be called once per tick, missed ticks are caught up on the next call
+	 */
+	public void tick() {
+		tick(System.currentTimeMillis());
+	}
+
+	void tick(long nowMillis) {
+		List<K> expired = new ArrayList<>();
+
+		synchronized (this) {
+			long targetTick = nowMillis / tickMillis;
+
+			// Visiting each slot once is enough to find every passed deadline, however many ticks were missed
+			long ticks = Math.min(targetTick - currentTick, slots.size());
+			long firstTick = targetTick - ticks + 1;
+
+			for (long tick = firstTick; tick <= targetTick; tick++) {
+				Iterator<K> iterator = slots.get(slotFor(tick)).iterator();
+
+				while (iterator.hasNext()) {
+					K key = iterator.next();
+
+					if (deadlines.get(key) <= targetTick) {
+						iterator.remove();
+						deadlines.remove(key);
+						expired.add(key);
+					}
+				}
+			}
+
+			currentTick = Math.max(currentTick, targetTick);
+		}
+
+		expired.forEach(expiryHandler);
+	}
+
+	private int slotFor(long tick) {
+		return (int) Math.floorMod(tick, (long) slots.size());
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Tracks which unlockable prefixes and colours each online player has unlocked
+ * Unlocked items are stored as bitsets indexed by position in the registry's unlockable lists, so a permission
+ * recalculation is reduced to one permission check per unlockable item and a set difference against the previous
+ * state. Players whose unlocked items didn't change produce no further work.
+ */
+public class UnlockTracker {
+	/**
+	 * Prefixes and colours newly unlocked by a player
+	 *
+	 * @param prefixes - The newly unlocked prefixes
+	 * @param colours - The newly unlocked colours
+	 */
+	public record Unlocks(@NotNull List<Prefix> prefixes, @NotNull List<PrefixColour> colours) {
+	}
+
+	private record State(int generation, BitSet prefixes, BitSet colours) {
+	}
+
+	private final Map<UUID, State> states = new ConcurrentHashMap<>();
+
+	/**
+	 * Records the given player's currently unlocked items without reporting any of them as newly unlocked
+	 *
+	 * @param uuid - The player's uuid
+	 * @param registry - The current registry
+	 * @param permissions - Predicate returning whether the player has a given permission
+	 */
+	public void reset(@NotNull UUID uuid, @NotNull PrefixRegistry registry, @NotNull Predicate<String> permissions) {
+		states.put(uuid, evaluate(registry, permissions));
+	}
+
+	/**
+	 * Updates the given player's unlocked items and returns any which have been unlocked since the last update
+	 * The first update for a player, or the first after the registry changes, only records their current state.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param registry - The current registry
+	 * @param permissions - Predicate returning whether the player has a given permission
+	 * @return - The newly unlocked items, or null if nothing new was unlocked
+	 */
+	public @Nullable Unlocks update(@NotNull UUID uuid, @NotNull PrefixRegistry registry,
+									@NotNull Predicate<String> permissions) {
+		if (registry.getUnlockablePrefixes().isEmpty() && registry.getUnlockableColours().isEmpty()) {
+			return null;
+		}
+
+		State current = evaluate(registry, permissions);
+		State previous = states.put(uuid, current);
+
+		if (previous == null || previous.generation() != current.generation()
+				|| (previous.prefixes().equals(current.prefixes()) && previous.colours().equals(current.colours()))) {
+			return null;
+		}
+
+		BitSet prefixes = (BitSet) current.prefixes().clone();
+		BitSet colours = (BitSet) current.colours().clone();
+		prefixes.andNot(previous.prefixes());
+		colours.andNot(previous.colours());
+
+		if (prefixes.isEmpty() && colours.isEmpty()) {
+			return null;
+		}
+
+		return new Unlocks(select(registry.getUnlockablePrefixes(), prefixes),
+						   select(registry.getUnlockableColours(), colours));
+	}
+
+	public void remove(@NotNull UUID uuid) {
+		states.remove(uuid);
+	}
+
+	private static State evaluate(PrefixRegistry registry, Predicate<String> permissions) {
+		List<Prefix> prefixes = registry.getUnlockablePrefixes();
+		List<PrefixColour> colours = registry.getUnlockableColours();
+		BitSet unlockedPrefixes = new BitSet(prefixes.size());
+		BitSet unlockedColours = new BitSet(colours.size());
+
+		for (int i = 0; i < prefixes.size(); i++) {
+			if (permissions.test(prefixes.get(i).getPermission())) {
+				unlockedPrefixes.set(i);
+			}
+		}
+
+		for (int i = 0; i < colours.size(); i++) {
+			if (permissions.test(colours.get(i).getPermission())) {
+				unlockedColours.set(i);
+			}
+		}
+
+		return new State(registry.getGeneration(), unlockedPrefixes, unlockedColours);
+	}
+
+	private static <T> List<T> select(List<T> items, BitSet indices) {
+		List<T> selected = new ArrayList<>(indices.cardinality());
+
+		for (int i = indices.nextSetBit(0); i >= 0; i = indices.nextSetBit(i + 1)) {
+			selected.add(items.get(i));
+		}
+
+		return selected;
+	}
+}
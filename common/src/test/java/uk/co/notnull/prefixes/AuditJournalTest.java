@@ -0,0 +1,182 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AuditJournalTest {
+	private static final UUID ACTOR = UUID.fromString("00000000-0000-0000-0000-000000000001");
+	private static final UUID TARGET = UUID.fromString("00000000-0000-0000-0000-000000000002");
+	private static final UUID OTHER = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+	@TempDir
+	Path directory;
+
+	private AuditJournal journal;
+
+	@AfterEach
+	void tearDown() {
+		if (journal != null) {
+			journal.stop();
+		}
+	}
+
+	private AuditJournal open(long maxFileSize, int maxFiles) throws IOException {
+		journal = new AuditJournal(directory, new AuditJournal.Settings(maxFileSize, maxFiles),
+								   TestRegistries.LOGGER);
+		journal.start();
+		return journal;
+	}
+
+	private static AuditJournal.Event event(long timestamp, UUID target, String newPrefix) {
+		return new AuditJournal.Event(timestamp, AuditJournal.Action.APPLY, AuditJournal.Outcome.SUCCESS, ACTOR,
+									  "Staff", target, "Player", "lobby", "old", null, newPrefix, "red");
+	}
+
+	private List<AuditJournal.Event> writeAndReopen(List<AuditJournal.Event> events) throws IOException {
+		open(0, 2);
+		events.forEach(journal::record);
+		journal.stop();
+
+		return events;
+	}
+
+	@Test
+	void roundTripsEvents() throws IOException {
+		AuditJournal.Event full = event(1, TARGET, "vip");
+		AuditJournal.Event console = new AuditJournal.Event(2, AuditJournal.Action.CLEAR,
+															AuditJournal.Outcome.DEFERRED, null, "Console",
+															TARGET, "Player", null, null, null, null, null);
+		writeAndReopen(List.of(full, console, event(3, OTHER, "mod")));
+
+		open(0, 2);
+
+		assertEquals(List.of(full, console), journal.query(TARGET, 10));
+		assertEquals(1, journal.query(OTHER, 10).size());
+		assertEquals(2, journal.query(ACTOR, 10).size());
+	}
+
+	@Test
+	void queryReturnsMostRecentOldestFirst() throws IOException {
+		List<AuditJournal.Event> events = new ArrayList<>();
+
+		for (int i = 0; i < 20; i++) {
+			events.add(event(i, TARGET, "prefix" + i));
+		}
+
+		writeAndReopen(events);
+		open(0, 2);
+
+		assertEquals(events.subList(15, 20), journal.query(TARGET, 5));
+	}
+
+	@Test
+	void discardsTruncatedTail() throws IOException {
+		List<AuditJournal.Event> events = writeAndReopen(List.of(event(1, TARGET, "a"), event(2, TARGET, "b")));
+		Path file = directory.resolve("journal.bin");
+		long size = Files.size(file);
+
+		// A record header claiming more payload than was written
+		ByteBuffer partial = ByteBuffer.allocate(12).putInt(200).putInt(0).putInt(12345).flip();
+		Files.write(file, partial.array(), StandardOpenOption.APPEND);
+
+		open(0, 2);
+
+		assertEquals(events, journal.query(TARGET, 10));
+
+		AuditJournal.Event next = event(3, TARGET, "c");
+		journal.record(next);
+		journal.stop();
+
+		assertTrue(Files.size(file) > size);
+
+		open(0, 2);
+
+		assertEquals(List.of(events.get(0), events.get(1), next), journal.query(TARGET, 10));
+	}
+
+	@Test
+	void discardsRecordsFromCorruptChecksum() throws IOException {
+		List<AuditJournal.Event> events = writeAndReopen(List.of(event(1, TARGET, "a"), event(2, TARGET, "b"),
+																 event(3, TARGET, "c")));
+		Path file = directory.resolve("journal.bin");
+		byte[] bytes = Files.readAllBytes(file);
+
+		// Flip a byte in the last record's payload
+		bytes[bytes.length - 3] ^= 0x7f;
+		Files.write(file, bytes);
+
+		open(0, 2);
+
+		assertEquals(events.subList(0, 2), journal.query(TARGET, 10));
+	}
+
+	@Test
+	void emptyFileOpensCleanly() throws IOException {
+		Files.createDirectories(directory);
+		Files.write(directory.resolve("journal.bin"), new byte[0]);
+
+		open(0, 2);
+
+		assertTrue(journal.query(TARGET, 10).isEmpty());
+	}
+
+	@Test
+	void rotatesFilesAndDropsOldest() throws IOException {
+		List<AuditJournal.Event> events = new ArrayList<>();
+
+		for (int i = 0; i < 3000; i++) {
+			events.add(event(i, TARGET, "prefix" + i));
+		}
+
+		open(0, 2);
+		events.forEach(journal::record);
+		journal.stop();
+
+		assertEquals(3000, journal.getWritten());
+		assertTrue(Files.exists(directory.resolve("journal.1.bin")));
+		assertFalse(Files.exists(directory.resolve("journal.2.bin")));
+
+		open(0, 2);
+
+		List<AuditJournal.Event> results = journal.query(TARGET, events.size());
+
+		assertTrue(results.size() < events.size());
+		assertEquals(events.subList(events.size() - results.size(), events.size()), results);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BKTreeTest {
+	@Test
+	void findsIdsWithinDistance() {
+		BKTree<String> tree = new BKTree<>(Map.of("admin", "a", "admins", "b", "mod", "c", "helper", "d"));
+
+		List<BKTree.Match<String>> matches = tree.search("admn", 1);
+
+		assertEquals(1, matches.size());
+		assertEquals("admin", matches.get(0).id());
+		assertEquals("a", matches.get(0).value());
+		assertEquals(1, matches.get(0).distance());
+	}
+
+	@Test
+	void ordersMatchesByDistanceThenId() {
+		BKTree<Integer> tree = new BKTree<>(Map.of("cat", 1, "bat", 2, "cart", 3, "dog", 4));
+
+		List<String> ids = tree.search("cat", 1).stream().map(BKTree.Match::id).toList();
+
+		assertEquals(List.of("cat", "bat", "cart"), ids);
+	}
+
+	@Test
+	void ignoresCase() {
+		BKTree<String> tree = new BKTree<>(Map.of("Admin", "a"));
+
+		assertEquals("admin", tree.search("ADMIN", 0).get(0).id());
+	}
+
+	@Test
+	void ignoresDuplicateIds() {
+		Map<String, String> entries = new LinkedHashMap<>();
+		entries.put("vip", "first");
+		entries.put("VIP", "second");
+
+		BKTree<String> tree = new BKTree<>(entries);
+
+		assertEquals(1, tree.size());
+		assertEquals("first", tree.search("vip", 0).get(0).value());
+	}
+
+	@Test
+	void emptyTreeHasNoMatches() {
+		assertTrue(new BKTree<String>(Map.of()).search("anything", 3).isEmpty());
+	}
+
+	@Test
+	void matchesBruteForceSearch() {
+		Random random = new Random(42);
+		Map<String, String> entries = new LinkedHashMap<>();
+
+		while (entries.size() < 500) {
+			String id = randomId(random);
+			entries.put(id, id);
+		}
+
+		BKTree<String> tree = new BKTree<>(entries);
+
+		for (int i = 0; i < 200; i++) {
+			String query = randomId(random);
+			int maxDistance = random.nextInt(4);
+			List<BKTree.Match<String>> expected = new ArrayList<>();
+
+			for (String id : entries.keySet()) {
+				int distance = levenshtein(query, id);
+
+				if (distance <= maxDistance) {
+					expected.add(new BKTree.Match<>(id, id, distance));
+				}
+			}
+
+			expected.sort(Comparator.<BKTree.Match<String>>comparingInt(BKTree.Match::distance)
+								  .thenComparing(BKTree.Match::id));
+
+			assertEquals(expected, tree.search(query, maxDistance), "query " + query + " within " + maxDistance);
+		}
+	}
+
+	private static String randomId(Random random) {
+		StringBuilder builder = new StringBuilder();
+		int length = 1 + random.nextInt(8);
+
+		for (int i = 0; i < length; i++) {
+			builder.append((char) ('a' + random.nextInt(6)));
+		}
+
+		return builder.toString();
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[][] distances = new int[a.length() + 1][b.length() + 1];
+
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					distances[i][j] = i + j;
+				} else {
+					int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+					distances[i][j] = Math.min(Math.min(distances[i - 1][j] + 1, distances[i][j - 1] + 1),
+											   distances[i - 1][j - 1] + cost);
+				}
+			}
+		}
+
+		return distances[a.length()][b.length()];
+	}
+}
@@ -0,0 +1,115 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkPipelineTest {
+	@Test
+	void aggregatesOutcomes() throws Exception {
+		List<BulkPipeline.Outcome> items = List.of(BulkPipeline.Outcome.CHANGED, BulkPipeline.Outcome.CHANGED,
+												   BulkPipeline.Outcome.UNCHANGED, BulkPipeline.Outcome.SKIPPED,
+												   BulkPipeline.Outcome.FAILED);
+
+		BulkPipeline.Result result = new BulkPipeline<>(items, CompletableFuture::completedFuture, 2, null)
+				.run().get(5, TimeUnit.SECONDS);
+
+		assertEquals(new BulkPipeline.Result(2, 1, 1, 1), result);
+		assertEquals(5, result.total());
+	}
+
+	@Test
+	void countsExceptionsAsFailures() throws Exception {
+		List<Integer> items = List.of(1, 2, 3);
+
+		BulkPipeline.Result result = new BulkPipeline<>(items, item -> {
+			if (item == 2) {
+				throw new IllegalStateException("thrown");
+			}
+
+			return item == 3 ? CompletableFuture.failedFuture(new IllegalStateException("returned"))
+					: CompletableFuture.completedFuture(BulkPipeline.Outcome.CHANGED);
+		}, 1, null).run().get(5, TimeUnit.SECONDS);
+
+		assertEquals(new BulkPipeline.Result(1, 0, 0, 2), result);
+	}
+
+	@Test
+	void completesEmptyPipeline() throws Exception {
+		assertEquals(new BulkPipeline.Result(0, 0, 0, 0),
+					 new BulkPipeline<Integer>(List.of(), item -> null, 4, null).run().get(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	void limitsConcurrencyAndReportsProgress() throws Exception {
+		List<Integer> items = IntStream.range(0, 50).boxed().toList();
+		List<CompletableFuture<BulkPipeline.Outcome>> pending = new ArrayList<>();
+		AtomicInteger reported = new AtomicInteger();
+		List<Integer> totals = new ArrayList<>();
+
+		CompletableFuture<BulkPipeline.Result> result = new BulkPipeline<>(items, item -> {
+			CompletableFuture<BulkPipeline.Outcome> future = new CompletableFuture<>();
+
+			synchronized (pending) {
+				pending.add(future);
+			}
+
+			return future;
+		}, 4, (processed, total) -> {
+			reported.accumulateAndGet(processed, Math::max);
+
+			synchronized (totals) {
+				totals.add(total);
+			}
+		}).run();
+
+		int completed = 0;
+
+		while (!result.isDone()) {
+			CompletableFuture<BulkPipeline.Outcome> next;
+
+			synchronized (pending) {
+				assertTrue(pending.size() - completed <= 4, "at most 4 in flight");
+				next = pending.get(completed);
+			}
+
+			completed++;
+			next.complete(BulkPipeline.Outcome.CHANGED);
+		}
+
+		assertEquals(new BulkPipeline.Result(50, 0, 0, 0), result.get(5, TimeUnit.SECONDS));
+		assertEquals(50, completed);
+		assertEquals(50, reported.get());
+		assertTrue(totals.stream().allMatch(total -> total == 50));
+	}
+}
@@ -0,0 +1,166 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CircuitBreakerTest {
+	private final AtomicInteger closes = new AtomicInteger();
+
+	private CircuitBreaker create(long openMillis) {
+		return new CircuitBreaker(new CircuitBreaker.Settings(4, 4, 0.5, 100, 1000, openMillis),
+								  closes::incrementAndGet);
+	}
+
+	@Test
+	void staysClosedBelowMinimumCalls() {
+		CircuitBreaker breaker = create(60000);
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(breaker.tryAcquire());
+			breaker.onFailure();
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(0, breaker.getTrips());
+	}
+
+	@Test
+	void opensAtFailureRate() {
+		CircuitBreaker breaker = create(60000);
+
+		breaker.onSuccess(10);
+		breaker.onSuccess(10);
+		breaker.onFailure();
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+		breaker.onFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(1, breaker.getTrips());
+	}
+
+	@Test
+	void countsSlowCallsAsBad() {
+		CircuitBreaker breaker = create(60000);
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onSuccess(500);
+		}
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+	}
+
+	@Test
+	void windowForgetsOldOutcomes() {
+		CircuitBreaker breaker = create(60000);
+
+		breaker.onFailure();
+
+		for (int i = 0; i < 8; i++) {
+			breaker.onSuccess(10);
+		}
+
+		breaker.onFailure();
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void rejectsWhileOpen() {
+		CircuitBreaker breaker = create(60000);
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure();
+		}
+
+		assertFalse(breaker.isAvailable());
+		assertFalse(breaker.tryAcquire());
+		assertFalse(breaker.tryAcquire());
+		assertEquals(2, breaker.getRejectedCount());
+	}
+
+	@Test
+	void successfulProbeCloses() {
+		CircuitBreaker breaker = create(0);
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure();
+		}
+
+		assertTrue(breaker.tryAcquire());
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+		// Only one probe at a time
+		assertFalse(breaker.isAvailable());
+		assertFalse(breaker.tryAcquire());
+
+		breaker.onSuccess(10);
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+		assertEquals(1, closes.get());
+
+		// The window starts empty again after closing
+		for (int i = 0; i < 3; i++) {
+			breaker.onFailure();
+		}
+
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void failedProbeReopens() {
+		CircuitBreaker breaker = create(0);
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure();
+		}
+
+		assertTrue(breaker.tryAcquire());
+		breaker.onFailure();
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(2, breaker.getTrips());
+		assertEquals(0, closes.get());
+	}
+
+	@Test
+	void ignoresCallsCompletingWhileOpen() {
+		CircuitBreaker breaker = create(60000);
+
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure();
+		}
+
+		breaker.onSuccess(10);
+
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+		assertEquals(0, closes.get());
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConfigWatcherTest {
+	private static final long DEBOUNCE = 200;
+
+	@TempDir
+	Path directory;
+
+	private final AtomicInteger reloads = new AtomicInteger();
+	private ConfigWatcher watcher;
+
+	@AfterEach
+	void tearDown() {
+		if (watcher != null) {
+			watcher.stop();
+		}
+	}
+
+	private void start() throws IOException {
+		watcher = new ConfigWatcher(directory, DEBOUNCE, () -> {
+			reloads.incrementAndGet();
+			return true;
+		}, TestRegistries.LOGGER);
+		watcher.start();
+	}
+
+	/**
+	 * Waits for at least the given number of reloads, failing after a few seconds
+	 */
+	private void awaitReloads(int count) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+
+		while (reloads.get() < count && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+
+		assertTrue(reloads.get() >= count, "Expected " + count + " reloads but saw " + reloads.get());
+	}
+
+	@Test
+	void coalescesBurstsOfWrites() throws IOException, InterruptedException {
+		start();
+
+		for (int i = 0; i < 5; i++) {
+			Files.writeString(directory.resolve("config.yml"), "value: " + i);
+			Thread.sleep(DEBOUNCE / 4);
+		}
+
+		awaitReloads(1);
+		Thread.sleep(DEBOUNCE * 3);
+
+		assertEquals(1, reloads.get());
+	}
+
+	@Test
+	void reloadsAgainAfterQuietPeriod() throws IOException, InterruptedException {
+		start();
+
+		Files.writeString(directory.resolve("config.yml"), "value: 1");
+		awaitReloads(1);
+		Thread.sleep(DEBOUNCE * 2);
+
+		Files.writeString(directory.resolve("messages.yml"), "value: 2");
+		awaitReloads(2);
+	}
+
+	@Test
+	void ignoresOtherFiles() throws IOException, InterruptedException {
+		start();
+
+		Files.writeString(directory.resolve("notes.txt"), "value: 1");
+		Thread.sleep(DEBOUNCE * 3);
+
+		assertEquals(0, reloads.get());
+	}
+
+	@Test
+	void watchesShardDirectoryCreatedLater() throws IOException, InterruptedException {
+		start();
+
+		Path shardDirectory = Files.createDirectory(directory.resolve("prefixes.d"));
+		awaitReloads(1);
+		Thread.sleep(DEBOUNCE * 2);
+
+		Files.writeString(shardDirectory.resolve("ranks.yml"), "prefixes: {}");
+		awaitReloads(2);
+	}
+
+	@Test
+	void discardsPendingReloadWhenStopped() throws IOException, InterruptedException {
+		start();
+
+		Files.writeString(directory.resolve("config.yml"), "value: 1");
+		watcher.stop();
+		Thread.sleep(DEBOUNCE * 3);
+
+		assertEquals(0, reloads.get());
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PlayerSelectorTest {
+	@Test
+	void parsesSelectors() {
+		assertEquals(List.of(new PlayerSelector(PlayerSelector.Type.ALL, null)), PlayerSelector.parse("all"));
+		assertEquals(List.of(new PlayerSelector(PlayerSelector.Type.SERVER, "lobby"),
+							 new PlayerSelector(PlayerSelector.Type.PERMISSION, "rank.vip"),
+							 new PlayerSelector(PlayerSelector.Type.CURRENT_PREFIX, "mod")),
+					 PlayerSelector.parse("server:lobby permission:rank.vip current-prefix:mod"));
+	}
+
+	@Test
+	void ignoresCaseOfTypesAndExtraWhitespace() {
+		assertEquals(List.of(new PlayerSelector(PlayerSelector.Type.ALL, null),
+							 new PlayerSelector(PlayerSelector.Type.SERVER, "Lobby")),
+					 PlayerSelector.parse("  ALL   Server:Lobby "));
+	}
+
+	@Test
+	void keepsSeparatorsInValues() {
+		assertEquals(List.of(new PlayerSelector(PlayerSelector.Type.PERMISSION, "group:vip")),
+					 PlayerSelector.parse("permission:group:vip"));
+	}
+
+	@Test
+	void rejectsInvalidSelectors() {
+		assertEquals("server:", assertThrows(IllegalArgumentException.class,
+											 () -> PlayerSelector.parse("all server:")).getMessage());
+		assertEquals("rank:vip", assertThrows(IllegalArgumentException.class,
+											  () -> PlayerSelector.parse("rank:vip")).getMessage());
+		assertEquals("all:lobby", assertThrows(IllegalArgumentException.class,
+											   () -> PlayerSelector.parse("all:lobby")).getMessage());
+		assertEquals(":vip", assertThrows(IllegalArgumentException.class,
+										  () -> PlayerSelector.parse(":vip")).getMessage());
+		assertEquals("lobby", assertThrows(IllegalArgumentException.class,
+										   () -> PlayerSelector.parse("lobby")).getMessage());
+	}
+
+	@Test
+	void rejectsEmptyInput() {
+		assertThrows(IllegalArgumentException.class, () -> PlayerSelector.parse(""));
+		assertThrows(IllegalArgumentException.class, () -> PlayerSelector.parse("   "));
+	}
+
+	@Test
+	void formatsSelectors() {
+		assertEquals("all", new PlayerSelector(PlayerSelector.Type.ALL, null).toString());
+		assertEquals("current-prefix:mod", new PlayerSelector(PlayerSelector.Type.CURRENT_PREFIX, "mod").toString());
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixCategoryTest {
+	private static final List<ConfigShard.PrefixDefinition> PREFIXES = List.of(
+			definition("open", null, false, false),
+			definition("vip", "prefix.vip", false, false),
+			definition("mvp", "prefix.mvp", false, false),
+			definition("supporter", "prefix.supporter", true, false),
+			definition("legacy", "prefix.legacy", false, true),
+			definition("founder", null, false, true));
+
+	private final PrefixRegistry registry = TestRegistries.create(1, List.of(TestRegistries.colour("red", "<red>")),
+																  PREFIXES);
+
+	private static ConfigShard.PrefixDefinition definition(String id, @Nullable String permission, boolean unlockable,
+														   boolean retired) {
+		return new ConfigShard.PrefixDefinition(id, "<colourstart>" + id, permission, null, "red", unlockable, retired,
+												null, null, null, null);
+	}
+
+	private PrefixCategory category(@Nullable String permission, String... members) {
+		List<Prefix> prefixes = new ArrayList<>();
+
+		for (String member : members) {
+			prefixes.add(registry.getPrefix(member));
+		}
+
+		return new PrefixCategory("ranks", "Ranks", null, permission, prefixes);
+	}
+
+	/**
+	 * Returns a predicate for the given permissions, which fails the test if a permission is checked twice
+	 */
+	private static Predicate<String> permissions(String... granted) {
+		Set<String> permissions = Set.of(granted);
+		List<String> checked = new ArrayList<>();
+
+		return permission -> {
+			assertFalse(checked.contains(permission), "Checked " + permission + " twice");
+			checked.add(permission);
+			return permissions.contains(permission);
+		};
+	}
+
+	@Test
+	void categoriesWithOpenMembersAreNeverLocked() {
+		PrefixCategory category = category(null, "vip", "open");
+
+		assertFalse(category.isLocked(permission -> {
+			throw new AssertionError("Checked " + permission);
+		}));
+	}
+
+	@Test
+	void lockedWithoutAnyMemberPermission() {
+		PrefixCategory category = category(null, "vip", "mvp", "supporter");
+
+		assertTrue(category.isLocked(permissions()));
+		assertFalse(category.isLocked(permissions("prefix.mvp")));
+		assertFalse(category.isLocked(permissions("prefix.supporter")));
+	}
+
+	@Test
+	void lockedWithoutCategoryPermission() {
+		PrefixCategory category = category("category.ranks", "open", "vip");
+
+		assertTrue(category.isLocked(permissions("prefix.vip")));
+		assertFalse(category.isLocked(permissions("category.ranks")));
+	}
+
+	@Test
+	void retiredMembersNeedRetiredPermission() {
+		assertTrue(category(null, "vip", "legacy").isLocked(permissions("prefix.legacy")));
+		assertFalse(category(null, "vip", "legacy").isLocked(permissions("prefix.legacy", "prefixes.use-retired")));
+		assertTrue(category(null, "vip", "legacy").isLocked(permissions("prefixes.use-retired")));
+
+		assertTrue(category(null, "founder").isLocked(permissions()));
+		assertFalse(category(null, "founder").isLocked(permissions("prefixes.use-retired")));
+	}
+
+	@Test
+	void listsOpenAndUnlockableMembers() {
+		PrefixCategory category = category(null, "open", "vip", "supporter", "legacy");
+
+		assertEquals(2, category.getListedCount());
+		assertEquals(List.of("open", "vip"), category.getListedMembers(prefix -> !prefix.isRetired()
+				&& !prefix.getId().equals("supporter")).stream().map(Prefix::getId).toList());
+	}
+
+	@Test
+	void listsAllMembersWithoutChecks() {
+		PrefixCategory category = category(null, "open", "supporter");
+		List<Prefix> listed = category.getListedMembers(prefix -> {
+			throw new AssertionError("Checked " + prefix.getId());
+		});
+
+		assertSame(listed, category.getListedMembers(prefix -> false));
+		assertEquals(category.getMembers(), listed);
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.co.notnull.prefixes.TestRegistries.colour;
+import static uk.co.notnull.prefixes.TestRegistries.prefix;
+
+class PrefixHistoryTest {
+	private final PrefixRegistry registry = TestRegistries.create(
+			1, List.of(colour("red", "<red>"), colour("blue", "<blue>")),
+			List.of(prefix("vip", "VIP", "red"), prefix("mod", "Mod", "red"), prefix("admin", "Admin", "blue")));
+
+	private PrefixSelection select(PrefixRegistry registry, String prefixId, String colourId) {
+		return new PrefixSelection(registry.getPrefix(prefixId), registry.getColour(colourId));
+	}
+
+	private static String describe(List<PrefixSelection> selections) {
+		return String.join(",", selections.stream()
+				.map(selection -> selection.prefix().getId() + ":" + selection.colour().getId())
+				.toList());
+	}
+
+	@Test
+	void returnsEntriesNewestFirst() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "mod", "blue"));
+
+		assertEquals("mod:blue,vip:red", describe(history.getEntries(registry)));
+		assertSame(registry.getPrefix("mod"), history.peek(registry).prefix());
+	}
+
+	@Test
+	void ignoresRepeatedNewestEntry() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "vip", "red"));
+
+		assertEquals(1, history.getEntries(registry).size());
+	}
+
+	@Test
+	void replacesOldestAtCapacity() {
+		PrefixHistory history = new PrefixHistory(registry, 2);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "mod", "red"));
+		history.push(select(registry, "admin", "blue"));
+
+		assertEquals("admin:blue,mod:red", describe(history.getEntries(registry)));
+	}
+
+	@Test
+	void popRemovesNewest() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "mod", "red"));
+
+		assertEquals("mod", history.pop(registry).prefix().getId());
+		assertEquals("vip", history.pop(registry).prefix().getId());
+		assertNull(history.pop(registry));
+		assertTrue(history.isEmpty());
+	}
+
+	@Test
+	void copyIsIndependent() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+		history.push(select(registry, "vip", "red"));
+
+		PrefixHistory copy = history.copy();
+		copy.push(select(registry, "mod", "red"));
+
+		assertEquals(1, history.getEntries(registry).size());
+		assertEquals(2, copy.getEntries(registry).size());
+	}
+
+	@Test
+	void encodeRoundTrips() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "admin", "blue"));
+
+		String encoded = history.encode();
+
+		assertEquals("vip:red,admin:blue", encoded);
+		assertEquals(describe(history.getEntries(registry)),
+					 describe(PrefixHistory.decode(encoded, registry, 5).getEntries(registry)));
+	}
+
+	@Test
+	void decodeDropsUnknownAndKeepsNewest() {
+		PrefixHistory history = PrefixHistory.decode("vip:red,missing:red,broken,mod:blue,admin:blue", registry, 2);
+
+		assertEquals("admin:blue,mod:blue", describe(history.getEntries(registry)));
+		assertTrue(PrefixHistory.decode(null, registry, 2).isEmpty());
+	}
+
+	@Test
+	void resolvesAgainstNewerRegistry() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		history.push(select(registry, "vip", "red"));
+		history.push(select(registry, "mod", "blue"));
+
+		// mod removed and blue removed in the next generation
+		PrefixRegistry next = TestRegistries.create(2, List.of(colour("red", "<red>")),
+													List.of(prefix("vip", "VIP", "red")));
+
+		List<PrefixSelection> entries = history.getEntries(next);
+
+		assertEquals("vip:red", describe(entries));
+		assertSame(next.getPrefix("vip"), entries.get(0).prefix());
+		assertSame(next.getPrefix("vip"), history.pop(next).prefix());
+	}
+
+	@Test
+	void rejectsInvalidCapacity() {
+		assertThrows(IllegalArgumentException.class, () -> new PrefixHistory(registry, 0));
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.serializer.plain.PlainTextComponentSerializer;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixRenderTest {
+	private static String plain(Component component) {
+		return PlainTextComponentSerializer.plainText().serialize(component);
+	}
+
+	@Test
+	void measuresPlainText() {
+		PrefixRender render = PrefixRender.create("<red>VIP</red> <bold>il", null);
+
+		assertEquals("VIP il", render.getPlainText());
+		assertEquals(6, render.getLength());
+		assertEquals(6 + 4 + 6 + 4 + 3 + 4, render.getWidth());
+		assertFalse(render.isTruncated());
+	}
+
+	@Test
+	void estimatesCharacterWidths() {
+		assertEquals(2 + 3 + 4 + 4, PrefixRender.estimateWidth("il t", false));
+		assertEquals(3 + 4 + 4 + 5, PrefixRender.estimateWidth("il t", true));
+		assertEquals(9, PrefixRender.estimateWidth("\u738b", false));
+		assertEquals(6, PrefixRender.estimateWidth("\ud83d\ude00", false));
+	}
+
+	@Test
+	void keepsPrefixesWithinWidth() {
+		PrefixRender render = PrefixRender.create("<gold>Admin", new PrefixRender.Truncation(30, ".."));
+
+		assertFalse(render.isTruncated());
+		assertSame(render.getComponent(), render.getBedrockComponent());
+	}
+
+	@Test
+	void truncatesWidePrefixes() {
+		// 20 pixels, less 4 for the ellipsis, fits "Ad"
+		PrefixRender render = PrefixRender.create("<gold>Administrator", new PrefixRender.Truncation(20, ".."));
+
+		assertTrue(render.isTruncated());
+		assertEquals("Administrator", render.getPlainText());
+		assertEquals("Administrator", plain(render.getComponent()));
+		assertEquals("Ad..", plain(render.getBedrockComponent()));
+		assertEquals(NamedTextColor.GOLD, render.getBedrockComponent().children().get(0).color());
+	}
+
+	@Test
+	void truncatesAcrossStyles() {
+		PrefixRender render = PrefixRender.create("<red>ab</red><blue>cdef",
+												  new PrefixRender.Truncation(6 * 3 + 6, "\u2026"));
+
+		assertTrue(render.isTruncated());
+		assertEquals("abc\u2026", plain(render.getBedrockComponent()));
+		assertTrue(PrefixRender.estimateWidth(plain(render.getBedrockComponent()), false) <= 6 * 3 + 6);
+	}
+
+	@Test
+	void suffixUsesTrailingStyle() {
+		PrefixRender render = PrefixRender.create("<red>VIP ", null);
+		Component combined = render.withSuffix("Player", false);
+
+		assertEquals("VIP Player", plain(combined));
+		assertEquals(NamedTextColor.RED, combined.children().get(1).color());
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.co.notnull.prefixes.TestRegistries.colour;
+import static uk.co.notnull.prefixes.TestRegistries.prefix;
+
+class PrefixSessionsTest {
+	private final PrefixRegistry registry = TestRegistries.create(
+			3, List.of(colour("red", "<red>"), colour("blue", "<blue>")),
+			List.of(prefix("vip", "<colourstart>VIP", "red"), prefix("mod", "<colourstart>Mod", "blue"),
+					prefix("event", "<colourstart>Event", "red")));
+
+	private final PrefixSessions sessions = new PrefixSessions();
+	private final UUID player = UUID.randomUUID();
+
+	private PrefixSelection select(String prefixId, String colourId) {
+		return new PrefixSelection(registry.getPrefix(prefixId), registry.getColour(colourId));
+	}
+
+	@Test
+	void globalSelectionUsesDefaultColour() {
+		sessions.setGlobal(player, registry.getPrefix("mod"), null);
+
+		PrefixSelection selection = sessions.getSelection(player, null);
+
+		assertNotNull(selection);
+		assertSame(registry.getColour("blue"), selection.colour());
+		assertNull(sessions.getColour(player));
+	}
+
+	@Test
+	void resolvesTemporaryThenServerThenGlobal() {
+		sessions.setGlobal(player, registry.getPrefix("vip"), registry.getColour("blue"));
+		sessions.setServerSelection(player, "survival", select("mod", "red"));
+		sessions.setTemporarySelection(player, select("event", "blue"));
+
+		assertEquals("event", sessions.resolve(player, "survival").prefix().getId());
+
+		sessions.setTemporarySelection(player, null);
+
+		assertEquals("mod", sessions.resolve(player, "survival").prefix().getId());
+		assertEquals("vip", sessions.resolve(player, "creative").prefix().getId());
+		assertEquals("vip", sessions.resolve(player, null).prefix().getId());
+		assertEquals("vip", sessions.getActiveSelection(player).prefix().getId());
+
+		sessions.setGlobal(player, null, null);
+
+		assertNull(sessions.resolve(player, "creative"));
+		assertNull(sessions.getActiveSelection(player));
+	}
+
+	@Test
+	void serverSelectionsCanBeReplacedAndRemoved() {
+		Map<String, PrefixSelection> selections = new HashMap<>();
+		selections.put("survival", select("vip", "red"));
+		selections.put("creative", select("mod", "blue"));
+
+		sessions.setServerSelections(player, selections);
+		sessions.setServerSelection(player, "survival", null);
+
+		assertEquals(Map.of("creative", select("mod", "blue")), sessions.getServerSelections(player));
+
+		sessions.setServerSelection(player, "creative", null);
+
+		assertTrue(sessions.getServerSelections(player).isEmpty());
+		assertNull(sessions.getSelection(player, "creative"));
+	}
+
+	@Test
+	void temporarySelectionReturnsPrevious() {
+		assertNull(sessions.setTemporarySelection(player, select("event", "red")));
+		assertEquals(select("event", "red"), sessions.setTemporarySelection(player, null));
+		assertNull(sessions.getTemporarySelection(player));
+	}
+
+	@Test
+	void createsSyncEntriesAgainstRegistry() {
+		sessions.setGlobal(player, registry.getPrefix("vip"), registry.getColour("blue"));
+		sessions.resolve(player, null);
+
+		PrefixSyncMessage.Entry entry = sessions.createSyncEntry(player, registry);
+
+		assertEquals(registry.getPrefix("vip").getOrdinal(), entry.prefix());
+		assertEquals(registry.getColour("blue").getOrdinal(), entry.colour());
+		assertEquals("<blue>VIP", entry.rendered());
+
+		// Removed from the next generation
+		PrefixRegistry next = TestRegistries.create(4, List.of(colour("red", "<red>")),
+													List.of(prefix("vip", "<colourstart>VIP", "red")));
+
+		assertTrue(sessions.createSyncEntry(player, next).isCleared());
+		assertTrue(sessions.createSyncEntry(UUID.randomUUID(), registry).isCleared());
+	}
+
+	@Test
+	void pushHistoryCopiesCurrentSelection() {
+		PrefixHistory history = new PrefixHistory(registry, 5);
+
+		sessions.setHistory(player, history);
+		sessions.setGlobal(player, registry.getPrefix("vip"), registry.getColour("red"));
+
+		assertNull(sessions.pushHistory(player, select("vip", "red")));
+
+		PrefixHistory updated = sessions.pushHistory(player, select("mod", "blue"));
+
+		assertNotNull(updated);
+		assertTrue(history.isEmpty());
+		assertEquals("vip", updated.peek(registry).prefix().getId());
+
+		sessions.replaceHistory(player, updated);
+
+		assertSame(updated, sessions.getHistory(player));
+	}
+
+	@Test
+	void removeClearsAllState() {
+		sessions.setGlobal(player, registry.getPrefix("vip"), registry.getColour("red"));
+		sessions.setServerSelection(player, "survival", select("mod", "blue"));
+		sessions.setTemporarySelection(player, select("event", "red"));
+		sessions.setHistory(player, new PrefixHistory(registry, 5));
+		sessions.resolve(player, "survival");
+
+		sessions.remove(player);
+
+		assertNull(sessions.getSelection(player, null));
+		assertTrue(sessions.getServerSelections(player).isEmpty());
+		assertNull(sessions.getTemporarySelection(player));
+		assertNull(sessions.getActiveSelection(player));
+		assertNull(sessions.getHistory(player));
+	}
+}
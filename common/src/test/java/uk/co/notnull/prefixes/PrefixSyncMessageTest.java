@@ -0,0 +1,111 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrefixSyncMessageTest {
+	private static final int[] VAR_INT_EDGES = {0, 1, 126, 127, 128, 16383, 16384, 2097151, 2097152,
+			Integer.MAX_VALUE - 1, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+
+	@Test
+	void roundTripsEntries() throws IOException {
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		List<PrefixSyncMessage.Entry> entries = List.of(
+				new PrefixSyncMessage.Entry(first, 3, 7, "<red>VIP \u2605"),
+				PrefixSyncMessage.Entry.cleared(second));
+
+		PrefixSyncMessage.Batch batch = PrefixSyncMessage.decode(PrefixSyncMessage.encode(123456789L, 42, entries));
+
+		assertEquals(new PrefixSyncMessage.Batch(123456789L, 42, entries), batch);
+		assertTrue(batch.entries().get(1).isCleared());
+	}
+
+	@Test
+	void roundTripsVarIntEdges() throws IOException {
+		for (int value : VAR_INT_EDGES) {
+			PrefixSyncMessage.Batch batch = PrefixSyncMessage.decode(PrefixSyncMessage.encode(1, value, List.of()));
+			assertEquals(value, batch.generation(), "generation " + value);
+		}
+
+		// Ordinals are offset by one so cleared entries encode as zero
+		for (int value : VAR_INT_EDGES) {
+			if (value == Integer.MIN_VALUE) {
+				continue;
+			}
+
+			int ordinal = value - 1;
+			PrefixSyncMessage.Entry entry = new PrefixSyncMessage.Entry(UUID.randomUUID(), ordinal, ordinal, "");
+			PrefixSyncMessage.Batch batch = PrefixSyncMessage.decode(
+					PrefixSyncMessage.encode(1, 0, List.of(entry)));
+
+			assertEquals(entry, batch.entries().get(0), "ordinal " + ordinal);
+		}
+	}
+
+	@Test
+	void varIntsAreCompact() {
+		int empty = PrefixSyncMessage.encode(1, 0, List.of()).length;
+
+		assertEquals(empty, PrefixSyncMessage.encode(1, 127, List.of()).length);
+		assertEquals(empty + 1, PrefixSyncMessage.encode(1, 128, List.of()).length);
+		assertEquals(empty + 4, PrefixSyncMessage.encode(1, Integer.MAX_VALUE, List.of()).length);
+	}
+
+	@Test
+	void rejectsUnknownVersion() {
+		byte[] data = PrefixSyncMessage.encode(1, 1, List.of());
+		data[0] = PrefixSyncMessage.VERSION + 1;
+
+		assertThrows(IOException.class, () -> PrefixSyncMessage.decode(data));
+	}
+
+	@Test
+	void rejectsTruncatedMessages() {
+		byte[] data = PrefixSyncMessage.encode(1, 300, List.of(
+				new PrefixSyncMessage.Entry(UUID.randomUUID(), 200, 5, "<gold>Admin")));
+
+		for (int length = 0; length < data.length; length++) {
+			byte[] truncated = Arrays.copyOf(data, length);
+			assertThrows(IOException.class, () -> PrefixSyncMessage.decode(truncated), "length " + length);
+		}
+	}
+
+	@Test
+	void rejectsOverlongVarInt() {
+		byte[] data = {PrefixSyncMessage.VERSION, 0, 0, 0, 0, 0, 0, 0, 1,
+				(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, 0};
+
+		assertThrows(IOException.class, () -> PrefixSyncMessage.decode(data));
+	}
+}
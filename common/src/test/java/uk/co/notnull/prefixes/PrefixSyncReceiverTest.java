@@ -0,0 +1,98 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PrefixSyncReceiverTest {
+	private final PrefixSyncReceiver receiver = new PrefixSyncReceiver();
+	private final UUID first = UUID.randomUUID();
+	private final UUID second = UUID.randomUUID();
+
+	private void send(long session, int generation, PrefixSyncMessage.Entry... entries) throws IOException {
+		receiver.handle(PrefixSyncMessage.encode(session, generation, List.of(entries)));
+	}
+
+	private PrefixSyncMessage.Entry entry(UUID uuid, String rendered) {
+		return new PrefixSyncMessage.Entry(uuid, 1, 2, rendered);
+	}
+
+	@Test
+	void storesAndClearsEntries() throws IOException {
+		assertEquals(-1, receiver.getGeneration());
+
+		send(1, 1, entry(first, "<red>VIP"), entry(second, "<blue>Mod"));
+
+		assertEquals(1, receiver.getGeneration());
+		assertEquals("<red>VIP", receiver.getRendered(first));
+
+		send(1, 1, PrefixSyncMessage.Entry.cleared(first));
+
+		assertNull(receiver.get(first));
+		assertEquals("", receiver.getRendered(first));
+		assertEquals("<blue>Mod", receiver.getRendered(second));
+
+		receiver.remove(second);
+
+		assertNull(receiver.get(second));
+	}
+
+	@Test
+	void dropsOlderGenerations() throws IOException {
+		send(1, 2, entry(first, "current"));
+		send(1, 1, entry(first, "stale"), entry(second, "stale"));
+
+		assertEquals(2, receiver.getGeneration());
+		assertEquals("current", receiver.getRendered(first));
+		assertNull(receiver.get(second));
+	}
+
+	@Test
+	void newerGenerationReplacesEntries() throws IOException {
+		send(1, 1, entry(first, "old"), entry(second, "old"));
+		send(1, 2, entry(first, "new"));
+
+		assertEquals(2, receiver.getGeneration());
+		assertEquals("new", receiver.getRendered(first));
+		assertNull(receiver.get(second));
+	}
+
+	@Test
+	void newSessionReplacesEntries() throws IOException {
+		send(1, 5, entry(first, "old"), entry(second, "old"));
+
+		// A restarted proxy starts counting generations again
+		send(2, 1, entry(first, "restarted"));
+
+		assertEquals(1, receiver.getGeneration());
+		assertEquals("restarted", receiver.getRendered(first));
+		assertNull(receiver.get(second));
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.co.notnull.prefixes.TestRegistries.colour;
+
+class PrefixTest {
+	private static final List<ConfigShard.ColourDefinition> COLOURS = List.of(
+			colour("red", "<red>"), colour("green", "<green>"), colour("blue", "<blue>"), colour("gold", "<gold>"));
+
+	private static PrefixRegistry load(@Nullable List<String> allowed, @Nullable List<String> denied) {
+		ConfigShard.PrefixDefinition definition = new ConfigShard.PrefixDefinition(
+				"vip", "<colourstart>VIP", null, null, "red", false, false, null, allowed, denied, null);
+
+		return TestRegistries.create(1, COLOURS, List.of(definition));
+	}
+
+	private static List<String> compatible(PrefixRegistry registry) {
+		Prefix prefix = registry.getPrefix("vip");
+
+		return registry.getColours().stream()
+				.filter(prefix::isColourCompatible)
+				.map(PrefixColour::getId)
+				.toList();
+	}
+
+	@Test
+	void allowsAllColoursByDefault() {
+		assertEquals(List.of("red", "green", "blue", "gold"), compatible(load(null, null)));
+	}
+
+	@Test
+	void allowsOnlyAllowedColours() {
+		assertEquals(List.of("red", "blue"), compatible(load(List.of("blue"), null)));
+		assertEquals(List.of("red", "green", "gold"), compatible(load(List.of("green", "gold"), List.of())));
+	}
+
+	@Test
+	void removesDeniedColours() {
+		assertEquals(List.of("red", "green"), compatible(load(null, List.of("blue", "gold"))));
+		assertEquals(List.of("red", "green"), compatible(load(List.of("green", "blue"), List.of("blue"))));
+	}
+
+	@Test
+	void alwaysAllowsDefaultColour() {
+		assertEquals(List.of("red"), compatible(load(List.of(), null)));
+		assertEquals(List.of("red", "green", "blue", "gold"), compatible(load(null, List.of("red"))));
+	}
+
+	@Test
+	void ignoresUnknownColours() {
+		assertEquals(List.of("red", "green"), compatible(load(List.of("green", "purple"), List.of("pink"))));
+	}
+
+	@Test
+	void allowsColoursNotFromConfig() {
+		Prefix prefix = load(List.of(), null).getPrefix("vip");
+
+		assertTrue(prefix.isColourCompatible(PrefixRegistry.FALLBACK_COLOUR));
+		assertTrue(prefix.isColourCompatible(new PrefixColour("custom", "<aqua>")));
+	}
+
+	@Test
+	void filtersColourOrdinals() {
+		BitSet colours = new BitSet();
+		colours.set(0, 4);
+
+		assertEquals(colours, load(null, null).getPrefix("vip").filterColours((BitSet) colours.clone()));
+
+		load(List.of("blue"), null).getPrefix("vip").filterColours(colours);
+
+		assertTrue(colours.get(0));
+		assertFalse(colours.get(1));
+		assertTrue(colours.get(2));
+		assertFalse(colours.get(3));
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimiterTest {
+	private static final long SECOND = 1_000_000_000L;
+
+	private final UUID player = UUID.randomUUID();
+
+	@Test
+	void allowsBurstThenRejects() {
+		RateLimiter limiter = new RateLimiter(3, 1);
+
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertFalse(limiter.tryAcquire(player, 0));
+
+		assertEquals(3, limiter.getAllowedCount());
+		assertEquals(1, limiter.getRejectedCount());
+	}
+
+	@Test
+	void refillsOverTime() {
+		RateLimiter limiter = new RateLimiter(1, 2);
+
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertFalse(limiter.tryAcquire(player, SECOND / 4));
+		assertTrue(limiter.tryAcquire(player, SECOND / 2));
+	}
+
+	@Test
+	void refillIsCappedAtBurst() {
+		RateLimiter limiter = new RateLimiter(2, 10);
+
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertTrue(limiter.tryAcquire(player, 100 * SECOND));
+		assertTrue(limiter.tryAcquire(player, 100 * SECOND));
+		assertFalse(limiter.tryAcquire(player, 100 * SECOND));
+	}
+
+	@Test
+	void bucketsArePerPlayer() {
+		RateLimiter limiter = new RateLimiter(1, 1);
+		UUID other = UUID.randomUUID();
+
+		assertTrue(limiter.tryAcquire(player, 0));
+		assertTrue(limiter.tryAcquire(other, 0));
+		assertEquals(2, limiter.getTrackedPlayers());
+
+		limiter.remove(player);
+
+		assertEquals(1, limiter.getTrackedPlayers());
+		assertEquals(0, limiter.getWaitMillis(player));
+	}
+
+	@Test
+	void changesToOthersChargeActorAndTarget() {
+		RateLimiter limiter = new RateLimiter(2, 1);
+		UUID first = UUID.randomUUID();
+		UUID second = UUID.randomUUID();
+		UUID third = UUID.randomUUID();
+
+		// The actor's own bucket limits changes spread across many targets
+		assertTrue(limiter.tryAcquire(player, first, 0));
+		assertTrue(limiter.tryAcquire(player, second, 0));
+		assertFalse(limiter.tryAcquire(player, third, 0));
+
+		// The target's bucket limits changes made by several actors
+		assertTrue(limiter.tryAcquire(second, first, 0));
+		assertFalse(limiter.tryAcquire(third, first, 0));
+
+		// The actor's token is returned when the target has none
+		assertTrue(limiter.tryAcquire(third, 0));
+		assertTrue(limiter.tryAcquire(third, 0));
+		assertFalse(limiter.tryAcquire(third, 0));
+
+		assertEquals(5, limiter.getAllowedCount());
+		assertEquals(3, limiter.getRejectedCount());
+	}
+
+	@Test
+	void changesToSelfChargeOneBucket() {
+		RateLimiter limiter = new RateLimiter(2, 1);
+
+		assertTrue(limiter.tryAcquire(player, player, 0));
+		assertTrue(limiter.tryAcquire(player, player, 0));
+		assertFalse(limiter.tryAcquire(player, player, 0));
+	}
+
+	@Test
+	void reportsWaitWhenEmpty() {
+		RateLimiter limiter = new RateLimiter(1, 0.001);
+
+		assertTrue(limiter.tryAcquire(player));
+		assertFalse(limiter.tryAcquire(player));
+		assertTrue(limiter.getWaitMillis(player) > 900_000);
+	}
+
+	@Test
+	void rejectsInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(0, 1));
+		assertThrows(IllegalArgumentException.class, () -> new RateLimiter(1, 0));
+	}
+}
@@ -0,0 +1,82 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static uk.co.notnull.prefixes.TestRegistries.colour;
+import static uk.co.notnull.prefixes.TestRegistries.prefix;
+
+class SearchIndexTest {
+	private final SearchIndex index = TestRegistries.create(
+			1, List.of(colour("red", "<red>")),
+			List.of(prefix("vip", "<colourstart>VIP", "red", null, "Supporter rank"),
+					prefix("vipplus", "<colourstart>VIP+", "red", null, "Supporter rank, with extras"),
+					prefix("admin", "<colourstart>Admin", "red", null, "Server staff"),
+					prefix("moderator", "<colourstart>Mod", "red"))).getSearchIndex();
+
+	private List<String> search(String query) {
+		return index.search(query).stream().map(Prefix::getId).toList();
+	}
+
+	@Test
+	void ranksExactIdFirst() {
+		assertEquals(List.of("vip", "vipplus"), search("vip"));
+		assertEquals(List.of("vipplus"), search("vipplus"));
+	}
+
+	@Test
+	void matchesDescriptions() {
+		assertEquals(List.of("admin"), search("staff"));
+		assertEquals(List.of("vipplus"), search("extras"));
+	}
+
+	@Test
+	void toleratesTypos() {
+		assertTrue(search("admn").contains("admin"));
+		assertTrue(search("moderater").contains("moderator"));
+	}
+
+	@Test
+	void matchesShortQueriesBySubstring() {
+		assertEquals(List.of("admin"), search("ad"));
+		assertEquals(List.of("moderator"), search("mo"));
+	}
+
+	@Test
+	void ignoresCaseAndWhitespace() {
+		assertEquals(search("supporter rank"), search("  SUPPORTER   Rank "));
+	}
+
+	@Test
+	void returnsNothingForUnmatchedQueries() {
+		assertTrue(search("").isEmpty());
+		assertTrue(search("   ").isEmpty());
+		assertTrue(search("xyzzy").isEmpty());
+		assertTrue(search("q").isEmpty());
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class SelectionIndexTest {
+	@TempDir
+	Path directory;
+
+	private SelectionIndex index;
+
+	@AfterEach
+	void tearDown() {
+		if (index != null) {
+			index.close();
+		}
+	}
+
+	private SelectionIndex open() throws IOException {
+		if (index != null) {
+			index.close();
+		}
+
+		index = new SelectionIndex(directory);
+		index.open();
+		return index;
+	}
+
+	@Test
+	void storesAndReopensSelections() throws IOException {
+		UUID player = UUID.randomUUID();
+		UUID cleared = UUID.randomUUID();
+
+		open().put(player, "vip", "red", 100, false);
+		index.put(cleared, null, null, 200, false);
+
+		open();
+
+		assertEquals(2, index.size());
+		assertEquals(new SelectionIndex.Entry("vip", "red", 100), index.get(player));
+		assertEquals(new SelectionIndex.Entry(null, null, 200), index.get(cleared));
+		assertNull(index.get(UUID.randomUUID()));
+	}
+
+	@Test
+	void keepsNewerSelectionsUnlessReplacing() throws IOException {
+		UUID player = UUID.randomUUID();
+
+		open().put(player, "vip", "red", 200, false);
+		index.put(player, "mod", "blue", 100, false);
+
+		assertEquals(new SelectionIndex.Entry("vip", "red", 200), index.get(player));
+
+		index.put(player, "mod", "blue", 100, true);
+
+		assertEquals(new SelectionIndex.Entry("mod", "blue", 100), index.get(player));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	void resizesPastInitialCapacity() throws IOException {
+		List<UUID> players = new ArrayList<>();
+
+		open();
+
+		for (int i = 0; i < 5000; i++) {
+			UUID player = UUID.randomUUID();
+			players.add(player);
+			index.put(player, "prefix" + (i % 50), "colour" + (i % 7), i, false);
+		}
+
+		open();
+
+		assertEquals(players.size(), index.size());
+
+		for (int i = 0; i < players.size(); i++) {
+			assertEquals(new SelectionIndex.Entry("prefix" + (i % 50), "colour" + (i % 7), i),
+						 index.get(players.get(i)));
+		}
+	}
+
+	@Test
+	void retainRemovesOldUnknownPlayers() throws IOException {
+		UUID kept = UUID.randomUUID();
+		UUID removed = UUID.randomUUID();
+		UUID recent = UUID.randomUUID();
+
+		open().put(kept, "vip", "red", 100, false);
+		index.put(removed, "vip", "red", 100, false);
+		index.put(recent, "vip", "red", 500, false);
+
+		Set<UUID> known = new HashSet<>(Set.of(kept));
+
+		assertEquals(1, index.retain(known, 400));
+		assertEquals(2, index.size());
+		assertNull(index.get(removed));
+		assertEquals(new SelectionIndex.Entry("vip", "red", 100), index.get(kept));
+		assertEquals(new SelectionIndex.Entry("vip", "red", 500), index.get(recent));
+	}
+
+	@Test
+	void recreatesInvalidIndex() throws IOException {
+		UUID player = UUID.randomUUID();
+
+		open().put(player, "vip", "red", 100, false);
+		index.close();
+		index = null;
+
+		Files.write(directory.resolve("selections.bin"), new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+		open();
+
+		assertEquals(0, index.size());
+		assertNull(index.get(player));
+
+		index.put(player, "mod", "blue", 200, false);
+		assertEquals(new SelectionIndex.Entry("mod", "blue", 200), index.get(player));
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardLoaderTest {
+	private static final String SHARD = """
+			colours:
+			  red:
+			    start: "<red>"
+			    permission: prefixes.colour.red
+			prefixes:
+			  vip:
+			    prefix: "<colourstart>VIP"
+			    default-colour: red
+			    category: ranks
+			    allowed-colours: [red]
+			    frames: ["<colourstart>V", "<colourstart>VIP"]
+			""";
+
+	// Magic, content hash and checksum
+	private static final int HEADER_LENGTH = 4 + 32 + 4;
+
+	@TempDir
+	Path directory;
+
+	private Path shardDirectory;
+	private Path cacheDirectory;
+	private ShardLoader loader;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		shardDirectory = Files.createDirectories(directory.resolve("prefixes.d"));
+		cacheDirectory = directory.resolve("cache");
+		loader = new ShardLoader(shardDirectory, cacheDirectory, TestRegistries.LOGGER);
+	}
+
+	private static ConfigShard other() {
+		return new ConfigShard("vip.yml", List.of(TestRegistries.colour("blue", "<blue>")),
+							   List.of(TestRegistries.prefix("mod", "<colourstart>Mod", "blue")));
+	}
+
+	/**
+	 * Replaces the shard encoded in the given cache file, keeping its content hash and computing a valid checksum
+	 */
+	private static void rewriteCache(Path cacheFile, byte[] encoded) throws IOException {
+		byte[] header = Arrays.copyOf(Files.readAllBytes(cacheFile), HEADER_LENGTH - 4);
+		CRC32C crc = new CRC32C();
+		crc.update(encoded);
+
+		Files.write(cacheFile, ByteBuffer.allocate(HEADER_LENGTH + encoded.length)
+				.put(header)
+				.putInt((int) crc.getValue())
+				.put(encoded)
+				.array());
+	}
+
+	@Test
+	void parsesAndCachesShards() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+
+		List<ConfigShard> shards = loader.load();
+
+		assertEquals(1, shards.size());
+		ConfigShard.PrefixDefinition vip = shards.get(0).prefixes().get(0);
+		assertEquals("vip", vip.id());
+		assertEquals("ranks", vip.category());
+		assertEquals(List.of("red"), vip.allowedColours());
+		assertEquals(2, vip.frames().size());
+		assertEquals("prefixes.colour.red", shards.get(0).colours().get(0).permission());
+
+		assertTrue(Files.isRegularFile(cacheDirectory.resolve("vip.yml.bin")));
+		assertEquals(shards, loader.load());
+	}
+
+	@Test
+	void roundTripsEncodedShards() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+		ConfigShard shard = loader.load().get(0);
+
+		assertEquals(shard, ConfigShard.decode("vip.yml", ByteBuffer.wrap(shard.encode())));
+		assertEquals(other(), ConfigShard.decode("vip.yml", ByteBuffer.wrap(other().encode())));
+	}
+
+	@Test
+	void loadsUnchangedShardsFromCache() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+		loader.load();
+
+		rewriteCache(cacheDirectory.resolve("vip.yml.bin"), other().encode());
+
+		assertEquals(List.of(other()), loader.load());
+	}
+
+	@Test
+	void reparsesChangedShards() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+		loader.load();
+
+		rewriteCache(cacheDirectory.resolve("vip.yml.bin"), other().encode());
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD.replace("VIP", "VIP+"));
+
+		assertEquals("<colourstart>VIP+", loader.load().get(0).prefixes().get(0).prefix());
+	}
+
+	@Test
+	void rejectsCorruptCache() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+		List<ConfigShard> shards = loader.load();
+
+		Path cacheFile = cacheDirectory.resolve("vip.yml.bin");
+		byte[] valid = Files.readAllBytes(cacheFile);
+		byte[] corrupt = valid.clone();
+		corrupt[corrupt.length - 1] ^= 1;
+		Files.write(cacheFile, corrupt);
+
+		assertEquals(shards, loader.load());
+		assertArrayEquals(valid, Files.readAllBytes(cacheFile));
+	}
+
+	@Test
+	void rejectsOtherCacheVersions() throws IOException {
+		Files.writeString(shardDirectory.resolve("vip.yml"), SHARD);
+		List<ConfigShard> shards = loader.load();
+
+		byte[] encoded = other().encode();
+		encoded[0] = ConfigShard.VERSION + 1;
+		rewriteCache(cacheDirectory.resolve("vip.yml.bin"), encoded);
+
+		assertThrows(IllegalArgumentException.class, () -> ConfigShard.decode("vip.yml", ByteBuffer.wrap(encoded)));
+		assertEquals(shards, loader.load());
+	}
+
+	@Test
+	void rejectsTruncatedEncoding() {
+		byte[] encoded = other().encode();
+
+		assertThrows(IllegalArgumentException.class, () -> ConfigShard.decode(
+				"vip.yml", ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+	}
+
+	@Test
+	void removesStaleCaches() throws IOException {
+		Files.writeString(shardDirectory.resolve("a.yml"), SHARD);
+		Files.writeString(shardDirectory.resolve("b.yml"), SHARD.replace("vip", "mod"));
+		assertEquals(2, loader.load().size());
+
+		Files.delete(shardDirectory.resolve("a.yml"));
+
+		assertEquals("b.yml", loader.load().get(0).name());
+		assertFalse(Files.exists(cacheDirectory.resolve("a.yml.bin")));
+		assertTrue(Files.exists(cacheDirectory.resolve("b.yml.bin")));
+	}
+
+	@Test
+	void loadsNothingWithoutShardDirectory() throws IOException {
+		Files.delete(shardDirectory);
+
+		assertTrue(loader.load().isEmpty());
+	}
+}
@@ -0,0 +1,60 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.spongepowered.configurate.BasicConfigurationNode;
+
+import java.util.List;
+
+/**
+ * Builds registries from config definitions for tests
+ */
+final class TestRegistries {
+	static final Logger LOGGER = LoggerFactory.getLogger("Prefixes");
+
+	private TestRegistries() {
+	}
+
+	static PrefixRegistry create(int generation, List<ConfigShard.ColourDefinition> colours,
+								 List<ConfigShard.PrefixDefinition> prefixes) {
+		return PrefixRegistry.load(List.of(new ConfigShard("test", colours, prefixes)), BasicConfigurationNode.root(),
+								   null, generation, LOGGER);
+	}
+
+	static ConfigShard.ColourDefinition colour(String id, String start) {
+		return new ConfigShard.ColourDefinition(id, start, "", null, null, false, false);
+	}
+
+	static ConfigShard.PrefixDefinition prefix(String id, String prefix, String defaultColour) {
+		return prefix(id, prefix, defaultColour, null, null);
+	}
+
+	static ConfigShard.PrefixDefinition prefix(String id, String prefix, String defaultColour,
+											   @Nullable String permission, @Nullable String description) {
+		return new ConfigShard.PrefixDefinition(id, prefix, permission, description, defaultColour, false, false, null,
+												null, null, null);
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+	private final List<String> expired = new ArrayList<>();
+	private final TimingWheel<String> wheel = new TimingWheel<>(100, 8, expired::add);
+	private final long now = System.currentTimeMillis();
+
+	@Test
+	void firesAtDeadline() {
+		wheel.schedule("a", now + 300);
+
+		wheel.tick(now + 100);
+		assertTrue(expired.isEmpty());
+
+		wheel.tick(now + 400);
+		assertEquals(List.of("a"), expired);
+		assertFalse(wheel.isScheduled("a"));
+		assertEquals(0, wheel.size());
+	}
+
+	@Test
+	void keepsDeadlinesBeyondOneRevolution() {
+		wheel.schedule("far", now + 2000);
+
+		// Passes the key's slot several times before its deadline
+		for (long time = now; time < now + 1900; time += 100) {
+			wheel.tick(time);
+		}
+
+		assertTrue(expired.isEmpty());
+		assertTrue(wheel.isScheduled("far"));
+
+		wheel.tick(now + 2100);
+		assertEquals(List.of("far"), expired);
+	}
+
+	@Test
+	void catchesUpMissedTicks() {
+		wheel.schedule("a", now + 200);
+		wheel.schedule("b", now + 500);
+		wheel.schedule("c", now + 5000);
+
+		wheel.tick(now + 3000);
+
+		assertEquals(2, expired.size());
+		assertTrue(expired.containsAll(List.of("a", "b")));
+		assertTrue(wheel.isScheduled("c"));
+	}
+
+	@Test
+	void pastExpiriesFireOnNextTick() {
+		wheel.schedule("late", now - 10000);
+
+		wheel.tick(now + 100);
+
+		assertEquals(List.of("late"), expired);
+	}
+
+	@Test
+	void rescheduleReplacesExpiry() {
+		wheel.schedule("a", now + 200);
+		wheel.schedule("a", now + 600);
+
+		assertEquals(1, wheel.size());
+
+		wheel.tick(now + 300);
+		assertTrue(expired.isEmpty());
+
+		wheel.tick(now + 700);
+		assertEquals(List.of("a"), expired);
+	}
+
+	@Test
+	void cancelPreventsExpiry() {
+		wheel.schedule("a", now + 200);
+
+		assertTrue(wheel.cancel("a"));
+		assertFalse(wheel.cancel("a"));
+
+		wheel.tick(now + 1000);
+		assertTrue(expired.isEmpty());
+	}
+
+	@Test
+	void rejectsInvalidSettings() {
+		assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(0, 8, key -> {}));
+		assertThrows(IllegalArgumentException.class, () -> new TimingWheel<String>(100, 0, key -> {}));
+	}
+}
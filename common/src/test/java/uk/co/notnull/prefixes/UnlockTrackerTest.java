@@ -0,0 +1,140 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class UnlockTrackerTest {
+	private final UUID player = UUID.randomUUID();
+	private final UnlockTracker tracker = new UnlockTracker();
+	private final Set<String> permissions = new HashSet<>();
+
+	private static PrefixRegistry registry(int generation) {
+		return TestRegistries.create(generation, List.of(
+				TestRegistries.colour("red", "<red>"),
+				new ConfigShard.ColourDefinition("gold", "<gold>", "", "colour.gold", null, true, false),
+				new ConfigShard.ColourDefinition("aqua", "<aqua>", "", "colour.aqua", null, true, false),
+				new ConfigShard.ColourDefinition("grey", "<grey>", "", "colour.grey", null, true, true)
+		), List.of(
+				unlockable("vip", "prefix.vip"),
+				unlockable("mvp", "prefix.mvp"),
+				TestRegistries.prefix("staff", "<colourstart>Staff", "red", "prefix.staff", null)
+		));
+	}
+
+	private static ConfigShard.PrefixDefinition unlockable(String id, String permission) {
+		return new ConfigShard.PrefixDefinition(id, "<colourstart>" + id, permission, null, "red", true, false, null,
+												null, null, null);
+	}
+
+	private UnlockTracker.Unlocks update(PrefixRegistry registry) {
+		return tracker.update(player, registry, permissions::contains);
+	}
+
+	private static List<String> ids(UnlockTracker.Unlocks unlocks) {
+		return unlocks.prefixes().stream().map(Prefix::getId).toList();
+	}
+
+	private static List<String> colourIds(UnlockTracker.Unlocks unlocks) {
+		return unlocks.colours().stream().map(PrefixColour::getId).toList();
+	}
+
+	@Test
+	void firstUpdateOnlyRecordsState() {
+		PrefixRegistry registry = registry(1);
+		permissions.add("prefix.vip");
+
+		assertNull(update(registry));
+		assertNull(update(registry));
+	}
+
+	@Test
+	void reportsNewlyUnlockedItems() {
+		PrefixRegistry registry = registry(1);
+		tracker.reset(player, registry, permissions::contains);
+
+		permissions.add("prefix.vip");
+		permissions.add("colour.aqua");
+		UnlockTracker.Unlocks unlocks = update(registry);
+
+		assertNotNull(unlocks);
+		assertEquals(List.of("vip"), ids(unlocks));
+		assertEquals(List.of("aqua"), colourIds(unlocks));
+
+		permissions.add("prefix.mvp");
+		unlocks = update(registry);
+
+		assertNotNull(unlocks);
+		assertEquals(List.of("mvp"), ids(unlocks));
+		assertEquals(List.of(), colourIds(unlocks));
+	}
+
+	@Test
+	void ignoresLostAndNonUnlockableItems() {
+		PrefixRegistry registry = registry(1);
+		permissions.add("prefix.vip");
+		tracker.reset(player, registry, permissions::contains);
+
+		permissions.remove("prefix.vip");
+		assertNull(update(registry));
+
+		// Neither a prefix which isn't unlockable nor a retired colour is reported
+		permissions.add("prefix.staff");
+		permissions.add("colour.grey");
+		assertNull(update(registry));
+
+		// Regaining a lost item counts as unlocking it again
+		permissions.add("prefix.vip");
+		assertEquals(List.of("vip"), ids(update(registry)));
+	}
+
+	@Test
+	void registryChangeOnlyRecordsState() {
+		tracker.reset(player, registry(1), permissions::contains);
+
+		permissions.add("prefix.vip");
+
+		assertNull(update(registry(2)));
+		assertNull(update(registry(2)));
+	}
+
+	@Test
+	void removedPlayersStartAgain() {
+		PrefixRegistry registry = registry(1);
+		tracker.reset(player, registry, permissions::contains);
+		tracker.remove(player);
+
+		permissions.add("prefix.vip");
+
+		assertNull(update(registry));
+	}
+}
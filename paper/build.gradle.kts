@@ -0,0 +1,15 @@
+dependencies {
+    implementation(project(":Prefixes-common"))
+
+    compileOnly(libs.paperApi)
+}
+
+tasks {
+    jar {
+        from(project(":Prefixes-common").sourceSets.main.get().output)
+    }
+
+    processResources {
+        expand("version" to project.version)
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes.paper;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
+import uk.co.notnull.prefixes.ConfigShard;
+import uk.co.notnull.prefixes.PrefixRegistry;
+import uk.co.notnull.prefixes.PrefixRender;
+import uk.co.notnull.prefixes.PrefixSyncMessage;
+import uk.co.notnull.prefixes.PrefixSyncReceiver;
+import uk.co.notnull.prefixes.ShardLoader;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Paper adapter for Prefixes
+ * Receives the prefixes published by the proxy over the prefixes:sync channel, so other plugins on the backend can
+ * show them without querying LuckPerms. If a config.yml is present in the data folder, the same prefixes, colours
+ * and categories as the proxy are also loaded into a local registry.
+ */
+public final class PrefixesPaper extends JavaPlugin implements Listener, PluginMessageListener {
+	private static PrefixesPaper instance;
+
+	private final PrefixSyncReceiver receiver = new PrefixSyncReceiver();
+	private volatile PrefixRegistry registry = PrefixRegistry.empty();
+
+	@Override
+	public void onEnable() {
+		instance = this;
+
+		loadRegistry();
+
+		getServer().getMessenger().registerIncomingPluginChannel(this, PrefixSyncMessage.CHANNEL, this);
+		getServer().getPluginManager().registerEvents(this, this);
+	}
+
+	@Override
+	public void onDisable() {
+		getServer().getMessenger().unregisterIncomingPluginChannel(this);
+	}
+
+	/**
+	 * Loads the local registry from config.yml and any config shards in the data folder
+	 * The registry is left empty if there is no config.yml, as received prefixes are already rendered.
+	 *
+	 * @return - Whether the registry was loaded
+	 */
+	public boolean loadRegistry() {
+		Path dataDirectory = getDataFolder().toPath();
+		Path configFile = dataDirectory.resolve("config.yml");
+		Logger logger = getSLF4JLogger();
+
+		if (!Files.exists(configFile)) {
+			return false;
+		}
+
+		try {
+			ConfigurationNode configuration = YamlConfigurationLoader.builder().path(configFile).build().load();
+
+			// Main config is loaded first, followed by shards in filename order
+			List<ConfigShard> shards = new ArrayList<>();
+			shards.add(ConfigShard.parse("config.yml", configuration, logger));
+			shards.addAll(new ShardLoader(dataDirectory.resolve("prefixes.d"),
+										  dataDirectory.resolve("cache").resolve("shards"), logger).load());
+
+			registry = PrefixRegistry.load(shards, configuration.node("categories"),
+										   PrefixRender.Truncation.fromConfig(configuration.node("bedrock-truncation")),
+										   registry.getGeneration() + 1, logger);
+			logger.info("Loaded " + registry.getPrefixes().size() + " prefixes and "
+								+ registry.getColours().size() + " colours");
+
+			return true;
+		} catch (IOException e) {
+			logger.error("Failed to load config", e);
+			return false;
+		}
+	}
+
+	@Override
+	public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte @NotNull [] message) {
+		if (!channel.equals(PrefixSyncMessage.CHANNEL)) {
+			return;
+		}
+
+		try {
+			receiver.handle(message);
+		} catch (IOException e) {
+			getSLF4JLogger().warn("Ignoring malformed prefix sync message", e);
+		}
+	}
+
+	@EventHandler
+	public void onPlayerQuit(PlayerQuitEvent event) {
+		receiver.remove(event.getPlayer().getUniqueId());
+	}
+
+	/**
+	 * Gets the prefix most recently published by the proxy for the given player
+	 *
+	 * @param player - The player
+	 * @return - The prefix, or an empty component if the player has no prefix
+	 */
+	public Component getPrefix(@NotNull Player player) {
+		return MiniMessage.miniMessage().deserialize(receiver.getRendered(player.getUniqueId()));
+	}
+
+	public PrefixSyncReceiver getReceiver() {
+		return receiver;
+	}
+
+	/**
+	 * Gets the local registry
+	 * Ordinals in the local registry are not comparable with those received from the proxy.
+	 *
+	 * @return - The registry, empty if no config.yml has been provided
+	 */
+	public PrefixRegistry getRegistry() {
+		return registry;
+	}
+
+	public static PrefixesPaper getInstance() {
+		return instance;
+	}
+}
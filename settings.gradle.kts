@@ -1,2 +1,7 @@
 rootProject.name = "Prefixes"
 
+include("Prefixes-common", "Prefixes-velocity", "Prefixes-paper")
+
+project(":Prefixes-common").projectDir = file("common")
+project(":Prefixes-velocity").projectDir = file("velocity")
+project(":Prefixes-paper").projectDir = file("paper")
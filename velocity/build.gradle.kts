@@ -0,0 +1,19 @@
+dependencies {
+    implementation(project(":Prefixes-common"))
+
+    compileOnly(libs.velocityApi)
+    compileOnly(libs.luckpermsApi)
+    compileOnly(libs.platformDetection)
+
+    annotationProcessor(libs.velocityApi)
+}
+
+tasks {
+    jar {
+        from(project(":Prefixes-common").sourceSets.main.get().output)
+    }
+
+    processResources {
+        expand("version" to project.version)
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package uk.co.notnull.prefixes;
+
+import com.velocitypowered.api.scheduler.ScheduledTask;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Advances the frames of animated prefixes
+ * A single task advances a global frame counter, which every animated prefix uses to select its current pre-rendered
+ * frame. Only players whose active selection is animated are tracked, and each tick only marks their tab list entries
+ * as dirty, so the cost of animation scales with the number of animated prefixes in use rather than online players.
+ */
+public class AnimationTicker {
+	private final Prefixes plugin;
+	private final long interval;
+
+	private final Set<UUID> animated = ConcurrentHashMap.newKeySet();
+	private final AtomicLong tick = new AtomicLong();
+	private @Nullable ScheduledTask task;
+
+	public AnimationTicker(Prefixes plugin, long interval) {
+		this.plugin = plugin;
+		this.interval = interval;
+	}
+
+	public synchronized void start() {
+		if (task == null) {
+			task = plugin.getProxy().getScheduler().buildTask(plugin, this::advance)
+					.repeat(interval, TimeUnit.MILLISECONDS)
+					.schedule();
+		}
+	}
+
+	public synchronized void stop() {
+		if (task != null) {
+			task.cancel();
+			task = null;
+		}
+	}
+
+	/**
+	 * Updates whether the given player's tab list entry needs to be animated
+	 *
+	 * @param uuid - The player's uuid
+	 * @param selection - The player's active selection, or null if they have none
+	 */
+	public void update(@NotNull UUID uuid, @Nullable PrefixSelection selection) {
+		if (selection != null && selection.prefix().isAnimated()) {
+			animated.add(uuid);
+		} else {
+			animated.remove(uuid);
+		}
+	}
+
+	public void remove(@NotNull UUID uuid) {
+		animated.remove(uuid);
+	}
+
+	/**
+	 * Gets the current animation tick, used to select the frame of each animated prefix
+	 *
+	 * @return - The tick
+	 */
+	public long getTick() {
+		return tick.get();
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	private void advance() {
+		tick.incrementAndGet();
+
+		if (animated.isEmpty()) {
+			return;
+		}
+
+		TabListUpdater updater = plugin.getTabListUpdater();
+
+		if (updater != null) {
+			updater.markDirty(animated);
+		}
+	}
+}
@@ -0,0 +1,1352 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2022 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import com.mojang.brigadier.arguments.IntegerArgumentType;
+import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.LiteralArgumentBuilder;
+import com.mojang.brigadier.builder.RequiredArgumentBuilder;
+import com.mojang.brigadier.context.CommandContext;
+import com.mojang.brigadier.suggestion.SuggestionProvider;
+import com.mojang.brigadier.suggestion.Suggestions;
+import com.mojang.brigadier.suggestion.SuggestionsBuilder;
+import com.velocitypowered.api.command.BrigadierCommand;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brigadier tree for the /prefix command
+ * Arguments use vanilla argument types so the tree can be sent to clients, and are resolved into prefixes, colours
+ * and players by the handlers below. Suggestions are served from the indexes built when the config is loaded.
+ */
+public final class Command {
+	private static final int SUCCESS = com.mojang.brigadier.Command.SINGLE_SUCCESS;
+	private static final Duration MAX_DURATION = Duration.ofDays(3650);
+	private static final Pattern DURATION_PATTERN = Pattern.compile("(\\d+)([smhdw])");
+	private static final int DEFAULT_AUDIT_LIMIT = 10;
+	private static final DateTimeFormatter AUDIT_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+			.withZone(ZoneId.systemDefault());
+
+	private Command() {
+	}
+
+	public static BrigadierCommand create() {
+		LiteralArgumentBuilder<CommandSource> root = LiteralArgumentBuilder.<CommandSource>literal("prefix")
+				.executes(ctx -> Prefixes.getInstance().isCategoriesEnabled()
+						? handleCategoriesCommand(ctx.getSource(), 1)
+						: handleListCommand(ctx.getSource(), 1));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("reload")
+						  .requires(source -> source.hasPermission("prefixes.reload"))
+						  .executes(ctx -> {
+							  if (!Prefixes.getInstance().reload()) {
+								  return error(ctx.getSource(), "errors.reload-failed");
+							  }
+
+							  Messages.sendComponent(ctx.getSource(), "reload-success");
+							  return SUCCESS;
+						  })
+						  .then(LiteralArgumentBuilder.<CommandSource>literal("--dry-run")
+										.executes(ctx -> handleReloadPreviewCommand(ctx.getSource()))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("stats")
+						  .requires(source -> source.hasPermission("prefixes.stats"))
+						  .executes(ctx -> handleStatsCommand(ctx.getSource())));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("audit")
+						  .requires(source -> source.hasPermission("prefixes.audit"))
+						  .executes(ctx -> error(ctx.getSource(), "errors.unknown-player"))
+						  .then(playerArgument()
+										.executes(ctx -> handleAuditCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "player"),
+												DEFAULT_AUDIT_LIMIT))
+										.then(RequiredArgumentBuilder.<CommandSource, Integer>argument(
+												"limit", IntegerArgumentType.integer(1, 50))
+													  .executes(ctx -> handleAuditCommand(
+															  ctx.getSource(),
+															  StringArgumentType.getString(ctx, "player"),
+															  IntegerArgumentType.getInteger(ctx, "limit"))))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("index")
+						  .requires(source -> source.hasPermission("prefixes.index"))
+						  .then(LiteralArgumentBuilder.<CommandSource>literal("rebuild")
+										.executes(ctx -> handleIndexRebuildCommand(ctx.getSource()))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("export")
+						  .requires(source -> source.hasPermission("prefixes.export"))
+						  .executes(ctx -> handleExportCommand(ctx.getSource(), "csv"))
+						  .then(RequiredArgumentBuilder.<CommandSource, String>argument("format", StringArgumentType.word())
+										.suggests((ctx, builder) -> {
+											for (SelectionExporter.Format format : SelectionExporter.Format.values()) {
+												builder.suggest(format.getExtension());
+											}
+
+											return builder.buildFuture();
+										})
+										.executes(ctx -> handleExportCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "format")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("list")
+						  .executes(ctx -> handleListCommand(ctx.getSource(), 1))
+						  .then(pageArgument()
+										.executes(ctx -> handleListCommand(
+												ctx.getSource(), IntegerArgumentType.getInteger(ctx, "page")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("categories")
+						  .executes(ctx -> handleCategoriesCommand(ctx.getSource(), 1))
+						  .then(pageArgument()
+										.executes(ctx -> handleCategoriesCommand(
+												ctx.getSource(), IntegerArgumentType.getInteger(ctx, "page")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("category")
+						  .executes(ctx -> handleCategoriesCommand(ctx.getSource(), 1))
+						  .then(categoryArgument()
+										.executes(ctx -> handleCategoryCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "category"), 1))
+										.then(pageArgument()
+													  .executes(ctx -> handleCategoryCommand(
+															  ctx.getSource(),
+															  StringArgumentType.getString(ctx, "category"),
+															  IntegerArgumentType.getInteger(ctx, "page"))))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("search")
+						  .executes(ctx -> error(ctx.getSource(), "errors.no-search-query"))
+						  .then(RequiredArgumentBuilder.<CommandSource, String>argument("query",
+																						StringArgumentType.greedyString())
+										.executes(ctx -> handleSearchCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "query")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("set")
+						  .executes(ctx -> error(ctx.getSource(), "errors.no-prefix"))
+						  .then(prefixArgument()
+										.executes(ctx -> handleSetCommand(ctx, false, false))
+										.then(colourArgument()
+													  .executes(ctx -> handleSetCommand(ctx, true, false))
+													  .then(serverArgument()
+																	.executes(ctx -> handleSetCommand(ctx, true, true))))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("setfor")
+						  .requires(source -> source.hasPermission("prefixes.change-others"))
+						  .executes(ctx -> error(ctx.getSource(), "errors.unknown-player"))
+						  .then(playerArgument()
+										.executes(ctx -> error(ctx.getSource(), "errors.no-prefix"))
+										.then(prefixArgument()
+													  .executes(ctx -> error(ctx.getSource(), "errors.no-colour"))
+													  .then(colourArgument()
+																	.executes(ctx -> handleSetForCommand(ctx, false))
+																	.then(RequiredArgumentBuilder.<CommandSource, String>argument(
+																			"duration", StringArgumentType.word())
+																				  .executes(ctx -> handleSetForCommand(ctx, true)))))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("bulk")
+						  .requires(source -> source.hasPermission("prefixes.bulk"))
+						  .then(LiteralArgumentBuilder.<CommandSource>literal("set")
+										.executes(ctx -> error(ctx.getSource(), "errors.no-prefix"))
+										.then(prefixArgument()
+													  .executes(ctx -> error(ctx.getSource(), "errors.no-colour"))
+													  .then(colourArgument()
+																	.executes(ctx -> error(ctx.getSource(), "errors.no-selector"))
+																	.then(selectorArgument()
+																				  .executes(ctx -> handleBulkCommand(ctx, true))))))
+						  .then(LiteralArgumentBuilder.<CommandSource>literal("clear")
+										.executes(ctx -> error(ctx.getSource(), "errors.no-selector"))
+										.then(selectorArgument()
+													  .executes(ctx -> handleBulkCommand(ctx, false)))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("clear")
+						  .executes(ctx -> handleClearCommand(ctx.getSource(), null))
+						  .then(playerArgument()
+										.requires(source -> source.hasPermission("prefixes.change-others"))
+										.executes(ctx -> handleClearCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "player")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("undo")
+						  .executes(ctx -> handleUndoCommand(ctx.getSource())));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("history")
+						  .executes(ctx -> handleHistoryCommand(ctx.getSource(), null))
+						  .then(playerArgument()
+										.requires(source -> source.hasPermission("prefixes.history-others"))
+										.executes(ctx -> handleHistoryCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "player")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("unset")
+						  .executes(ctx -> error(ctx.getSource(), "errors.no-server"))
+						  .then(serverArgument()
+										.executes(ctx -> handleUnsetCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "server")))));
+
+		root.then(LiteralArgumentBuilder.<CommandSource>literal("colours")
+						  .executes(ctx -> handleColourCommand(ctx.getSource(), null, 1))
+						  .then(prefixArgument()
+										.executes(ctx -> handleColourCommand(
+												ctx.getSource(), StringArgumentType.getString(ctx, "prefix"), 1))
+										.then(pageArgument()
+													  .executes(ctx -> handleColourCommand(
+															  ctx.getSource(),
+															  StringArgumentType.getString(ctx, "prefix"),
+															  IntegerArgumentType.getInteger(ctx, "page"))))));
+
+		return new BrigadierCommand(root.build());
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, Integer> pageArgument() {
+		return RequiredArgumentBuilder.argument("page", IntegerArgumentType.integer(1));
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> prefixArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("prefix", StringArgumentType.word())
+				.suggests(PREFIX_SUGGESTIONS);
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> categoryArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("category", StringArgumentType.word())
+				.suggests(CATEGORY_SUGGESTIONS);
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> colourArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("colour", StringArgumentType.word())
+				.suggests(COLOUR_SUGGESTIONS);
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> playerArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("player", StringArgumentType.word())
+				.suggests(PLAYER_SUGGESTIONS);
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> selectorArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("selectors", StringArgumentType.greedyString())
+				.suggests(SELECTOR_SUGGESTIONS);
+	}
+
+	private static RequiredArgumentBuilder<CommandSource, String> serverArgument() {
+		return RequiredArgumentBuilder.<CommandSource, String>argument("server", StringArgumentType.word())
+				.suggests(SERVER_SUGGESTIONS);
+	}
+
+	private static final SuggestionProvider<CommandSource> PREFIX_SUGGESTIONS = (ctx, builder) -> {
+		Player player = ctx.getSource() instanceof Player source ? source : null;
+
+		for (Prefix prefix : Prefixes.getInstance().getPrefixIndex().startingWith(builder.getRemaining())) {
+			if (player == null || Prefixes.getInstance().isAllowed(player, prefix, false)) {
+				builder.suggest(prefix.getId());
+			}
+		}
+
+		return builder.buildFuture();
+	};
+
+	private static final SuggestionProvider<CommandSource> CATEGORY_SUGGESTIONS = (ctx, builder) -> {
+		for (PrefixCategory category : Prefixes.getInstance().getCategories()) {
+			if (category.getId().toLowerCase().startsWith(builder.getRemainingLowerCase())) {
+				builder.suggest(category.getId());
+			}
+		}
+
+		return builder.buildFuture();
+	};
+
+	private static final SuggestionProvider<CommandSource> COLOUR_SUGGESTIONS = (ctx, builder) -> {
+		Player player = ctx.getSource() instanceof Player source ? source : null;
+		Prefix prefix = Prefixes.getInstance().getPrefix(ctx.getArgument("prefix", String.class));
+
+		if ("default".startsWith(builder.getRemainingLowerCase())) {
+			builder.suggest("default");
+		}
+
+		List<PrefixColour> matches = Prefixes.getInstance().getColourIndex().startingWith(builder.getRemaining());
+
+		if (matches.isEmpty()) {
+			return builder.buildFuture();
+		}
+
+		// Colours the player can use, limited to those compatible with the selected prefix
+		BitSet allowed = player != null
+				? Prefixes.getInstance().getAllowedColourMask(player, false) : null;
+
+		if (prefix != null && allowed != null) {
+			prefix.filterColours(allowed);
+		}
+
+		for (PrefixColour colour : matches) {
+			if (allowed != null ? allowed.get(colour.getOrdinal())
+					: prefix == null || prefix.isColourCompatible(colour)) {
+				builder.suggest(colour.getId());
+			}
+		}
+
+		return builder.buildFuture();
+	};
+
+	private static final SuggestionProvider<CommandSource> PLAYER_SUGGESTIONS = (ctx, builder) -> {
+		for (Player player : Prefixes.getInstance().getProxy().matchPlayer(builder.getRemaining())) {
+			builder.suggest(player.getUsername());
+		}
+
+		return builder.buildFuture();
+	};
+
+	private static final SuggestionProvider<CommandSource> SERVER_SUGGESTIONS = (ctx, builder) -> {
+		if (!Prefixes.getInstance().isPerServerEnabled()) {
+			return Suggestions.empty();
+		}
+
+		for (RegisteredServer server : Prefixes.getInstance().getProxy().matchServer(builder.getRemaining())) {
+			builder.suggest(server.getServerInfo().getName());
+		}
+
+		return builder.buildFuture();
+	};
+
+	private static final SuggestionProvider<CommandSource> SELECTOR_SUGGESTIONS = (ctx, builder) -> {
+		// Only the last of the space separated selectors is completed
+		String remaining = builder.getRemaining();
+		int start = remaining.lastIndexOf(' ') + 1;
+		String selector = remaining.substring(start).toLowerCase(Locale.ROOT);
+		SuggestionsBuilder offset = builder.createOffset(builder.getStart() + start);
+
+		if (selector.startsWith("server:")) {
+			for (RegisteredServer server : Prefixes.getInstance().getProxy().matchServer(selector.substring(7))) {
+				offset.suggest("server:" + server.getServerInfo().getName());
+			}
+		} else if (selector.startsWith("current-prefix:")) {
+			for (Prefix prefix : Prefixes.getInstance().getPrefixIndex().startingWith(selector.substring(15))) {
+				offset.suggest("current-prefix:" + prefix.getId());
+			}
+		} else {
+			for (PlayerSelector.Type type : PlayerSelector.Type.values()) {
+				String suggestion = type == PlayerSelector.Type.ALL ? type.getName() : type.getName() + ":";
+
+				if (suggestion.startsWith(selector)) {
+					offset.suggest(suggestion);
+				}
+			}
+		}
+
+		return offset.buildFuture();
+	};
+
+	private static int error(CommandSource source, String messageId) {
+		Messages.sendComponent(source, messageId);
+		return 0;
+	}
+
+	private static int handleReloadPreviewCommand(CommandSource source) {
+		ReloadPreview preview;
+
+		try {
+			preview = Prefixes.getInstance().previewReload();
+		} catch (IOException e) {
+			Prefixes.getInstance().getLogger().error("Error loading configuration for dry run", e);
+			return error(source, "errors.reload-failed");
+		}
+
+		Messages.sendComponent(source, "reload-preview.header", Map.of(
+				"prefixes", String.valueOf(preview.prefixes()),
+				"colours", String.valueOf(preview.colours()),
+				"players", String.valueOf(preview.players())
+		), Collections.emptyMap());
+
+		if (preview.results().isEmpty() && preview.serverSelectionsChanged() == 0) {
+			Messages.sendComponent(source, "reload-preview.no-changes");
+			return SUCCESS;
+		}
+
+		for (PrefixCheckResult result : List.of(PrefixCheckResult.PREFIX_REMOVED, PrefixCheckResult.COLOUR_REMOVED,
+												PrefixCheckResult.PREFIX_UPDATED)) {
+			if (preview.getCount(result) == 0) {
+				continue;
+			}
+
+			int others = preview.getCount(result) - preview.getSamples(result).size();
+
+			Messages.sendComponent(source, "reload-preview.result", Map.of(
+					"result", result.name().toLowerCase(Locale.ROOT).replace('_', '-'),
+					"count", String.valueOf(preview.getCount(result)),
+					"players", String.join(", ", preview.getSamples(result)) + (others > 0 ? " +" + others : "")
+			), Collections.emptyMap());
+		}
+
+		if (preview.serverSelectionsChanged() > 0) {
+			Messages.sendComponent(source, "reload-preview.server-selections",
+								   Collections.singletonMap("count", String.valueOf(preview.serverSelectionsChanged())),
+								   Collections.emptyMap());
+		}
+
+		return SUCCESS;
+	}
+
+	private static int handleStatsCommand(CommandSource source) {
+		RateLimiter limiter = Prefixes.getInstance().getRateLimiter();
+
+		Messages.sendComponent(source, "stats.header");
+
+		if (limiter != null) {
+			Messages.sendComponent(source, "stats.rate-limit", Map.of(
+					"allowed", String.valueOf(limiter.getAllowedCount()),
+					"rejected", String.valueOf(limiter.getRejectedCount()),
+					"players", String.valueOf(limiter.getTrackedPlayers())
+			), Collections.emptyMap());
+		} else {
+			Messages.sendComponent(source, "stats.rate-limit-disabled");
+		}
+
+		PrefixExecutor executor = Prefixes.getInstance().getExecutor();
+
+		Messages.sendComponent(source, "stats.executor", Map.of(
+				"type", executor.getSettings().type().name().toLowerCase(Locale.ROOT),
+				"queued", String.valueOf(executor.getQueued()),
+				"completed", String.valueOf(executor.getCompletedCount()),
+				"average-wait", String.format(Locale.ROOT, "%.2f", executor.getAverageWaitMillis()),
+				"max-wait", String.format(Locale.ROOT, "%.2f", executor.getMaxWaitMillis())
+		), Collections.emptyMap());
+
+		AuditJournal journal = Prefixes.getInstance().getAuditJournal();
+
+		if (journal != null) {
+			Messages.sendComponent(source, "stats.audit", Map.of(
+					"written", String.valueOf(journal.getWritten()),
+					"dropped", String.valueOf(journal.getDropped())
+			), Collections.emptyMap());
+		}
+
+		SelectionIndex index = Prefixes.getInstance().getSelectionIndex();
+
+		if (index != null) {
+			Messages.sendComponent(source, "stats.index",
+								   Collections.singletonMap("players", String.valueOf(index.size())),
+								   Collections.emptyMap());
+		}
+
+		CircuitBreaker breaker = Prefixes.getInstance().getStorageBreaker();
+
+		if (breaker != null) {
+			Messages.sendComponent(source, "stats.storage", Map.of(
+					"state", breaker.getState().name().toLowerCase(Locale.ROOT).replace('_', '-'),
+					"trips", String.valueOf(breaker.getTrips()),
+					"rejected", String.valueOf(breaker.getRejectedCount())
+			), Collections.emptyMap());
+		}
+
+		return SUCCESS;
+	}
+
+	private static int handleAuditCommand(CommandSource source, String playerName, int limit) {
+		AuditJournal journal = Prefixes.getInstance().getAuditJournal();
+
+		if (journal == null) {
+			return error(source, "errors.audit-disabled");
+		}
+
+		Prefixes.getInstance().lookupUniqueId(playerName).thenAcceptAsync(uuid -> {
+			if (uuid == null) {
+				Messages.sendComponent(source, "errors.audit-unknown-player");
+				return;
+			}
+
+			List<AuditJournal.Event> events;
+
+			try {
+				events = journal.query(uuid, limit);
+			} catch (IOException e) {
+				Prefixes.getInstance().getLogger().error("Failed to read audit journal", e);
+				Messages.sendComponent(source, "errors.audit-failed");
+				return;
+			}
+
+			if (events.isEmpty()) {
+				Messages.sendComponent(source, "errors.no-audit-events",
+									   Collections.singletonMap("player", playerName),
+									   Collections.emptyMap());
+				return;
+			}
+
+			Messages.sendComponent(source, "audit.header", Map.of(
+					"player", playerName,
+					"count", String.valueOf(events.size())
+			), Collections.emptyMap());
+
+			for (AuditJournal.Event event : events) {
+				Messages.sendComponent(source, "audit.item", Map.of(
+						"time", AUDIT_TIME_FORMAT.format(Instant.ofEpochMilli(event.timestamp())),
+						"action", event.action().name().toLowerCase(Locale.ROOT).replace('_', '-'),
+						"outcome", event.outcome().name().toLowerCase(Locale.ROOT),
+						"actor", event.actorName(),
+						"target", event.targetName(),
+						"server", event.server() != null ? event.server() : "global",
+						"old", formatSelection(event.oldPrefix(), event.oldColour()),
+						"new", formatSelection(event.newPrefix(), event.newColour())
+				), Collections.emptyMap());
+			}
+		}, Prefixes.getInstance().getExecutor());
+
+		return SUCCESS;
+	}
+
+	private static int handleIndexRebuildCommand(CommandSource source) {
+		if (Prefixes.getInstance().getSelectionIndex() == null) {
+			return error(source, "errors.index-unavailable");
+		}
+
+		Messages.sendComponent(source, "index.rebuild-started");
+
+		Prefixes.getInstance().rebuildSelectionIndex(progressReporter(source, "index.rebuild-progress"))
+				.whenComplete((count, e) -> {
+					if (e != null) {
+						Prefixes.getInstance().getLogger().error("Failed to rebuild selection index", e);
+						Messages.sendComponent(source, "errors.index-rebuild-failed");
+					} else if (count == null) {
+						Messages.sendComponent(source, "errors.index-rebuild-running");
+					} else {
+						Messages.sendComponent(source, "index.rebuild-complete",
+											   Collections.singletonMap("count", String.valueOf(count)),
+											   Collections.emptyMap());
+					}
+				});
+
+		return SUCCESS;
+	}
+
+	private static int handleExportCommand(CommandSource source, String formatName) {
+		SelectionExporter.Format format;
+
+		try {
+			format = SelectionExporter.Format.valueOf(formatName.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			Messages.sendComponent(source, "errors.invalid-export-format",
+								   Collections.singletonMap("format", formatName),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		Messages.sendComponent(source, "export.started");
+
+		Prefixes.getInstance().exportSelections(format, progressReporter(source, "export.progress"))
+				.whenComplete((exporter, e) -> {
+					if (e != null) {
+						Prefixes.getInstance().getLogger().error("Failed to export prefix selections", e);
+						Messages.sendComponent(source, "errors.export-failed");
+					} else if (exporter == null) {
+						Messages.sendComponent(source, "errors.export-running");
+					} else {
+						Messages.sendComponent(source, "export.complete", Map.of(
+								"rows", String.valueOf(exporter.getRows()),
+								"file", exporter.getFile().getFileName().toString()
+						), Collections.emptyMap());
+					}
+				});
+
+		return SUCCESS;
+	}
+
+	/**
+	 * Creates a progress callback for long running tasks, which sends the given message to the given source every 10%
+	 *
+	 * @param source - The command source
+	 * @param messageId - The progress message
+	 * @return - The progress callback
+	 */
+	private static BiConsumer<Integer, Integer> progressReporter(CommandSource source, String messageId) {
+		AtomicInteger reported = new AtomicInteger();
+
+		return (processed, total) -> {
+			int percent = (int) (processed * 100L / Math.max(total, 1));
+
+			if (percent / 10 > reported.get() / 10 && processed < total) {
+				reported.set(percent);
+				Messages.sendComponent(source, messageId, Map.of(
+						"processed", String.valueOf(processed),
+						"total", String.valueOf(total),
+						"percent", String.valueOf(percent)
+				), Collections.emptyMap());
+			}
+		};
+	}
+
+	private static String formatSelection(@Nullable String prefix, @Nullable String colour) {
+		if (prefix == null) {
+			return "none";
+		}
+
+		return colour != null ? prefix + "/" + colour : prefix;
+	}
+
+	private static int handleListCommand(CommandSource source, int page) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		Prefixes.getInstance().sendPrefixList(player, page);
+		return SUCCESS;
+	}
+
+	private static int handleCategoriesCommand(CommandSource source, int page) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		if (!Prefixes.getInstance().isCategoriesEnabled()) {
+			Prefixes.getInstance().sendPrefixList(player, page);
+		} else {
+			Prefixes.getInstance().sendCategoryMenu(player, page);
+		}
+
+		return SUCCESS;
+	}
+
+	private static int handleCategoryCommand(CommandSource source, String categoryId, int page) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		PrefixCategory category = Prefixes.getInstance().getCategory(categoryId);
+
+		if (category == null) {
+			Messages.sendComponent(player, "errors.invalid-category",
+								   Collections.singletonMap("category", categoryId),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		if (category.isLocked(player::hasPermission)) {
+			Messages.sendComponent(player, "errors.category-locked",
+								   Collections.singletonMap("category", category.getName()),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		Prefixes.getInstance().sendCategoryList(player, category, page);
+		return SUCCESS;
+	}
+
+	private static int handleSearchCommand(CommandSource source, String input) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		// The query can contain spaces, so a trailing number after other words is taken as the page
+		String query = input.trim();
+		int page = 1;
+		int separator = query.lastIndexOf(' ');
+
+		if (separator > 0 && query.substring(separator + 1).matches("[1-9][0-9]{0,8}")) {
+			page = Integer.parseInt(query.substring(separator + 1));
+			query = query.substring(0, separator);
+		}
+
+		// Query is included in messages and pagination commands, so restrict it to safe characters
+		String sanitised = query.replaceAll("[^\\p{L}\\p{N} _.!?-]", "").trim();
+
+		if (sanitised.isEmpty()) {
+			return error(source, "errors.no-search-query");
+		}
+
+		Prefixes.getInstance().sendPrefixSearch(player, sanitised.substring(0, Math.min(sanitised.length(), 32)), page);
+		return SUCCESS;
+	}
+
+	private static int handleSetCommand(CommandContext<CommandSource> ctx, boolean hasColour, boolean hasServer) {
+		if (!(ctx.getSource() instanceof Player target)) {
+			return error(ctx.getSource(), "errors.not-a-player");
+		}
+
+		String prefixId = StringArgumentType.getString(ctx, "prefix");
+		Prefix prefix = Prefixes.getInstance().getPrefix(prefixId);
+
+		if (prefix == null) {
+			Messages.sendComponent(target, "errors.invalid-prefix",
+								   Collections.singletonMap("prefix", prefixId),
+								   Collections.emptyMap());
+			sendSimilarPrefixes(target, target, prefixId, "/prefix set ");
+			return 0;
+		} else if (prefix.isRetired() && !target.hasPermission("prefixes.use-retired")) {
+			Messages.sendComponent(target, "errors.prefix-retired",
+								   Collections.singletonMap("prefix", prefixId),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		if (prefix.hasPermission() && !target.hasPermission(prefix.getPermission())) {
+			Messages.sendComponent(target, "errors.no-prefix-permission",
+								   Collections.singletonMap("prefix", prefixId),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		if (!hasColour) {
+			Prefixes.getInstance().sendColourList(target, prefix, 1);
+			return SUCCESS;
+		}
+
+		PrefixColour colour = resolveColour(target, target, prefix, StringArgumentType.getString(ctx, "colour"),
+											"/prefix set " + prefix.getId() + " ");
+
+		if (colour == null) {
+			return 0;
+		}
+
+		String server = hasServer ? StringArgumentType.getString(ctx, "server") : null;
+
+		if (server != null && !validateServer(target, server)) {
+			return 0;
+		}
+
+		if (!checkWritable(target)) {
+			return 0;
+		}
+
+		Component preview = prefix.getPrefixComponent(colour);
+		PrefixSelection previous = Prefixes.getInstance().getSelection(target.getUniqueId(), server);
+
+		Prefixes.getInstance().applyPrefix(target, prefix, colour, server).thenAccept(success -> {
+			Prefixes.getInstance().recordAudit(target, AuditJournal.Action.APPLY, success, target, server, previous,
+											   prefix, colour);
+
+			if (success && server != null) {
+				Messages.sendComponent(target, "set-server-success",
+									   Collections.singletonMap("server", server),
+									   Collections.singletonMap("preview", preview));
+			} else if (success) {
+				Messages.sendComponent(target, "set-success",
+									   Collections.emptyMap(),
+									   Collections.singletonMap("preview", preview));
+			} else {
+				Messages.sendComponent(target, "set-failed");
+			}
+		});
+
+		return SUCCESS;
+	}
+
+	private static int handleSetForCommand(CommandContext<CommandSource> ctx, boolean temporary) {
+		CommandSource source = ctx.getSource();
+		Player target = Prefixes.getInstance().getProxy()
+				.getPlayer(StringArgumentType.getString(ctx, "player")).orElse(null);
+		String prefixId = StringArgumentType.getString(ctx, "prefix");
+		Prefix prefix = Prefixes.getInstance().getPrefix(prefixId);
+
+		if (prefix == null) {
+			Messages.sendComponent(source, "errors.invalid-prefix",
+								   Collections.singletonMap("prefix", prefixId),
+								   Collections.emptyMap());
+			sendSimilarPrefixes(source, target, prefixId,
+								"/prefix setfor " + StringArgumentType.getString(ctx, "player") + " ");
+			return 0;
+		}
+
+		if (target == null) {
+			return error(source, "errors.unknown-player");
+		}
+
+		Duration duration = temporary ? parseDuration(StringArgumentType.getString(ctx, "duration")) : null;
+
+		if (temporary && duration == null) {
+			Messages.sendComponent(source, "errors.invalid-duration",
+								   Collections.singletonMap("duration", StringArgumentType.getString(ctx, "duration")),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		// Temporary prefixes are granted, so the target doesn't need permission to use them
+		if (!temporary && prefix.hasPermission() && !target.hasPermission(prefix.getPermission())) {
+			Messages.sendComponent(source, "errors.other-no-prefix-permission",
+								   Map.of(
+										   "player", target.getUsername(),
+										   "prefix", prefixId),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		PrefixColour colour = resolveColour(source, target, prefix, StringArgumentType.getString(ctx, "colour"),
+											"/prefix setfor " + target.getUsername() + " " + prefix.getId() + " ",
+											!temporary);
+
+		if (colour == null) {
+			return 0;
+		}
+
+		if (!checkWritable(source, target)) {
+			return 0;
+		}
+
+		Component preview = prefix.getPrefixComponent(colour);
+
+		if (temporary) {
+			String durationString = StringArgumentType.getString(ctx, "duration");
+			PrefixSelection previous = Prefixes.getInstance().getActiveSelection(target);
+
+			Prefixes.getInstance().applyTemporaryPrefix(target, prefix, colour, duration).thenAccept(success -> {
+				Prefixes.getInstance().recordAudit(source, AuditJournal.Action.APPLY_TEMPORARY, success, target, null,
+												   previous, prefix, colour);
+
+				if (success) {
+					Messages.sendComponent(source, "other-set-temporary-success",
+										   Map.of(
+												   "player", target.getUsername(),
+												   "duration", durationString),
+										   Collections.singletonMap("preview", preview));
+					Messages.sendComponent(target, "notifications.temporary-prefix-granted",
+										   Collections.singletonMap("duration", durationString),
+										   Collections.singletonMap("preview", preview));
+				} else {
+					Messages.sendComponent(source, "other-set-failed",
+										   Collections.singletonMap("player", target.getUsername()),
+										   Collections.emptyMap());
+				}
+			});
+
+			return SUCCESS;
+		}
+
+		PrefixSelection previous = Prefixes.getInstance().getSelection(target.getUniqueId(), null);
+
+		Prefixes.getInstance().applyPrefix(target, prefix, colour).thenAccept(success -> {
+			Prefixes.getInstance().recordAudit(source, AuditJournal.Action.APPLY, success, target, null, previous,
+											   prefix, colour);
+
+			if (success) {
+				Messages.sendComponent(source, "other-set-success",
+									   Collections.singletonMap("player", target.getUsername()),
+									   Collections.singletonMap("preview", preview));
+			} else {
+				Messages.sendComponent(source, "other-set-failed",
+									   Collections.singletonMap("player", target.getUsername()),
+									   Collections.emptyMap());
+			}
+		});
+
+		return SUCCESS;
+	}
+
+	/**
+	 * Resolves a colour argument for the given prefix, checking the target can use it
+	 * Sends an error message to the source if the colour cannot be used
+	 *
+	 * @param source - The command source
+	 * @param target - The player the colour is being applied to
+	 * @param prefix - The prefix the colour is for
+	 * @param colourKey - The colour argument, or "default" for the prefix's default colour
+	 * @param command - The command to suggest similar colours with, excluding the colour itself
+	 * @return - The colour, or null if it cannot be used
+	 */
+	private static @Nullable PrefixColour resolveColour(CommandSource source, Player target, Prefix prefix,
+														String colourKey, String command) {
+		return resolveColour(source, target, prefix, colourKey, command, true);
+	}
+
+	/**
+	 * Resolves a colour argument for the given prefix, optionally checking the target can use it
+	 * Sends an error message to the source if the colour cannot be used
+	 *
+	 * @param source - The command source
+	 * @param target - The player the colour is being applied to, or null for bulk changes
+	 * @param prefix - The prefix the colour is for
+	 * @param colourKey - The colour argument, or "default" for the prefix's default colour
+	 * @param command - The command to suggest similar colours with, excluding the colour itself
+	 * @param checkPermission - Whether to check the target has permission to use the colour, requires a target
+	 * @return - The colour, or null if it cannot be used
+	 */
+	private static @Nullable PrefixColour resolveColour(CommandSource source, @Nullable Player target, Prefix prefix,
+														String colourKey, String command, boolean checkPermission) {
+		PrefixColour colour = colourKey.equals("default")
+				? prefix.getDefaultColour() : Prefixes.getInstance().getColour(colourKey);
+
+		if (colour == null) {
+			Messages.sendComponent(source, "errors.invalid-colour");
+			sendSuggestions(source, Prefixes.getInstance().getSimilarColours(target, colourKey, 3).stream()
+					.map(PrefixColour::getId).toList(), command);
+			return null;
+		} else if (checkPermission && target != null && colour.isRetired()
+				&& !target.hasPermission("prefixes.use-retired")) {
+			Messages.sendComponent(source, "errors.colour-retired",
+								   Collections.singletonMap("prefix", prefix.getId()),
+								   Collections.emptyMap());
+			return null;
+		}
+
+		if (!prefix.isColourCompatible(colour)) {
+			Messages.sendComponent(source, "errors.colour-incompatible",
+								   Collections.singletonMap("prefix", prefix.getId()),
+								   Collections.emptyMap());
+			return null;
+		}
+
+		if (checkPermission && target != null && colour.hasPermission()
+				&& !target.hasPermission(colour.getPermission())) {
+			if (source.equals(target)) {
+				Messages.sendComponent(source, "errors.no-colour-permission");
+			} else {
+				Messages.sendComponent(source, "errors.other-no-colour-permission",
+									   Collections.singletonMap("player", target.getUsername()),
+									   Collections.emptyMap());
+			}
+
+			return null;
+		}
+
+		return colour;
+	}
+
+	/**
+	 * Parses a duration such as 30m, 12h or 1d12h
+	 * Supported units are s, m, h, d and w
+	 *
+	 * @param input - The duration string
+	 * @return - The duration, or null if the input is invalid, not positive or longer than 10 years
+	 */
+	static @Nullable Duration parseDuration(String input) {
+		Matcher matcher = DURATION_PATTERN.matcher(input.toLowerCase(Locale.ROOT));
+		Duration duration = Duration.ZERO;
+		int end = 0;
+
+		while (matcher.find() && matcher.start() == end) {
+			long amount;
+
+			try {
+				amount = Long.parseLong(matcher.group(1));
+			} catch (NumberFormatException e) {
+				return null;
+			}
+
+			try {
+				duration = duration.plus(switch (matcher.group(2)) {
+					case "s" -> Duration.ofSeconds(amount);
+					case "m" -> Duration.ofMinutes(amount);
+					case "h" -> Duration.ofHours(amount);
+					case "d" -> Duration.ofDays(amount);
+					default -> Duration.ofDays(Math.multiplyExact(amount, 7));
+				});
+			} catch (ArithmeticException e) {
+				return null;
+			}
+
+			end = matcher.end();
+		}
+
+		return end == input.length() && end > 0 && !duration.isZero()
+				&& duration.compareTo(MAX_DURATION) <= 0 ? duration : null;
+	}
+
+	private static void sendSimilarPrefixes(CommandSource source, @Nullable Player target, String prefixId, String command) {
+		sendSuggestions(source, Prefixes.getInstance().getSimilarPrefixes(target, prefixId, 3).stream()
+				.map(Prefix::getId).toList(), command);
+	}
+
+	/**
+	 * Sends a "did you mean" message listing the given ids, if there are any
+	 * Clicking an id suggests the given command with the id appended
+	 *
+	 * @param source - The command source
+	 * @param ids - The ids to suggest
+	 * @param command - The command to suggest, excluding the id
+	 */
+	private static void sendSuggestions(CommandSource source, List<String> ids, String command) {
+		if (ids.isEmpty()) {
+			return;
+		}
+
+		Locale locale = Messages.getLocale(source);
+		Component suggestions = Component.join(JoinConfiguration.commas(true), ids.stream()
+				.map(id -> Messages.getComponent(locale, "errors.did-you-mean-item",
+												 Map.of("id", id, "command", command + id),
+												 Collections.emptyMap()))
+				.toList());
+
+		Messages.sendComponent(source, "errors.did-you-mean", Collections.emptyMap(),
+							   Collections.singletonMap("suggestions", suggestions));
+	}
+
+	private static int handleClearCommand(CommandSource source, @Nullable String playerName) {
+		if (playerName == null) {
+			if (!(source instanceof Player player)) {
+				return error(source, "errors.not-a-player");
+			}
+
+			if (!checkWritable(source)) {
+				return 0;
+			}
+
+			PrefixSelection previous = Prefixes.getInstance().getSelection(player.getUniqueId(), null);
+
+			Prefixes.getInstance().clearPrefix(player).thenAccept(success -> {
+				Prefixes.getInstance().recordAudit(source, AuditJournal.Action.CLEAR, success, player, null, previous,
+												   null, null);
+
+				if(success) {
+					Messages.sendComponent(source, "clear-success");
+				} else {
+					Messages.sendComponent(source, "clear-failed");
+				}
+			});
+
+			return SUCCESS;
+		}
+
+		Player target = Prefixes.getInstance().getProxy().getPlayer(playerName).orElse(null);
+
+		if (target == null) {
+			return error(source, "errors.unknown-player");
+		}
+
+		if (!checkWritable(source, target)) {
+			return 0;
+		}
+
+		PrefixSelection previous = Prefixes.getInstance().getSelection(target.getUniqueId(), null);
+
+		Prefixes.getInstance().clearPrefix(target).thenAccept(success -> {
+			Prefixes.getInstance().recordAudit(source, AuditJournal.Action.CLEAR, success, target, null, previous,
+											   null, null);
+
+			if (success) {
+				Messages.sendComponent(source, "other-clear-success",
+									   Collections.singletonMap("player", target.getUsername()),
+									   Collections.emptyMap());
+			} else {
+				Messages.sendComponent(source, "other-clear-failed",
+									   Collections.singletonMap("player", target.getUsername()),
+									   Collections.emptyMap());
+			}
+		});
+
+		return SUCCESS;
+	}
+
+	private static int handleUnsetCommand(CommandSource source, String server) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		if (!validateServer(source, server) || !checkWritable(source)) {
+			return 0;
+		}
+
+		PrefixSelection previous = Prefixes.getInstance().getSelection(player.getUniqueId(), server);
+
+		Prefixes.getInstance().clearPrefix(player, server).thenAccept(success -> {
+			Prefixes.getInstance().recordAudit(source, AuditJournal.Action.CLEAR, success, player, server, previous,
+											   null, null);
+
+			if (success) {
+				Messages.sendComponent(source, "unset-success",
+									   Collections.singletonMap("server", server),
+									   Collections.emptyMap());
+			} else {
+				Messages.sendComponent(source, "clear-failed");
+			}
+		});
+
+		return SUCCESS;
+	}
+
+	private static int handleBulkCommand(CommandContext<CommandSource> ctx, boolean set) {
+		CommandSource source = ctx.getSource();
+		List<PlayerSelector> selectors;
+
+		try {
+			selectors = PlayerSelector.parse(StringArgumentType.getString(ctx, "selectors"));
+		} catch (IllegalArgumentException e) {
+			Messages.sendComponent(source, "errors.invalid-selector",
+								   Collections.singletonMap("selector", MiniMessage.miniMessage().escapeTags(e.getMessage())),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		Prefix prefix = null;
+		PrefixColour colour = null;
+
+		if (set) {
+			String prefixId = StringArgumentType.getString(ctx, "prefix");
+			prefix = Prefixes.getInstance().getPrefix(prefixId);
+
+			if (prefix == null) {
+				Messages.sendComponent(source, "errors.invalid-prefix",
+									   Collections.singletonMap("prefix", prefixId),
+									   Collections.emptyMap());
+				sendSimilarPrefixes(source, null, prefixId, "/prefix bulk set ");
+				return 0;
+			}
+
+			// Permissions are checked for each player when the change is applied
+			colour = resolveColour(source, null, prefix, StringArgumentType.getString(ctx, "colour"),
+								   "/prefix bulk set " + prefix.getId() + " ", false);
+
+			if (colour == null) {
+				return 0;
+			}
+		}
+
+		String selectorList = MiniMessage.miniMessage().escapeTags(
+				String.join(" ", selectors.stream().map(PlayerSelector::toString).toList()));
+		List<Player> targets = Prefixes.getInstance().selectPlayers(selectors);
+
+		if (targets.isEmpty()) {
+			Messages.sendComponent(source, "errors.no-matching-players",
+								   Collections.singletonMap("selectors", selectorList),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		// Each change takes its own rate limit tokens as it is made
+		if (!checkWritable(source, null)) {
+			return 0;
+		}
+
+		Messages.sendComponent(source, "bulk.started", Map.of(
+				"count", String.valueOf(targets.size()),
+				"selectors", selectorList
+		), Collections.emptyMap());
+
+		Prefixes.getInstance().applyBulk(source, targets, prefix, colour, progressReporter(source, "bulk.progress"))
+				.thenAccept(result -> Messages.sendComponent(source, "bulk.complete", Map.of(
+						"changed", String.valueOf(result.changed()),
+						"unchanged", String.valueOf(result.unchanged()),
+						"skipped", String.valueOf(result.skipped()),
+						"failed", String.valueOf(result.failed())
+				), Collections.emptyMap()));
+
+		return SUCCESS;
+	}
+
+	private static int handleUndoCommand(CommandSource source) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		PrefixSelection selection = Prefixes.getInstance().getUndoSelection(player);
+
+		if (selection == null) {
+			return error(source, "errors.no-history");
+		}
+
+		Prefix prefix = selection.prefix();
+		PrefixColour colour = selection.colour();
+		Component preview = selection.component();
+
+		if (!Prefixes.getInstance().isAllowed(player, prefix, false)
+				|| !Prefixes.getInstance().isAllowed(player, colour, false) || !prefix.isColourCompatible(colour)) {
+			Messages.sendComponent(source, "errors.undo-unavailable",
+								   Collections.emptyMap(),
+								   Collections.singletonMap("preview", preview));
+			return 0;
+		}
+
+		if (!checkWritable(source)) {
+			return 0;
+		}
+
+		PrefixSelection previous = Prefixes.getInstance().getSelection(player.getUniqueId(), null);
+
+		Prefixes.getInstance().undoPrefix(player).thenAccept(success -> {
+			Prefixes.getInstance().recordAudit(source, AuditJournal.Action.UNDO, success, player, null, previous,
+											   prefix, colour);
+
+			if (success) {
+				Messages.sendComponent(source, "undo-success",
+									   Collections.emptyMap(),
+									   Collections.singletonMap("preview", preview));
+			} else {
+				Messages.sendComponent(source, "errors.undo-failed");
+			}
+		});
+
+		return SUCCESS;
+	}
+
+	private static int handleHistoryCommand(CommandSource source, @Nullable String playerName) {
+		Player target;
+
+		if (playerName == null) {
+			if (!(source instanceof Player player)) {
+				return error(source, "errors.not-a-player");
+			}
+
+			target = player;
+		} else {
+			target = Prefixes.getInstance().getProxy().getPlayer(playerName).orElse(null);
+
+			if (target == null) {
+				return error(source, "errors.unknown-player");
+			}
+		}
+
+		List<PrefixSelection> history = Prefixes.getInstance().getHistory(target);
+
+		if (history.isEmpty()) {
+			Messages.sendComponent(source, "errors.no-history-entries",
+								   Collections.singletonMap("player", target.getUsername()),
+								   Collections.emptyMap());
+			return 0;
+		}
+
+		Messages.sendComponent(source, "history.header",
+							   Collections.singletonMap("player", target.getUsername()),
+							   Collections.emptyMap());
+
+		for (int i = 0; i < history.size(); i++) {
+			Messages.sendComponent(source, "history.item",
+								   Collections.singletonMap("index", String.valueOf(i + 1)),
+								   Collections.singletonMap("preview", history.get(i).component()));
+		}
+
+		if (source == target) {
+			Messages.sendComponent(source, "history.undo");
+		}
+
+		return SUCCESS;
+	}
+
+	/**
+	 * Checks whether a command which modifies prefixes can currently be run by the given source
+	 * Commands are rejected while LuckPerms storage is unavailable. Otherwise a token is taken from the rate limit
+	 * bucket of the source, if it is a player without the bypass permission.
+	 * Sends an error message to the source if the command cannot be run
+	 *
+	 * @param source - The command source
+	 * @return - Whether the command may continue
+	 */
+	private static boolean checkWritable(CommandSource source) {
+		return checkWritable(source, source instanceof Player player ? player : null);
+	}
+
+	/**
+	 * Checks whether a command which modifies the given player's prefixes can currently be run by the given source
+	 * Commands are rejected while LuckPerms storage is unavailable. Otherwise a token is taken from the rate limit
+	 * buckets of both the source and the target, so neither a single player spreading changes across many targets
+	 * nor several players changing one target can exceed the limit.
+	 * Player sources with the bypass permission, and the console, are not limited. Commands without a single target
+	 * are only checked for storage availability, and limit each change themselves.
+	 * Sends an error message to the source if the command cannot be run
+	 *
+	 * @param source - The command source
+	 * @param target - The player whose prefixes will be modified, or null if there is no single target
+	 * @return - Whether the command may continue
+	 */
+	private static boolean checkWritable(CommandSource source, @Nullable Player target) {
+		if (!Prefixes.getInstance().isStorageAvailable()) {
+			Messages.sendComponent(source, "errors.storage-unavailable");
+			return false;
+		}
+
+		RateLimiter limiter = Prefixes.getInstance().getRateLimiter();
+
+		if (limiter == null || target == null || !(source instanceof Player player)
+				|| player.hasPermission("prefixes.bypass-rate-limit")) {
+			return true;
+		}
+
+		if (limiter.tryAcquire(player.getUniqueId(), target.getUniqueId())) {
+			return true;
+		}
+
+		// Report the source's own limit first, as waiting for the target's alone wouldn't be enough
+		long ownWait = limiter.getWaitMillis(player.getUniqueId());
+		boolean limitedSelf = player == target || ownWait > 0;
+		long wait = limitedSelf ? ownWait : limiter.getWaitMillis(target.getUniqueId());
+		long seconds = Math.max(1, (wait + 999) / 1000);
+
+		if (limitedSelf) {
+			Messages.sendComponent(source, "errors.rate-limited",
+								   Collections.singletonMap("seconds", String.valueOf(seconds)),
+								   Collections.emptyMap());
+		} else {
+			Messages.sendComponent(source, "errors.other-rate-limited",
+								   Map.of(
+										   "player", target.getUsername(),
+										   "seconds", String.valueOf(seconds)),
+								   Collections.emptyMap());
+		}
+
+		return false;
+	}
+
+	private static boolean validateServer(CommandSource source, String server) {
+		if (!Prefixes.getInstance().isPerServerEnabled()) {
+			Messages.sendComponent(source, "errors.per-server-disabled");
+			return false;
+		}
+
+		if (Prefixes.getInstance().getProxy().getServer(server).isEmpty()) {
+			Messages.sendComponent(source, "errors.invalid-server",
+								   Collections.singletonMap("server", server),
+								   Collections.emptyMap());
+			return false;
+		}
+
+		return true;
+	}
+
+	private static int handleColourCommand(CommandSource source, @Nullable String prefixId, int page) {
+		if (!(source instanceof Player player)) {
+			return error(source, "errors.not-a-player");
+		}
+
+		// Default to player's current prefix
+		Prefix prefix = Prefixes.getInstance().getCurrentPrefix(player);
+
+		if (prefixId != null) { // Player specified prefix as argument
+			prefix = Prefixes.getInstance().getPrefix(prefixId);
+
+			if (prefix == null) {
+				Messages.sendComponent(source, "errors.invalid-prefix",
+									   Collections.singletonMap("prefix", prefixId),
+									   Collections.emptyMap());
+				sendSimilarPrefixes(source, player, prefixId, "/prefix colours ");
+				return 0;
+			}
+
+			if (prefix.hasPermission() && !player.hasPermission(prefix.getPermission())) {
+				Messages.sendComponent(source, "errors.no-prefix-permission",
+									   Collections.singletonMap("prefix", prefix.getId()),
+									   Collections.emptyMap());
+				return 0;
+			}
+		} else if (prefix == null) { // Player hasn't set a prefix
+			return error(source, "errors.no-prefix-set");
+		}
+
+		Prefixes.getInstance().sendColourList(player, prefix, page);
+		return SUCCESS;
+	}
+}
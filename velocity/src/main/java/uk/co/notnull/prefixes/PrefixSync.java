@@ -0,0 +1,100 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import com.velocitypowered.api.proxy.messages.MinecraftChannelIdentifier;
+import com.velocitypowered.api.proxy.server.RegisteredServer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes player prefixes to backend servers over the prefixes:sync plugin messaging channel
+ * Updates are queued per server and sent as a single message once the batch delay has passed. Entries are created
+ * when the batch is sent, so every entry in a batch uses ordinals from the registry generation it is sent with.
+ */
+public class PrefixSync {
+	public static final MinecraftChannelIdentifier CHANNEL = MinecraftChannelIdentifier.from(PrefixSyncMessage.CHANNEL);
+
+	// Identifies this proxy process, so backends can tell a restarted proxy apart from a delayed older batch
+	private static final long SESSION = ThreadLocalRandom.current().nextLong();
+
+	private final Prefixes plugin;
+	private final long batchDelay;
+
+	private Map<RegisteredServer, Set<UUID>> pending = new HashMap<>();
+	private boolean flushScheduled = false;
+
+	public PrefixSync(Prefixes plugin, long batchDelay) {
+		this.plugin = plugin;
+		this.batchDelay = batchDelay;
+	}
+
+	/**
+	 * Queues the given player's current prefix to be sent to the given server
+	 *
+	 * @param server - The server to send the prefix to
+	 * @param uuid - The player's uuid
+	 */
+	public synchronized void queue(@NotNull RegisteredServer server, @NotNull UUID uuid) {
+		pending.computeIfAbsent(server, (key) -> new LinkedHashSet<>()).add(uuid);
+
+		if (!flushScheduled) {
+			flushScheduled = true;
+			plugin.getProxy().getScheduler().buildTask(plugin, this::flush)
+					.delay(batchDelay, TimeUnit.MILLISECONDS)
+					.schedule();
+		}
+	}
+
+	private void flush() {
+		Map<RegisteredServer, Set<UUID>> batches;
+
+		synchronized (this) {
+			batches = pending;
+			pending = new HashMap<>();
+			flushScheduled = false;
+		}
+
+		PrefixRegistry registry = plugin.getRegistry();
+
+		batches.forEach((server, uuids) -> {
+			List<PrefixSyncMessage.Entry> entries = uuids.stream()
+					.map(uuid -> plugin.createSyncEntry(uuid, registry)).toList();
+			byte[] message = PrefixSyncMessage.encode(SESSION, registry.getGeneration(), entries);
+
+			if (!server.sendPluginMessage(CHANNEL, message)) {
+				plugin.getLogger().debug("Dropped prefix sync batch for " + server.getServerInfo().getName()
+												 + " as it has no connected players");
+			}
+		});
+	}
+}
@@ -0,0 +1,2580 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2022 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.velocitypowered.api.command.BrigadierCommand;
+import com.velocitypowered.api.command.CommandSource;
+import com.velocitypowered.api.event.connection.DisconnectEvent;
+import com.velocitypowered.api.event.connection.PluginMessageEvent;
+import com.velocitypowered.api.event.player.ServerConnectedEvent;
+import com.velocitypowered.api.event.player.ServerPostConnectEvent;
+import com.velocitypowered.api.event.player.PlayerChooseInitialServerEvent;
+import com.velocitypowered.api.event.proxy.ProxyInitializeEvent;
+import com.velocitypowered.api.event.Subscribe;
+import com.velocitypowered.api.event.proxy.ProxyReloadEvent;
+import com.velocitypowered.api.event.proxy.ProxyShutdownEvent;
+import com.velocitypowered.api.plugin.PluginContainer;
+import com.velocitypowered.api.plugin.annotation.DataDirectory;
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.ProxyServer;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.JoinConfiguration;
+import net.kyori.adventure.text.minimessage.MiniMessage;
+import net.kyori.adventure.translation.Translator;
+import net.luckperms.api.LuckPerms;
+import net.luckperms.api.LuckPermsProvider;
+import net.luckperms.api.cacheddata.CachedPermissionData;
+import net.luckperms.api.context.DefaultContextKeys;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.luckperms.api.messaging.MessagingService;
+import net.luckperms.api.model.data.NodeMap;
+import net.luckperms.api.model.user.User;
+import net.luckperms.api.model.user.UserManager;
+import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeType;
+import net.luckperms.api.node.types.MetaNode;
+import net.luckperms.api.node.types.PrefixNode;
+import org.spongepowered.configurate.ConfigurationNode;
+import org.spongepowered.configurate.yaml.YamlConfigurationLoader;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import uk.co.notnull.platformdetection.PlatformDetectionVelocity;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+public class Prefixes {
+	/**
+	 * A parsed but not yet applied config
+	 */
+	private record ParsedConfig(ConfigurationNode configuration, ConfigurationNode messages,
+								Map<Locale, ConfigurationNode> localeMessages, PrefixRegistry registry) {
+	}
+
+	private static Prefixes instance;
+
+	private volatile PrefixRegistry registry = PrefixRegistry.empty();
+
+	private final PrefixSessions sessions = new PrefixSessions();
+	private final TimingWheel<UUID> expiryWheel = new TimingWheel<>(1000, 512, this::onTemporaryPrefixExpired);
+
+	@Inject
+	private Logger logger;
+
+	@Inject
+	private ProxyServer proxy;
+
+	@DataDirectory
+	@Inject
+	private Path dataDirectory;
+
+	private LuckPerms luckperms;
+	private UserManager userManager;
+	private final static int PREFIX_PRIORITY = 1001;
+	private final static int TEMPORARY_PREFIX_PRIORITY = 1002;
+	private final static String SYSTEM_ACTOR = "Prefixes";
+	private final static String HISTORY_META_KEY = "prefix-history";
+	private final static int STORED_USER_BATCH_SIZE = 100;
+	private final static int RELOAD_PREVIEW_SAMPLES = 5;
+	private final static DateTimeFormatter EXPORT_FILE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+	private final static PrefixExecutor.Settings DEFAULT_EXECUTOR_SETTINGS =
+			new PrefixExecutor.Settings(PrefixExecutor.Type.VIRTUAL, 4, 1000);
+	private boolean platformDetectionEnabled;
+	private PlatformDetectionVelocity platformDetection;
+	private PrefixSync prefixSync;
+	private volatile TabListUpdater tabListUpdater;
+	private AnimationTicker animationTicker;
+	private boolean perServerPrefixes;
+	private ConfigWatcher configWatcher;
+	private boolean autoReload;
+	private long autoReloadDebounce = 1000;
+	private RateLimiter rateLimiter;
+	private CircuitBreaker storageBreaker;
+	private AuditJournal auditJournal;
+	private SelectionIndex selectionIndex;
+	private final AtomicBoolean indexRebuilding = new AtomicBoolean();
+	private final AtomicBoolean exporting = new AtomicBoolean();
+	private volatile PrefixExecutor executor = new PrefixExecutor(DEFAULT_EXECUTOR_SETTINGS);
+	private final Set<UUID> deferredChecks = ConcurrentHashMap.newKeySet();
+	private int historySize = 5;
+	private int bulkConcurrency = 8;
+	private final UnlockTracker unlockTracker = new UnlockTracker();
+	private boolean unlockNotifications = true;
+
+	/**
+	 * Cached colour permissions of a player, valid until their permissions are recalculated or the config is reloaded
+	 *
+	 * @param registry - The registry the masks were built from
+	 * @param allowed - The ordinals of the colours the player can use
+	 * @param allowedIncludingLocked - As above, including locked unlockable colours
+	 */
+	private record ColourMasks(PrefixRegistry registry, BitSet allowed, BitSet allowedIncludingLocked) {
+	}
+
+	private final Map<UUID, ColourMasks> colourMasks = new ConcurrentHashMap<>();
+
+	public Prefixes() {
+		instance = this;
+	}
+
+	@Subscribe
+	public void onProxyInitialization(ProxyInitializeEvent event) {
+		loadConfig();
+		luckperms = LuckPermsProvider.get();
+		userManager = luckperms.getUserManager();
+		luckperms.getEventBus().subscribe(this, UserDataRecalculateEvent.class, this::onUserDataRecalculate);
+		BrigadierCommand command = Command.create();
+		proxy.getCommandManager().register(proxy.getCommandManager().metaBuilder(command).plugin(this).build(), command);
+		proxy.getChannelRegistrar().register(PrefixSync.CHANNEL);
+		proxy.getScheduler().buildTask(this, () -> expiryWheel.tick())
+				.repeat(expiryWheel.getTickMillis(), TimeUnit.MILLISECONDS).schedule();
+		proxy.getScheduler().buildTask(this, this::probeStorage).repeat(5, TimeUnit.SECONDS).schedule();
+
+		SelectionIndex index = new SelectionIndex(dataDirectory.resolve("index"));
+
+		try {
+			index.open();
+			selectionIndex = index;
+		} catch (IOException e) {
+			logger.error("Failed to open selection index, offline selections will not be available", e);
+		}
+
+		configureWatcher(autoReload, autoReloadDebounce);
+
+		Optional<PluginContainer> platformDetection = proxy.getPluginManager().getPlugin("platform-detection");
+        platformDetectionEnabled = platformDetection.isPresent();
+
+        if(platformDetectionEnabled) {
+            this.platformDetection = (PlatformDetectionVelocity) platformDetection.get().getInstance().get();
+        }
+	}
+
+	@Subscribe
+	public void onProxyReload(ProxyReloadEvent event) {
+		reload();
+	}
+
+	@Subscribe
+	public void onProxyShutdown(ProxyShutdownEvent event) {
+		configureWatcher(false, 0);
+		configureAudit(false, null);
+		executor.shutdown();
+
+		if (selectionIndex != null) {
+			selectionIndex.close();
+		}
+	}
+
+	@Subscribe
+	public void onPlayerConnect(PlayerChooseInitialServerEvent event) {
+		checkPrefix(event.getPlayer());
+		unlockTracker.reset(event.getPlayer().getUniqueId(), registry, event.getPlayer()::hasPermission);
+	}
+
+	@Subscribe
+	public void onServerConnected(ServerConnectedEvent event) {
+		updateActiveSelection(event.getPlayer().getUniqueId(), event.getServer().getServerInfo().getName());
+	}
+
+	@Subscribe
+	public void onServerPostConnect(ServerPostConnectEvent event) {
+		publishPrefix(event.getPlayer().getUniqueId());
+
+		TabListUpdater updater = tabListUpdater;
+
+		if (updater != null) {
+			updater.markConnected(event.getPlayer().getUniqueId());
+		}
+	}
+
+	@Subscribe
+	public void onPluginMessage(PluginMessageEvent event) {
+		// Prevent clients spoofing prefix sync messages to backends
+		if (event.getIdentifier().equals(PrefixSync.CHANNEL)) {
+			event.setResult(PluginMessageEvent.ForwardResult.handled());
+		}
+	}
+
+	@Subscribe
+	public void onPlayerDisconnect(DisconnectEvent event) {
+		sessions.remove(event.getPlayer().getUniqueId());
+		colourMasks.remove(event.getPlayer().getUniqueId());
+		expiryWheel.cancel(event.getPlayer().getUniqueId());
+
+		deferredChecks.remove(event.getPlayer().getUniqueId());
+		unlockTracker.remove(event.getPlayer().getUniqueId());
+
+		RateLimiter limiter = rateLimiter;
+
+		if (limiter != null) {
+			limiter.remove(event.getPlayer().getUniqueId());
+		}
+
+		TabListUpdater updater = tabListUpdater;
+
+		if (updater != null) {
+			updater.remove(event.getPlayer().getUniqueId());
+		}
+
+		AnimationTicker ticker = animationTicker;
+
+		if (ticker != null) {
+			ticker.remove(event.getPlayer().getUniqueId());
+		}
+	}
+
+	/**
+	 * Notifies online players of prefixes and colours they have unlocked since their permissions were last calculated
+	 * Unlocked items are diffed against the player's previous state, so recalculations which don't change any
+	 * unlockable permissions send nothing
+	 *
+	 * @param event - The event
+	 */
+	private void onUserDataRecalculate(UserDataRecalculateEvent event) {
+		colourMasks.remove(event.getUser().getUniqueId());
+
+		if (!unlockNotifications) {
+			return;
+		}
+
+		Player player = proxy.getPlayer(event.getUser().getUniqueId()).orElse(null);
+
+		if (player == null) {
+			return;
+		}
+
+		CachedPermissionData permissions = event.getData().getPermissionData();
+
+		executor.execute(() -> {
+			UnlockTracker.Unlocks unlocks = unlockTracker.update(
+					player.getUniqueId(), registry, permission -> permissions.checkPermission(permission).asBoolean());
+
+			if (unlocks != null) {
+				sendUnlocks(player, unlocks);
+			}
+		});
+	}
+
+	/**
+	 * Sends a single message listing the given newly unlocked prefixes and colours, with links to select them
+	 * Colours are previewed with the player's current prefix where compatible
+	 *
+	 * @param player - The player
+	 * @param unlocks - The newly unlocked items
+	 */
+	private void sendUnlocks(Player player, UnlockTracker.Unlocks unlocks) {
+		Locale locale = Messages.getLocale(player);
+		boolean bedrock = isBedrock(player);
+		PrefixSelection selection = sessions.getActiveSelection(player.getUniqueId());
+		List<Component> lines = new ArrayList<>();
+
+		lines.add(Messages.getComponent(locale, "notifications.unlocked"));
+
+		for (Prefix prefix : unlocks.prefixes()) {
+			PrefixColour colour = prefix.getDefaultColour();
+
+			lines.add(Messages.getComponent(
+					locale, bedrock ? "notifications.unlocked-prefix-bedrock" : "notifications.unlocked-prefix",
+					Map.of("id", prefix.getId(),
+						   "description", prefix.getDescription() != null ? prefix.getDescription() : ""),
+					Map.of("preview", bedrock ? prefix.getBedrockPrefixComponent(colour) : prefix.getPrefixComponent(colour))));
+		}
+
+		for (PrefixColour colour : unlocks.colours()) {
+			String description = colour.getDescription() != null ? colour.getDescription() : "";
+
+			if (selection == null || !selection.prefix().isColourCompatible(colour)) {
+				lines.add(Messages.getComponent(
+						locale, "notifications.unlocked-colour-no-prefix",
+						Map.of("id", colour.getId(), "description", description),
+						Map.of("preview", Messages.miniMessage.deserialize(
+								colour.getColourStart() + MiniMessage.miniMessage().escapeTags(colour.getId())
+										+ colour.getColourEnd()))));
+				continue;
+			}
+
+			Prefix prefix = selection.prefix();
+
+			lines.add(Messages.getComponent(
+					locale, bedrock ? "notifications.unlocked-colour-bedrock" : "notifications.unlocked-colour",
+					Map.of("id", colour.getId(), "prefix", prefix.getId(), "description", description),
+					Map.of("preview", bedrock ? prefix.getBedrockPrefixComponent(colour) : prefix.getPrefixComponent(colour))));
+		}
+
+		player.sendMessage(Component.join(JoinConfiguration.newlines(), lines));
+	}
+
+	/**
+	 * Loads any messages_&lt;locale&gt;.yml bundles from the data directory
+	 *
+	 * @return - The loaded bundles, keyed by locale
+	 * @throws IOException - If a bundle fails to load
+	 */
+	private Map<Locale, ConfigurationNode> loadLocaleMessages() throws IOException {
+		Map<Locale, ConfigurationNode> localeMessages = new HashMap<>();
+		File[] files = dataDirectory.toFile().listFiles((dir, name) -> name.startsWith("messages_") && name.endsWith(".yml"));
+
+		if (files == null) {
+			return localeMessages;
+		}
+
+		for (File file : files) {
+			String name = file.getName();
+			Locale locale = Translator.parseLocale(name.substring("messages_".length(), name.length() - ".yml".length()));
+
+			if (locale == null || locale.getLanguage().isEmpty()) {
+				logger.warn("Ignoring messages file " + name + " with invalid locale");
+				continue;
+			}
+
+			try {
+				localeMessages.put(locale, YamlConfigurationLoader.builder().file(file).build().load());
+			} catch (IOException e) {
+				throw new IOException("Failed to load " + name + ": " + e.getMessage(), e);
+			}
+		}
+
+		return localeMessages;
+	}
+
+	/**
+	 * Parses config.yml, messages and any config shards into a new set of prefixes, colours and categories
+	 * Nothing is applied, so the result can be checked before it replaces the active config.
+	 *
+	 * @return - The parsed config
+	 * @throws IOException - If any config file could not be read or parsed
+	 */
+	private ParsedConfig parseConfig() throws IOException {
+		ConfigurationNode configuration = YamlConfigurationLoader.builder().file(
+				new File(dataDirectory.toAbsolutePath().toString(), "config.yml")).build().load();
+		ConfigurationNode messagesConfiguration = YamlConfigurationLoader.builder().file(
+				new File(dataDirectory.toAbsolutePath().toString(), "messages.yml")).build().load();
+		Map<Locale, ConfigurationNode> localeMessages = loadLocaleMessages();
+
+		// Main config is loaded first, followed by shards in filename order
+		List<ConfigShard> shards = new ArrayList<>();
+		shards.add(ConfigShard.parse("config.yml", configuration, logger));
+		shards.addAll(new ShardLoader(dataDirectory.resolve("prefixes.d"),
+									  dataDirectory.resolve("cache").resolve("shards"), logger).load());
+
+		PrefixRegistry registry = PrefixRegistry.load(
+				shards, configuration.node("categories"),
+				PrefixRender.Truncation.fromConfig(configuration.node("bedrock-truncation")),
+				this.registry.getGeneration() + 1, logger);
+
+		return new ParsedConfig(configuration, messagesConfiguration, localeMessages, registry);
+	}
+
+	private boolean loadConfig() {
+		// Setup config
+		loadResource("config.yml");
+		loadResource("messages.yml");
+
+		try {
+			ParsedConfig parsed = parseConfig();
+			ConfigurationNode configuration = parsed.configuration();
+
+			if (configuration.node("plugin-messaging", "enabled").getBoolean(false)) {
+				prefixSync = new PrefixSync(this, configuration.node("plugin-messaging", "batch-delay").getLong(50));
+			} else {
+				prefixSync = null;
+			}
+
+			perServerPrefixes = configuration.node("per-server-prefixes", "enabled").getBoolean(false);
+			historySize = Math.max(0, configuration.node("history", "size").getInt(5));
+			bulkConcurrency = Math.max(1, configuration.node("bulk-changes", "concurrency").getInt(8));
+			unlockNotifications = configuration.node("unlock-notifications", "enabled").getBoolean(true);
+
+			configureExecutor(configuration.node("executor"));
+
+			ConfigurationNode breakerConfig = configuration.node("storage-circuit-breaker");
+
+			if (breakerConfig.node("enabled").getBoolean(true)) {
+				CircuitBreaker.Settings settings = new CircuitBreaker.Settings(
+						breakerConfig.node("window").getInt(20),
+						breakerConfig.node("minimum-calls").getInt(5),
+						breakerConfig.node("failure-rate").getDouble(0.5),
+						breakerConfig.node("slow-call-threshold").getLong(2000),
+						breakerConfig.node("timeout").getLong(10000),
+						breakerConfig.node("open-duration").getLong(30000));
+
+				// Keep the current state if the settings haven't changed
+				if (storageBreaker == null || !storageBreaker.getSettings().equals(settings)) {
+					storageBreaker = new CircuitBreaker(settings, this::onStorageRecovered);
+				}
+			} else {
+				storageBreaker = null;
+			}
+
+			if (configuration.node("rate-limit", "enabled").getBoolean(false)) {
+				int burst = Math.max(1, configuration.node("rate-limit", "burst").getInt(5));
+				double refill = configuration.node("rate-limit", "refill").getDouble(0.5);
+
+				// Keep existing buckets and metrics if the limits haven't changed
+				if (rateLimiter == null || rateLimiter.getBurst() != burst || rateLimiter.getRefillPerSecond() != refill) {
+					rateLimiter = new RateLimiter(burst, refill > 0 ? refill : 0.5);
+				}
+			} else {
+				rateLimiter = null;
+			}
+
+			configureTabList(configuration.node("tab-list", "enabled").getBoolean(false),
+							 configuration.node("tab-list", "update-interval").getLong(50));
+
+			configureAnimation(tabListUpdater != null,
+							   configuration.node("tab-list", "animation-interval").getLong(500));
+
+			registry = parsed.registry();
+			colourMasks.clear();
+			Messages.set(parsed.messages(), parsed.localeMessages());
+
+			// Applied by the caller once loading has finished, as this may be running on the watcher thread
+			autoReload = configuration.node("auto-reload", "enabled").getBoolean(false);
+			autoReloadDebounce = configuration.node("auto-reload", "debounce").getLong(1000);
+			configureAudit(configuration.node("audit", "enabled").getBoolean(true), new AuditJournal.Settings(
+					configuration.node("audit", "max-file-size").getLong(4096) * 1024,
+					configuration.node("audit", "max-files").getInt(5)));
+		} catch (IOException e) {
+			logger.error("Error loading configuration, the previous configuration will remain active", e);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces the executor if its settings have changed
+	 * Tasks already queued on the previous executor are allowed to finish
+	 *
+	 * @param config - The executor config section
+	 */
+	private void configureExecutor(ConfigurationNode config) {
+		String typeName = config.node("type").getString("virtual");
+		PrefixExecutor.Type type;
+
+		try {
+			type = PrefixExecutor.Type.valueOf(typeName.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			logger.warn("Unknown executor type " + typeName + ", using virtual threads");
+			type = PrefixExecutor.Type.VIRTUAL;
+		}
+
+		PrefixExecutor.Settings settings = new PrefixExecutor.Settings(
+				type, config.node("threads").getInt(4), config.node("queue-size").getInt(1000));
+
+		// Futures already running keep a reference to the previous executor, which drains its queue after shutdown
+		// and runs any later continuations on the completing thread
+		if (!executor.getSettings().equals(settings)) {
+			PrefixExecutor previous = executor;
+			executor = new PrefixExecutor(settings);
+			previous.shutdown();
+		}
+	}
+
+	/**
+	 * Starts, restarts or stops the audit journal to match the given settings
+	 *
+	 * @param enabled - Whether the audit journal is enabled
+	 * @param settings - The journal settings, ignored if disabled
+	 */
+	private synchronized void configureAudit(boolean enabled, @Nullable AuditJournal.Settings settings) {
+		AuditJournal journal = auditJournal;
+
+		if (journal != null && enabled && journal.getSettings().equals(settings)) {
+			return;
+		}
+
+		if (journal != null) {
+			auditJournal = null;
+			journal.stop();
+		}
+
+		if (enabled && settings != null) {
+			journal = new AuditJournal(dataDirectory.resolve("audit"), settings, logger);
+
+			try {
+				journal.start();
+				auditJournal = journal;
+			} catch (IOException e) {
+				logger.error("Failed to open audit journal, prefix changes will not be recorded", e);
+			}
+		}
+	}
+
+	/**
+	 * Starts, restarts or stops the config watcher to match the given settings
+	 *
+	 * @param enabled - Whether automatic reloading is enabled
+	 * @param debounce - The debounce delay in milliseconds
+	 */
+	private synchronized void configureWatcher(boolean enabled, long debounce) {
+		if (configWatcher != null && (!enabled || configWatcher.getDebounce() != Math.max(debounce, 50))) {
+			configWatcher.stop();
+			configWatcher = null;
+		}
+
+		if (enabled && configWatcher == null) {
+			configWatcher = new ConfigWatcher(dataDirectory, debounce, this::reload, logger);
+
+			try {
+				configWatcher.start();
+			} catch (IOException e) {
+				logger.error("Failed to start config watcher, automatic reloading is disabled", e);
+				configWatcher = null;
+			}
+		}
+	}
+
+	/**
+	 * Creates or removes the tab list updater to match the given settings
+	 * An existing updater is kept across reloads, so display names it has already sent are still resent to players
+	 * switching servers. A new updater is given every online player, and a removed one clears the names it sent.
+	 *
+	 * @param enabled - Whether tab list display names are managed
+	 * @param interval - The delay in milliseconds used to coalesce updates
+	 */
+	private synchronized void configureTabList(boolean enabled, long interval) {
+		if (!enabled) {
+			if (tabListUpdater != null) {
+				tabListUpdater.stop();
+				tabListUpdater = null;
+			}
+
+			return;
+		}
+
+		if (tabListUpdater != null) {
+			tabListUpdater.setInterval(interval);
+			return;
+		}
+
+		TabListUpdater updater = new TabListUpdater(this, interval);
+
+		for (Player player : proxy.getAllPlayers()) {
+			updater.markConnected(player.getUniqueId());
+		}
+
+		tabListUpdater = updater;
+	}
+
+	/**
+	 * Starts, restarts or stops the animation ticker to match the given settings
+	 * Animations are only shown in the tab list, so the ticker only runs while the tab list is enabled
+	 *
+	 * @param enabled - Whether the tab list is enabled
+	 * @param interval - The delay between animation frames in milliseconds, or 0 to disable animations
+	 */
+	private synchronized void configureAnimation(boolean enabled, long interval) {
+		enabled = enabled && interval > 0;
+
+		if (animationTicker != null && (!enabled || animationTicker.getInterval() != interval)) {
+			animationTicker.stop();
+			animationTicker = null;
+		}
+
+		if (enabled && animationTicker == null) {
+			AnimationTicker ticker = new AnimationTicker(this, interval);
+			sessions.forEachActive(ticker::update);
+			ticker.start();
+			animationTicker = ticker;
+		}
+	}
+
+	private void loadResource(String resource) {
+		File folder = dataDirectory.toFile();
+
+		if (!folder.exists()) {
+			folder.mkdir();
+		}
+
+		File resourceFile = new File(dataDirectory.toFile(), resource);
+
+		try {
+			if (!resourceFile.exists()) {
+				resourceFile.createNewFile();
+
+				try (InputStream in = getClass().getClassLoader().getResourceAsStream(resource);
+					 OutputStream out = new FileOutputStream(resourceFile)) {
+					ByteStreams.copy(in, out);
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static Prefixes getInstance() {
+		return instance;
+	}
+
+	/**
+	 * Applies the given prefix to the given player, updating their luckperms meta and prefix as necessary
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param player - The player to apply the prefix to
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	public CompletableFuture<Boolean> applyPrefix(Player player, Prefix prefix, PrefixColour colour) {
+		return applyPrefix(player, prefix, colour, null);
+	}
+
+	/**
+	 * Applies the given prefix to the given player on the given server, updating their luckperms meta and prefix
+	 * as necessary
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param player - The player to apply the prefix to
+	 * @param server - The server to apply the prefix on, or null to apply it globally
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	public CompletableFuture<Boolean> applyPrefix(Player player, Prefix prefix, PrefixColour colour, @Nullable String server) {
+		if (prefix.hasPermission() && !player.hasPermission(prefix.getPermission())) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		User user = userManager.getUser(player.getUniqueId());
+
+		if (user == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return applyPrefix(user, prefix, colour, server);
+	}
+
+	/**
+	 * Applies the given prefix to the given luckperms user, updating their meta and prefix
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param user - The user to apply the prefix to
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	public CompletableFuture<Boolean> applyPrefix(User user, Prefix prefix, PrefixColour colour) {
+		return applyPrefix(user, prefix, colour, null);
+	}
+
+	/**
+	 * Applies the given prefix to the given luckperms user on the given server, updating their meta and prefix
+	 * Per-server prefixes are stored as nodes with a server context
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param user - The user to apply the prefix to
+	 * @param server - The server to apply the prefix on, or null to apply it globally
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	public CompletableFuture<Boolean> applyPrefix(User user, Prefix prefix, PrefixColour colour, @Nullable String server) {
+		PrefixHistory history = server == null
+				? sessions.pushHistory(user.getUniqueId(), new PrefixSelection(prefix, colour)) : null;
+
+		return applyPrefix(user, prefix, colour, server, history, true);
+	}
+
+	/**
+	 * Applies the given prefix to the given luckperms user on the given server, storing the given history alongside it
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param user - The user to apply the prefix to
+	 * @param server - The server to apply the prefix on, or null to apply it globally
+	 * @param history - The user's updated history, or null to leave it unchanged
+	 * @param propagate - Whether to push the change to other servers through the LuckPerms messaging service
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	private CompletableFuture<Boolean> applyPrefix(User user, Prefix prefix, PrefixColour colour,
+												   @Nullable String server, @Nullable PrefixHistory history,
+												   boolean propagate) {
+		if (!acquireStorage(user)) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return applyPrefixWithPermit(user, prefix, colour, server, history, propagate);
+	}
+
+	/**
+	 * Applies the given prefix to the given luckperms user and saves it, using a storage permit which the caller has
+	 * already acquired with {@link #acquireStorage(User)}
+	 *
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param user - The user to apply the prefix to
+	 * @param server - The server to apply the prefix on, or null to apply it globally
+	 * @param history - The user's updated history, or null to leave it unchanged
+	 * @param propagate - Whether to push the change to other servers through the LuckPerms messaging service
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	private CompletableFuture<Boolean> applyPrefixWithPermit(User user, Prefix prefix, PrefixColour colour,
+															 @Nullable String server, @Nullable PrefixHistory history,
+															 boolean propagate) {
+		Set<Node> before = getPrefixNodes(user);
+
+		removePrefixNodes(user, server);
+		addPrefixNodes(user, prefix, colour, server);
+
+		if (history != null) {
+			setHistoryNode(user, history);
+		}
+
+		Set<Node> after = getPrefixNodes(user);
+
+		return saveUser(user, propagate).thenApply((result) -> {
+			if(!result) {
+				revertPrefixNodes(user, before, after);
+			} else {
+				if (history != null) {
+					sessions.replaceHistory(user.getUniqueId(), history);
+				}
+
+				if(server == null) {
+					sessions.setGlobal(user.getUniqueId(), prefix, colour);
+					indexSelection(user.getUniqueId(), prefix.getId(), colour.getId());
+				} else {
+					sessions.setServerSelection(user.getUniqueId(), server, new PrefixSelection(prefix, colour));
+				}
+
+				onPrefixChanged(user.getUniqueId());
+			}
+
+			return result;
+		});
+	}
+
+	/**
+	 * Applies the given prefix to the given player for the given duration
+	 * Temporary prefixes are shown instead of the player's selected prefixes until they expire, after which the
+	 * previous prefix is restored. The player does not need permission to use the prefix or colour.
+	 *
+	 * @param player - The player to apply the prefix to
+	 * @param prefix - The prefix to apply
+	 * @param colour - The prefix colour to apply
+	 * @param duration - How long the prefix should last
+	 * @return - Completable future indicating whether applying was successful
+	 */
+	public CompletableFuture<Boolean> applyTemporaryPrefix(Player player, Prefix prefix, PrefixColour colour,
+														   Duration duration) {
+		User user = userManager.getUser(player.getUniqueId());
+
+		if (user == null || !acquireStorage(user)) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		Instant expiry = Instant.now().plus(duration);
+		Set<Node> before = getPrefixNodes(user);
+
+		removeTemporaryPrefixNodes(user);
+		addTemporaryPrefixNodes(user, prefix, colour, expiry);
+
+		Set<Node> after = getPrefixNodes(user);
+
+		return saveUser(user).thenApply(result -> {
+			if (!result) {
+				revertPrefixNodes(user, before, after);
+			} else {
+				sessions.setTemporarySelection(user.getUniqueId(), new PrefixSelection(prefix, colour));
+				expiryWheel.schedule(user.getUniqueId(), expiry.toEpochMilli());
+				onPrefixChanged(user.getUniqueId());
+			}
+
+			return result;
+		});
+	}
+
+	/**
+	 * Removes any prefixes from the given player
+	 *
+	 * @param player - The player to clear
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	public CompletableFuture<Boolean> clearPrefix(Player player) {
+		return clearPrefix(player, null);
+	}
+
+	/**
+	 * Removes any prefixes from the given player on the given server
+	 *
+	 * @param player - The player to clear
+	 * @param server - The server to clear the prefix on, or null to clear the global prefix
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	public CompletableFuture<Boolean> clearPrefix(Player player, @Nullable String server) {
+		User user = userManager.getUser(player.getUniqueId());
+
+		if (user == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return clearPrefix(user, server, true);
+	}
+
+	/**
+	 * Removes any prefixes from the given luckperms user, optionally saving any changes
+	 *
+	 * @param user - The user to clear
+	 * @param save - Whether to save any changes
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	public CompletableFuture<Boolean> clearPrefix(User user, boolean save) {
+		return clearPrefix(user, null, save);
+	}
+
+	/**
+	 * Removes any prefixes from the given luckperms user on the given server, optionally saving any changes
+	 *
+	 * @param user - The user to clear
+	 * @param server - The server to clear the prefix on, or null to clear the global prefix
+	 * @param save - Whether to save any changes
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	public CompletableFuture<Boolean> clearPrefix(User user, @Nullable String server, boolean save) {
+		return clearPrefix(user, server, save, true);
+	}
+
+	/**
+	 * Removes any prefixes from the given luckperms user on the given server, optionally saving any changes
+	 * Clearing the global prefix also removes any temporary prefix.
+	 *
+	 * @param user - The user to clear
+	 * @param server - The server to clear the prefix on, or null to clear the global prefix
+	 * @param save - Whether to save any changes
+	 * @param propagate - Whether to push saved changes to other servers through the LuckPerms messaging service
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	private CompletableFuture<Boolean> clearPrefix(User user, @Nullable String server, boolean save,
+												   boolean propagate) {
+		if (!save) {
+			removePrefixNodes(user, server);
+
+			if (server == null) {
+				removeTemporaryPrefixNodes(user);
+			}
+
+			return CompletableFuture.completedFuture(true);
+		}
+
+		if (!acquireStorage(user)) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return clearPrefixWithPermit(user, server, server == null, propagate);
+	}
+
+	/**
+	 * Removes any prefixes from the given luckperms user on the given server and saves the change, using a storage
+	 * permit which the caller has already acquired with {@link #acquireStorage(User)}
+	 *
+	 * @param user - The user to clear
+	 * @param server - The server to clear the prefix on, or null to clear the global prefix
+	 * @param temporary - Whether to also remove the user's temporary prefix and cancel its expiry
+	 * @param propagate - Whether to push the change to other servers through the LuckPerms messaging service
+	 * @return - Completable future indicating whether clearing was successful
+	 */
+	private CompletableFuture<Boolean> clearPrefixWithPermit(User user, @Nullable String server, boolean temporary,
+															 boolean propagate) {
+		Set<Node> before = getPrefixNodes(user);
+
+		removePrefixNodes(user, server);
+
+		if (temporary) {
+			removeTemporaryPrefixNodes(user);
+		}
+
+		PrefixHistory history = server == null ? sessions.pushHistory(user.getUniqueId(), null) : null;
+
+		if (history != null) {
+			setHistoryNode(user, history);
+		}
+
+		Set<Node> after = getPrefixNodes(user);
+
+		return saveUser(user, propagate).thenApply((result) -> {
+			if(!result) {
+				revertPrefixNodes(user, before, after);
+			} else {
+				if (history != null) {
+					sessions.replaceHistory(user.getUniqueId(), history);
+				}
+
+				if(server == null) {
+					sessions.setGlobal(user.getUniqueId(), null, null);
+					indexSelection(user.getUniqueId(), null, null);
+				} else {
+					sessions.setServerSelection(user.getUniqueId(), server, null);
+				}
+
+				if (temporary) {
+					sessions.setTemporarySelection(user.getUniqueId(), null);
+					expiryWheel.cancel(user.getUniqueId());
+				}
+
+				onPrefixChanged(user.getUniqueId());
+			}
+
+			return result;
+		});
+	}
+
+	private void addPrefixNodes(User user, Prefix prefix, PrefixColour colour, @Nullable String server) {
+		ImmutableContextSet context = server != null
+				? ImmutableContextSet.of(DefaultContextKeys.SERVER_KEY, server) : ImmutableContextSet.empty();
+
+		user.data().add(MetaNode.builder("prefix", prefix.getId()).context(context).build());
+		user.data().add(MetaNode.builder("prefix-colour", colour.getId()).context(context).build());
+		user.data().add(PrefixNode.builder(prefix.getPrefix(colour), PREFIX_PRIORITY).context(context).build());
+	}
+
+	private void addTemporaryPrefixNodes(User user, Prefix prefix, PrefixColour colour, Instant expiry) {
+		user.data().add(MetaNode.builder("prefix-temporary", prefix.getId()).expiry(expiry).build());
+		user.data().add(MetaNode.builder("prefix-temporary-colour", colour.getId()).expiry(expiry).build());
+		user.data().add(PrefixNode.builder(prefix.getPrefix(colour), TEMPORARY_PREFIX_PRIORITY).expiry(expiry).build());
+	}
+
+	private boolean removeTemporaryPrefixNodes(User user) {
+		boolean removed = false;
+
+		for (Node node : user.getNodes(NodeType.META_OR_CHAT_META)) {
+			if (isTemporaryPrefixNode(node)) {
+				user.data().remove(node);
+				removed = true;
+			}
+		}
+
+		return removed;
+	}
+
+	private static boolean hasTemporaryPrefixNodes(User user) {
+		return user.getNodes(NodeType.META_OR_CHAT_META).stream().anyMatch(Prefixes::isTemporaryPrefixNode);
+	}
+
+	private static boolean isTemporaryPrefixNode(Node node) {
+		if (!node.hasExpiry() || getServerContext(node) != null) {
+			return false;
+		}
+
+		if (node instanceof MetaNode metaNode) {
+			return metaNode.getMetaKey().equals("prefix-temporary")
+					|| metaNode.getMetaKey().equals("prefix-temporary-colour");
+		}
+
+		return node instanceof PrefixNode prefixNode && prefixNode.getPriority() == TEMPORARY_PREFIX_PRIORITY;
+	}
+
+	private void removePrefixNodes(User user, @Nullable String server) {
+		Collection<Node> nodes = user.getNodes(NodeType.META_OR_CHAT_META);
+		NodeMap data = user.data();
+
+		for (Node node : nodes) {
+			if (!Objects.equals(getServerContext(node), server) || isTemporaryPrefixNode(node)) {
+				continue;
+			}
+
+			if (node instanceof MetaNode metaNode) {
+				if(metaNode.getMetaKey().equals("prefix") || metaNode.getMetaKey().equals("prefix-colour")) {
+					data.remove(node);
+				}
+			}
+
+			if(node instanceof PrefixNode) {
+				data.remove(node);
+			}
+		}
+	}
+
+	private static Set<Node> getPrefixNodes(User user) {
+		return new HashSet<>(user.getNodes(NodeType.META_OR_CHAT_META));
+	}
+
+	/**
+	 * Reverts changes made to the cached user's prefix and meta nodes after a failed save, so the cached data doesn't
+	 * get ahead of storage
+	 * Only the nodes changed between the two snapshots are reverted, leaving any other changes in place.
+	 *
+	 * @param user - The user
+	 * @param before - The user's nodes before the change, from {@link #getPrefixNodes(User)}
+	 * @param after - The user's nodes after the change
+	 */
+	private static void revertPrefixNodes(User user, Set<Node> before, Set<Node> after) {
+		for (Node node : after) {
+			if (!before.contains(node)) {
+				user.data().remove(node);
+			}
+		}
+
+		for (Node node : before) {
+			if (!after.contains(node)) {
+				user.data().add(node);
+			}
+		}
+	}
+
+	private void setHistoryNode(User user, PrefixHistory history) {
+		for (MetaNode node : user.getNodes(NodeType.META)) {
+			if (node.getMetaKey().equals(HISTORY_META_KEY) && getServerContext(node) == null) {
+				user.data().remove(node);
+			}
+		}
+
+		if (!history.isEmpty()) {
+			user.data().add(MetaNode.builder(HISTORY_META_KEY, history.encode()).build());
+		}
+	}
+
+	private static @Nullable String getServerContext(Node node) {
+		return node.getContexts().getAnyValue(DefaultContextKeys.SERVER_KEY).orElse(null);
+	}
+
+	private CompletableFuture<Boolean> saveUser(User user) {
+		return saveUser(user, true);
+	}
+
+	/**
+	 * Acquires a permit from the storage circuit breaker for saving the given user
+	 * Permits must be acquired before the user's data is modified, so a rejected save never leaves changes on the
+	 * cached user which aren't in storage. Every acquired permit must be followed by a call to
+	 * {@link #saveUser(User, boolean)}, and changes which then fail to save are reverted with
+	 * {@link #revertPrefixNodes(User, Set, Set)}.
+	 *
+	 * @param user - The user which will be saved
+	 * @return - Whether the save may proceed
+	 */
+	private boolean acquireStorage(User user) {
+		CircuitBreaker breaker = storageBreaker;
+
+		if (breaker != null && !breaker.tryAcquire()) {
+			logger.warn("Not saving prefix for " + user.getUsername() + " as LuckPerms storage is unavailable");
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Saves the given user to LuckPerms storage, using a permit already acquired with {@link #acquireStorage(User)}
+	 *
+	 * @param user - The user to save
+	 * @param propagate - Whether to push the change to other servers through the LuckPerms messaging service
+	 * @return - Completable future indicating whether saving was successful
+	 */
+	private CompletableFuture<Boolean> saveUser(User user, boolean propagate) {
+		CircuitBreaker breaker = storageBreaker;
+		long start = System.currentTimeMillis();
+		CompletableFuture<Void> save = userManager.saveUser(user);
+
+		if (breaker != null) {
+			save = save.orTimeout(breaker.getSettings().timeoutMillis(), TimeUnit.MILLISECONDS)
+					.whenComplete((ignored, e) -> {
+						if (e == null) {
+							breaker.onSuccess(System.currentTimeMillis() - start);
+						} else {
+							breaker.onFailure();
+						}
+					});
+		}
+
+		// Continue on the plugin's executor, so callers' continuations don't run on LuckPerms' storage threads
+		return save.handleAsync((ignored, e) -> {
+			if (e != null) {
+				logger.warn("Failed to save and propagate prefix for " + user.getUsername(), e);
+
+				if (breaker != null && breaker.getState() == CircuitBreaker.State.OPEN) {
+					logger.warn("LuckPerms storage is unavailable, prefix changes will be rejected until it recovers");
+				}
+
+				return false;
+			}
+
+			if (propagate) {
+				luckperms.getMessagingService().ifPresent((service) -> service.pushUserUpdate(user));
+			}
+
+			return true;
+		}, executor);
+	}
+
+	/**
+	 * Returns whether prefix changes can currently be saved to LuckPerms storage
+	 *
+	 * @return - Whether storage is available
+	 */
+	public boolean isStorageAvailable() {
+		CircuitBreaker breaker = storageBreaker;
+		return breaker == null || breaker.isAvailable();
+	}
+
+	/**
+	 * Gets the journal prefix changes are recorded in
+	 *
+	 * @return - The audit journal, or null if it is disabled
+	 */
+	public @Nullable AuditJournal getAuditJournal() {
+		return auditJournal;
+	}
+
+	/**
+	 * Records a prefix change made by the given command source in the audit journal
+	 *
+	 * @param actor - The command source which made the change
+	 * @param action - The kind of change
+	 * @param success - Whether the change was saved
+	 * @param target - The player whose prefix was changed
+	 * @param server - The server the change applies to, or null for global prefixes
+	 * @param previous - The target's selection before the change
+	 * @param prefix - The new prefix, or null if the prefix was cleared
+	 * @param colour - The new colour, or null if the prefix was cleared
+	 */
+	void recordAudit(CommandSource actor, AuditJournal.Action action, boolean success, Player target,
+					 @Nullable String server, @Nullable PrefixSelection previous, @Nullable Prefix prefix,
+					 @Nullable PrefixColour colour) {
+		recordAudit(new AuditJournal.Event(
+				System.currentTimeMillis(), action,
+				success ? AuditJournal.Outcome.SUCCESS : AuditJournal.Outcome.FAILED,
+				actor instanceof Player player ? player.getUniqueId() : null,
+				actor instanceof Player player ? player.getUsername() : "Console",
+				target.getUniqueId(), target.getUsername(), server,
+				previous != null ? previous.prefix().getId() : null,
+				previous != null ? previous.colour().getId() : null,
+				prefix != null ? prefix.getId() : null,
+				colour != null ? colour.getId() : null));
+	}
+
+	private void recordAudit(AuditJournal.Event event) {
+		AuditJournal journal = auditJournal;
+
+		if (journal != null) {
+			journal.record(event);
+		}
+	}
+
+	/**
+	 * Gets the stored global prefix selection of the given player, without loading them from LuckPerms
+	 * Selections are stored whenever they are changed through the plugin and when players join, so may be missing or
+	 * outdated for players who haven't joined since the index was created. Use /prefix index rebuild to populate the
+	 * index from LuckPerms storage.
+	 *
+	 * @param uuid - The player's uuid
+	 * @return - The stored selection, or null if nothing is stored for the player or the index is unavailable
+	 */
+	public @Nullable SelectionIndex.Entry getIndexedSelection(UUID uuid) {
+		SelectionIndex index = selectionIndex;
+		return index != null ? index.get(uuid) : null;
+	}
+
+	/**
+	 * Gets the index of stored prefix selections
+	 *
+	 * @return - The selection index, or null if it could not be opened
+	 */
+	public @Nullable SelectionIndex getSelectionIndex() {
+		return selectionIndex;
+	}
+
+	private void indexSelection(UUID uuid, @Nullable String prefixId, @Nullable String colourId) {
+		SelectionIndex index = selectionIndex;
+
+		if (index == null) {
+			return;
+		}
+
+		try {
+			index.put(uuid, prefixId, colourId, System.currentTimeMillis(), true);
+		} catch (IOException e) {
+			logger.warn("Failed to update selection index for " + uuid, e);
+		}
+	}
+
+	/**
+	 * Rebuilds the selection index from LuckPerms storage
+	 * Users are loaded in batches so only a bounded number are held in memory at once, and users who aren't online
+	 * are unloaded again once read. Selections changed while the rebuild is running are kept.
+	 *
+	 * @param progress - Called with the number of users processed and the total number of users after each batch
+	 * @return - Completable future of the number of indexed selections, or null if a rebuild is already running
+	 */
+	public CompletableFuture<@Nullable Integer> rebuildSelectionIndex(BiConsumer<Integer, Integer> progress) {
+		SelectionIndex index = selectionIndex;
+
+		if (index == null) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Selection index is unavailable"));
+		}
+
+		if (!indexRebuilding.compareAndSet(false, true)) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		long started = System.currentTimeMillis();
+
+		return userManager.getUniqueUsers().thenComposeAsync(
+				uuids -> forEachStoredUser(uuids, user -> indexStoredSelection(index, user, started), progress)
+						.thenApplyAsync(ignored -> {
+							try {
+								index.retain(uuids, started);
+							} catch (IOException e) {
+								throw new UncheckedIOException(e);
+							}
+
+							return index.size();
+						}, executor), executor)
+				.whenComplete((result, e) -> indexRebuilding.set(false));
+	}
+
+	private void indexStoredSelection(SelectionIndex index, User user, long updated) {
+		String prefixId = null;
+		String colourId = null;
+
+		for (MetaNode node : user.getNodes(NodeType.META)) {
+			if (getServerContext(node) != null) {
+				continue;
+			}
+
+			if (node.getMetaKey().equals("prefix")) {
+				prefixId = node.getMetaValue();
+			} else if (node.getMetaKey().equals("prefix-colour")) {
+				colourId = node.getMetaValue();
+			}
+		}
+
+		try {
+			index.put(user.getUniqueId(), prefixId, colourId, updated, false);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Exports the prefix selections of every user in LuckPerms storage to a file in the exports directory
+	 * Users are loaded in batches and written as they are read, so only a bounded number of users are held in memory.
+	 * Each global and per-server selection is written as a separate row, users without a selection are skipped.
+	 *
+	 * @param format - The format to export in
+	 * @param progress - Called with the number of users processed and the total number of users after each batch
+	 * @return - Completable future of the completed export, or null if an export is already running
+	 */
+	public CompletableFuture<@Nullable SelectionExporter> exportSelections(SelectionExporter.Format format,
+																		   BiConsumer<Integer, Integer> progress) {
+		if (!exporting.compareAndSet(false, true)) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		Path file = dataDirectory.resolve("exports").resolve(
+				"selections-" + EXPORT_FILE_FORMAT.format(LocalDateTime.now()) + "." + format.getExtension());
+
+		return userManager.getUniqueUsers().thenComposeAsync(uuids -> {
+			SelectionExporter exporter;
+
+			try {
+				exporter = new SelectionExporter(file, format);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+
+			return forEachStoredUser(uuids, user -> exportStoredSelections(exporter, user), progress)
+					.thenApplyAsync(ignored -> {
+						try {
+							exporter.complete();
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+
+						return exporter;
+					}, executor)
+					.whenComplete((result, e) -> {
+						// Removes the partially written file if the export failed
+						try {
+							exporter.close();
+						} catch (IOException ex) {
+							logger.warn("Failed to close export " + file, ex);
+						}
+					});
+		}, executor).whenComplete((result, e) -> exporting.set(false));
+	}
+
+	private void exportStoredSelections(SelectionExporter exporter, User user) {
+		Map<String, String> prefixIds = new HashMap<>();
+		Map<String, String> colourIds = new HashMap<>();
+		String globalPrefix = null;
+		String globalColour = null;
+
+		for (MetaNode node : user.getNodes(NodeType.META)) {
+			String server = getServerContext(node);
+			boolean prefix = node.getMetaKey().equals("prefix");
+
+			if (!prefix && !node.getMetaKey().equals("prefix-colour")) {
+				continue;
+			}
+
+			if (server == null && prefix) {
+				globalPrefix = node.getMetaValue();
+			} else if (server == null) {
+				globalColour = node.getMetaValue();
+			} else {
+				(prefix ? prefixIds : colourIds).put(server, node.getMetaValue());
+			}
+		}
+
+		try {
+			if (globalPrefix != null) {
+				exporter.write(user.getUniqueId(), user.getUsername(), null, globalPrefix, globalColour);
+			}
+
+			for (Map.Entry<String, String> entry : prefixIds.entrySet()) {
+				exporter.write(user.getUniqueId(), user.getUsername(), entry.getKey(), entry.getValue(),
+							   colourIds.get(entry.getKey()));
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Loads each of the given users from LuckPerms storage and passes them to the given consumer
+	 * Users are loaded in batches, with the next batch only loaded once the current batch has been consumed. Users who
+	 * aren't online are unloaded once consumed. Nothing blocks while waiting for a batch, so no executor thread is
+	 * held for the duration.
+	 *
+	 * @param uuids - The users to load
+	 * @param consumer - Consumer for each loaded user, called on the plugin's executor
+	 * @param progress - Called with the number of users processed and the total number of users after each batch
+	 * @return - Completable future completed once every user has been consumed
+	 */
+	private CompletableFuture<Void> forEachStoredUser(Collection<UUID> uuids, Consumer<User> consumer,
+													  BiConsumer<Integer, Integer> progress) {
+		return forEachStoredUser(List.copyOf(uuids), 0, consumer, progress);
+	}
+
+	private CompletableFuture<Void> forEachStoredUser(List<UUID> uuids, int start, Consumer<User> consumer,
+													  BiConsumer<Integer, Integer> progress) {
+		if (start >= uuids.size()) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		int end = Math.min(start + STORED_USER_BATCH_SIZE, uuids.size());
+		CompletableFuture<?>[] batch = new CompletableFuture<?>[end - start];
+
+		for (int i = start; i < end; i++) {
+			batch[i - start] = userManager.loadUser(uuids.get(i)).thenAcceptAsync(user -> {
+				try {
+					consumer.accept(user);
+				} finally {
+					if (proxy.getPlayer(user.getUniqueId()).isEmpty()) {
+						userManager.cleanupUser(user);
+					}
+				}
+			}, executor);
+		}
+
+		return CompletableFuture.allOf(batch).thenCompose(ignored -> {
+			progress.accept(end, uuids.size());
+			return forEachStoredUser(uuids, end, consumer, progress);
+		});
+	}
+
+	/**
+	 * Looks up the uuid of a player by name, using LuckPerms for players who are offline
+	 *
+	 * @param username - The player's name
+	 * @return - Completable future of the player's uuid, or null if the player is unknown
+	 */
+	public CompletableFuture<@Nullable UUID> lookupUniqueId(String username) {
+		Optional<Player> player = proxy.getPlayer(username);
+
+		if (player.isPresent()) {
+			return CompletableFuture.completedFuture(player.get().getUniqueId());
+		}
+
+		return userManager.lookupUniqueId(username);
+	}
+
+	/**
+	 * Gets the circuit breaker guarding LuckPerms storage
+	 *
+	 * @return - The circuit breaker, or null if it is disabled
+	 */
+	public @Nullable CircuitBreaker getStorageBreaker() {
+		return storageBreaker;
+	}
+
+	/**
+	 * Runs a single deferred prefix check once the storage circuit breaker allows a probe
+	 * The check's save acts as the probe, and the remaining checks are run once it succeeds
+	 */
+	private void probeStorage() {
+		CircuitBreaker breaker = storageBreaker;
+
+		if (breaker == null || breaker.getState() == CircuitBreaker.State.CLOSED || !breaker.isAvailable()) {
+			return;
+		}
+
+		deferredChecks.stream().findFirst().ifPresent(uuid -> {
+			deferredChecks.remove(uuid);
+			proxy.getPlayer(uuid).ifPresent(this::checkPrefix);
+		});
+	}
+
+	private void onStorageRecovered() {
+		logger.info("LuckPerms storage has recovered, running " + deferredChecks.size() + " deferred prefix checks");
+
+		for (UUID uuid : List.copyOf(deferredChecks)) {
+			deferredChecks.remove(uuid);
+			proxy.getPlayer(uuid).ifPresent(this::checkPrefix);
+		}
+	}
+
+	/**
+	 * Propagates a change in the given player's prefix to backend servers and tab lists, if enabled
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	private void onPrefixChanged(UUID uuid) {
+		updateActiveSelection(uuid);
+		publishPrefix(uuid);
+
+		TabListUpdater updater = tabListUpdater;
+
+		if (updater != null) {
+			updater.markDirty(uuid);
+		}
+	}
+
+	/**
+	 * Queues the current prefix of the given player to be sent to the server they are connected to, if enabled
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	private void publishPrefix(UUID uuid) {
+		PrefixSync sync = prefixSync;
+
+		if (sync == null) {
+			return;
+		}
+
+		proxy.getPlayer(uuid).flatMap(Player::getCurrentServer).ifPresent(
+				connection -> sync.queue(connection.getServer(), uuid));
+	}
+
+	/**
+	 * Creates a sync entry for the current prefix of the given player, using ordinals from the given registry
+	 * Session state may still refer to prefixes from before a reload until players are rechecked, so prefixes and
+	 * colours are resolved by id. Selections whose prefix or colour no longer exists are sent as cleared.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param registry - The registry the entry's batch will be sent with
+	 * @return - The entry
+	 */
+	PrefixSyncMessage.Entry createSyncEntry(UUID uuid, PrefixRegistry registry) {
+		return sessions.createSyncEntry(uuid, registry);
+	}
+
+	/**
+	 * Resolves the selection which applies to the given player on their current server
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	private void updateActiveSelection(UUID uuid) {
+		updateActiveSelection(uuid, proxy.getPlayer(uuid).flatMap(Player::getCurrentServer)
+				.map(connection -> connection.getServerInfo().getName()).orElse(null));
+	}
+
+	/**
+	 * Resolves the selection which applies to the given player on the given server from cached selections
+	 * See {@link PrefixSessions#resolve(UUID, String)} for the order in which selections apply.
+	 *
+	 * @param uuid - The player's uuid
+	 * @param server - The server name, or null if the player isn't connected to a server
+	 */
+	private void updateActiveSelection(UUID uuid, @Nullable String server) {
+		PrefixSelection selection = sessions.resolve(uuid, server);
+		AnimationTicker ticker = animationTicker;
+
+		if (ticker != null) {
+			ticker.update(uuid, selection);
+		}
+	}
+
+	/**
+	 * Checks the luckperms meta and prefixes of the given player and removes/applies prefixes as necessary
+	 * Prefixes that don't match the user's set prefix are removed and the correct prefix is added if missing
+	 *
+	 * @param player - The player to check
+	 */
+	private void checkPrefix(Player player) {
+		User user = userManager.getUser(player.getUniqueId());
+
+		if (user == null) {
+			logger.warn("Failed to update prefix for " + player.getUsername());
+			return;
+		}
+
+		loadHistory(user);
+
+		checkPrefix(user).thenAccept(result -> {
+			if (result == PrefixCheckResult.NO_CHANGE) {
+				return;
+			}
+
+			Prefix prefix = sessions.getPrefix(player.getUniqueId());
+			PrefixColour colour = sessions.getColour(player.getUniqueId());
+
+			switch (result) {
+				case PREFIX_REMOVED -> Messages.sendComponent(player, "notifications.prefix-removed");
+				case COLOUR_REMOVED -> Messages.sendComponent(
+						player, "notifications.colour-removed",
+						Collections.emptyMap(),
+						Collections.singletonMap("preview",
+												 prefix.getPrefixComponent(colour)));
+				case PREFIX_UPDATED -> Messages.sendComponent(
+						player, "notifications.prefix-updated",
+						Collections.emptyMap(),
+						Collections.singletonMap("preview",
+												 prefix.getPrefixComponent(colour)));
+			}
+		});
+	}
+
+	/**
+	 * Checks the meta and prefixes of the given luckperms user and removes/applies prefixes as necessary
+	 * Prefixes that don't match the user's set prefix are removed and the correct prefix is added if missing
+	 *
+	 * @param user - The user to check
+	 * @fixme - Remove prefix when user loses permission
+	 */
+	private CompletableFuture<PrefixCheckResult> checkPrefix(User user) {
+		Collection<Node> nodes = user.getNodes(NodeType.META_OR_CHAT_META);
+		Prefix prefix = null;
+		PrefixColour colour = null;
+		String prefixId = null;
+		String colourId = null;
+
+		var ref = new Object() {
+			PrefixCheckResult result = PrefixCheckResult.NO_CHANGE;
+		};
+
+		boolean prefixFound = false;
+		boolean colourFound = false;
+
+		// Get selected prefix/colour
+		for (Node node : nodes) {
+			if (getServerContext(node) != null) {
+				continue;
+			}
+
+			if (node instanceof MetaNode metaNode) {
+				if(metaNode.getMetaKey().equals("prefix")) {
+					prefixId = metaNode.getMetaValue();
+					prefix = registry.getPrefix(prefixId);
+					prefixFound = true;
+				}
+
+				if(metaNode.getMetaKey().equals("prefix-colour")) {
+					colourId = metaNode.getMetaValue();
+					colour = registry.getColour(colourId);
+					colourFound = true;
+				}
+			}
+		}
+
+		sessions.setGlobal(user.getUniqueId(), null, null);
+
+		if (colour != null && prefix != null && !prefix.isColourCompatible(colour)) { // Colour no longer allowed for prefix
+			colour = null;
+		}
+
+		if (colour == null && prefix != null) { // User has invalid colour, or has never selected a colour
+			ref.result = colourFound ? PrefixCheckResult.COLOUR_REMOVED : PrefixCheckResult.PREFIX_UPDATED;
+			colour = prefix.getDefaultColour();
+		}
+
+		if (prefix == null && prefixFound) { // User has invalid prefix
+			ref.result = PrefixCheckResult.PREFIX_REMOVED;
+		} else if(ref.result != PrefixCheckResult.COLOUR_REMOVED) { // Check if any existing prefix needs updating
+			for (Node node : nodes) {
+				if (node instanceof PrefixNode && getServerContext(node) == null && !isTemporaryPrefixNode(node)) {
+					// Existing prefix that needs to be updated
+					if(prefix == null) {
+						ref.result = PrefixCheckResult.PREFIX_REMOVED;
+					} else if (!prefix.getPrefix(colour).equals(((PrefixNode) node).getMetaValue())) {
+						ref.result = PrefixCheckResult.PREFIX_UPDATED;
+					}
+				}
+			}
+		}
+
+		// Only find what needs repairing for now, the user isn't modified until a storage permit has been acquired
+		boolean serverPrefixesChanged = checkServerPrefixes(user, nodes, false);
+		boolean temporaryPrefixChanged = checkTemporaryPrefix(user, nodes, false);
+
+		logger.debug("Prefix check result for " + user.getUsername() + ": " + ref.result);
+
+		if(ref.result == PrefixCheckResult.NO_CHANGE) {
+			sessions.setGlobal(user.getUniqueId(), prefix, colour);
+
+			// Catch up with any changes made outside the plugin, such as through LuckPerms commands
+			indexSelection(user.getUniqueId(), prefix != null ? prefix.getId() : null,
+						   prefix != null && colour != null ? colour.getId() : null);
+
+			if((serverPrefixesChanged || temporaryPrefixChanged) && !acquireStorage(user)) {
+				deferCheck(user);
+				onPrefixChanged(user.getUniqueId());
+				return CompletableFuture.completedFuture(ref.result);
+			}
+
+			if(serverPrefixesChanged || temporaryPrefixChanged) {
+				checkServerPrefixes(user, nodes, true);
+				checkTemporaryPrefix(user, nodes, true);
+
+				return saveUser(user).thenApply(result -> {
+					onPrefixChanged(user.getUniqueId());
+					return ref.result;
+				});
+			}
+
+			updateActiveSelection(user.getUniqueId());
+			return CompletableFuture.completedFuture(ref.result);
+		}
+
+		String newPrefixId = ref.result != PrefixCheckResult.PREFIX_REMOVED ? prefix.getId() : null;
+		String newColourId = ref.result != PrefixCheckResult.PREFIX_REMOVED ? colour.getId() : null;
+
+		// Serve the corrected prefix from session state and repair it once storage recovers
+		if (!acquireStorage(user)) {
+			if (ref.result != PrefixCheckResult.PREFIX_REMOVED) {
+				sessions.setGlobal(user.getUniqueId(), prefix, colour);
+			}
+
+			recordRepair(user, AuditJournal.Outcome.DEFERRED, prefixId, colourId, newPrefixId, newColourId);
+			deferCheck(user);
+			onPrefixChanged(user.getUniqueId());
+			return CompletableFuture.completedFuture(PrefixCheckResult.NO_CHANGE);
+		}
+
+		checkServerPrefixes(user, nodes, true);
+		checkTemporaryPrefix(user, nodes, true);
+
+		// Update prefix if required, using the permit acquired above
+		CompletableFuture<Boolean> repair = ref.result == PrefixCheckResult.PREFIX_REMOVED
+				? clearPrefixWithPermit(user, null, false, true)
+				: applyPrefixWithPermit(user, prefix, colour, null,
+										sessions.pushHistory(user.getUniqueId(), new PrefixSelection(prefix, colour)),
+										true);
+		String oldPrefixId = prefixId;
+		String oldColourId = colourId;
+
+		return repair.thenApply(success -> {
+			recordRepair(user, success ? AuditJournal.Outcome.SUCCESS : AuditJournal.Outcome.FAILED,
+						 oldPrefixId, oldColourId, newPrefixId, newColourId);
+			return ref.result;
+		});
+	}
+
+	private void recordRepair(User user, AuditJournal.Outcome outcome, @Nullable String oldPrefix,
+							  @Nullable String oldColour, @Nullable String newPrefix, @Nullable String newColour) {
+		recordAudit(new AuditJournal.Event(System.currentTimeMillis(), AuditJournal.Action.REPAIR, outcome, null,
+										   SYSTEM_ACTOR, user.getUniqueId(), getUsername(user), null,
+										   oldPrefix, oldColour, newPrefix, newColour));
+	}
+
+	private static String getUsername(User user) {
+		return user.getUsername() != null ? user.getUsername() : user.getUniqueId().toString();
+	}
+
+	private void deferCheck(User user) {
+		logger.info("Deferring prefix repair for " + user.getUsername() + " as LuckPerms storage is unavailable");
+		deferredChecks.add(user.getUniqueId());
+	}
+
+	/**
+	 * Checks the per-server prefix nodes of the given luckperms user and caches the valid selections
+	 * Selections for prefixes which no longer exist are removed, and outdated prefix nodes are replaced.
+	 * Any changes are made to the user's data without saving.
+	 *
+	 * @param user - The user to check
+	 * @param nodes - The user's meta nodes
+	 * @param repair - Whether to make the changes, or only report whether any are needed
+	 * @return - Whether any changes were made, or would be made if repairing
+	 */
+	private boolean checkServerPrefixes(User user, Collection<Node> nodes, boolean repair) {
+		sessions.setServerSelections(user.getUniqueId(), Collections.emptyMap());
+
+		if (!perServerPrefixes) {
+			return false;
+		}
+
+		Map<String, String> prefixIds = new HashMap<>();
+		Map<String, String> colourIds = new HashMap<>();
+		Map<String, String> renderedPrefixes = new HashMap<>();
+
+		for (Node node : nodes) {
+			String server = getServerContext(node);
+
+			if (server == null) {
+				continue;
+			}
+
+			if (node instanceof MetaNode metaNode) {
+				if(metaNode.getMetaKey().equals("prefix")) {
+					prefixIds.put(server, metaNode.getMetaValue());
+				}
+
+				if(metaNode.getMetaKey().equals("prefix-colour")) {
+					colourIds.put(server, metaNode.getMetaValue());
+				}
+			}
+
+			if (node instanceof PrefixNode prefixNode) {
+				renderedPrefixes.put(server, prefixNode.getMetaValue());
+			}
+		}
+
+		Set<String> servers = new HashSet<>(prefixIds.keySet());
+		servers.addAll(renderedPrefixes.keySet());
+
+		Map<String, PrefixSelection> selections = new HashMap<>();
+		boolean changed = false;
+
+		for (String server : servers) {
+			String colourId = colourIds.get(server);
+			PrefixSelection selection = registry.resolve(prefixIds.get(server), colourId);
+
+			if (selection == null) {
+				if (repair) {
+					removePrefixNodes(user, server);
+				}
+
+				changed = true;
+				continue;
+			}
+
+			if (!selection.colour().getId().equals(colourId)
+					|| !selection.render().equals(renderedPrefixes.get(server))) {
+				if (repair) {
+					removePrefixNodes(user, server);
+					addPrefixNodes(user, selection.prefix(), selection.colour(), server);
+				}
+
+				changed = true;
+			}
+
+			selections.put(server, selection);
+		}
+
+		sessions.setServerSelections(user.getUniqueId(), selections);
+
+		return changed;
+	}
+
+	/**
+	 * Checks the temporary prefix nodes of the given luckperms user, caches the selection and schedules its expiry
+	 * Temporary prefixes which no longer exist are removed, and outdated prefix nodes are replaced with the same expiry.
+	 * Any changes are made to the user's data without saving.
+	 *
+	 * @param user - The user to check
+	 * @param nodes - The user's meta nodes
+	 * @param repair - Whether to make the changes, or only report whether any are needed
+	 * @return - Whether any changes were made, or would be made if repairing
+	 */
+	private boolean checkTemporaryPrefix(User user, Collection<Node> nodes, boolean repair) {
+		UUID uuid = user.getUniqueId();
+		String prefixId = null;
+		String colourId = null;
+		String rendered = null;
+		Instant expiry = null;
+
+		sessions.setTemporarySelection(uuid, null);
+		expiryWheel.cancel(uuid);
+
+		for (Node node : nodes) {
+			if (!isTemporaryPrefixNode(node) || node.hasExpired()) {
+				continue;
+			}
+
+			if (node instanceof MetaNode metaNode && metaNode.getMetaKey().equals("prefix-temporary")) {
+				prefixId = metaNode.getMetaValue();
+				expiry = node.getExpiry();
+			} else if (node instanceof MetaNode metaNode) {
+				colourId = metaNode.getMetaValue();
+			} else if (node instanceof PrefixNode prefixNode) {
+				rendered = prefixNode.getMetaValue();
+			}
+		}
+
+		PrefixSelection selection = registry.resolve(prefixId, colourId);
+
+		if (selection == null) {
+			return repair ? removeTemporaryPrefixNodes(user) : hasTemporaryPrefixNodes(user);
+		}
+
+		boolean changed = false;
+
+		if (!selection.colour().getId().equals(colourId) || !selection.render().equals(rendered)) {
+			if (repair) {
+				removeTemporaryPrefixNodes(user);
+				addTemporaryPrefixNodes(user, selection.prefix(), selection.colour(), expiry);
+			}
+
+			changed = true;
+		}
+
+		sessions.setTemporarySelection(uuid, selection);
+		expiryWheel.schedule(uuid, expiry.toEpochMilli());
+
+		return changed;
+	}
+
+	/**
+	 * Reverts the given player to their previous prefix once their temporary prefix has expired
+	 * Called by the expiry wheel. Players who are offline when their temporary prefix expires are handled by
+	 * {@link #checkPrefix(Player)} when they next join.
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	private void onTemporaryPrefixExpired(UUID uuid) {
+		PrefixSelection expired = sessions.setTemporarySelection(uuid, null);
+
+		if (expired == null) {
+			return;
+		}
+
+		User user = userManager.getUser(uuid);
+
+		CompletableFuture<Boolean> saved;
+
+		// LuckPerms may already have removed the expired nodes
+		if (user == null || !hasTemporaryPrefixNodes(user)) {
+			saved = CompletableFuture.completedFuture(true);
+		} else if (acquireStorage(user)) {
+			removeTemporaryPrefixNodes(user);
+			saved = saveUser(user);
+		} else {
+			deferCheck(user);
+			saved = CompletableFuture.completedFuture(false);
+		}
+
+		saved.thenAccept(result -> {
+			onPrefixChanged(uuid);
+
+			if (user != null) {
+				recordAudit(new AuditJournal.Event(
+						System.currentTimeMillis(), AuditJournal.Action.EXPIRE,
+						result ? AuditJournal.Outcome.SUCCESS : AuditJournal.Outcome.FAILED, null, SYSTEM_ACTOR,
+						uuid, getUsername(user), null, expired.prefix().getId(), expired.colour().getId(),
+						null, null));
+			}
+
+			proxy.getPlayer(uuid).ifPresent(player -> {
+				PrefixSelection selection = sessions.getActiveSelection(uuid);
+
+				if (selection != null) {
+					Messages.sendComponent(player, "notifications.temporary-prefix-expired",
+										   Collections.emptyMap(),
+										   Collections.singletonMap("preview", selection.component()));
+				} else {
+					Messages.sendComponent(player, "notifications.temporary-prefix-expired-cleared");
+				}
+			});
+		});
+	}
+
+	/**
+	 * Sends the book-based prefix list to the given player if possible
+	 *
+	 * @param player - The player to send the list to
+	 */
+	void sendPrefixList(Player player, int page) {
+		PrefixMenus.sendPrefixList(createViewer(player), getAllowedPrefixes(player, true), page);
+	}
+
+	/**
+	 * Sends the prefixes matching the given search query to the given player
+	 *
+	 * @param player - The player to send the results to
+	 * @param query - The search query
+	 * @param page - The page of results to send
+	 */
+	void sendPrefixSearch(Player player, String query, int page) {
+		List<Prefix> results = registry.getSearchIndex().search(query).stream()
+				.filter(prefix -> isAllowed(player, prefix, true))
+				.collect(Collectors.toList());
+
+		if (results.isEmpty()) {
+			Messages.sendComponent(player, "errors.no-search-results",
+								   Collections.singletonMap("query", query),
+								   Collections.emptyMap());
+			return;
+		}
+
+		PrefixMenus.sendPrefixPage(createViewer(player), results, page, "search-list",
+								   Collections.singletonMap("query", query));
+	}
+
+	/**
+	 * Sends the category menu to the given player
+	 *
+	 * @param player - The player to send the menu to
+	 * @param page - The page of the menu to send
+	 */
+	void sendCategoryMenu(Player player, int page) {
+		PrefixMenus.sendCategoryMenu(createViewer(player), registry.getCategories(),
+									 prefix -> isAllowed(player, prefix, true), page);
+	}
+
+	/**
+	 * Sends the prefixes in the given category to the given player
+	 *
+	 * @param player - The player to send the list to
+	 * @param category - The category
+	 * @param page - The page of the list to send
+	 */
+	void sendCategoryList(Player player, PrefixCategory category, int page) {
+		List<Prefix> prefixes = category.getListedMembers(prefix -> isAllowed(player, prefix, true));
+
+		if (prefixes.isEmpty()) {
+			Messages.sendComponent(player, "errors.no-prefixes");
+			return;
+		}
+
+		PrefixMenus.sendPrefixPage(createViewer(player), prefixes, page, "category-list", Map.of(
+				"category", category.getId(),
+				"name", category.getName()));
+	}
+
+	/**
+	 * Sends the book-based colour list to the given player if possible
+	 *
+	 * @param player - The player to send the list to
+	 * @param prefix - The prefix to use in colour previews
+	 * @param page - The page of the list to send
+	 */
+	void sendColourList(Player player, @NotNull Prefix prefix, int page) {
+		PrefixMenus.sendColourList(createViewer(player), prefix, getAllowedColours(player, prefix, true), page);
+	}
+
+	private PrefixMenus.Viewer createViewer(Player player) {
+		return new PrefixMenus.Viewer(player, player.getUsername(), isBedrock(player), player::hasPermission,
+									  sessions.getPrefix(player.getUniqueId()),
+									  sessions.getColour(player.getUniqueId()));
+	}
+
+	private boolean isBedrock(Player player) {
+		return platformDetectionEnabled && platformDetection.getPlatform(player).isBedrock();
+	}
+
+	/**
+	 * Gets a prefix by its id
+	 *
+	 * @param id - The prefix id
+	 * @return - The prefix, if one exists
+	 */
+	public Prefix getPrefix(String id) {
+		return registry.getPrefix(id);
+	}
+
+	/**
+	 * Gets the prefix selection which applies to a player on their current server
+	 * This is their per-server selection if one exists, otherwise their global selection
+	 *
+	 * @param player - The player
+	 * @return - The player's active selection, if they have one
+	 */
+	public @Nullable PrefixSelection getActiveSelection(Player player) {
+		return sessions.getActiveSelection(player.getUniqueId());
+	}
+
+	/**
+	 * Gets the cached render of the prefix which applies to a player on their current server
+	 * The render includes the prefix's plain text length, estimated width and Bedrock variant.
+	 *
+	 * @param player - The player
+	 * @return - The render of the player's active selection, if they have one
+	 */
+	public @Nullable PrefixRender getActiveRender(Player player) {
+		PrefixSelection selection = sessions.getActiveSelection(player.getUniqueId());
+		return selection != null ? selection.prefixRender() : null;
+	}
+
+	/**
+	 * Returns whether per-server prefixes are enabled
+	 *
+	 * @return - Whether per-server prefixes are enabled
+	 */
+	public boolean isPerServerEnabled() {
+		return perServerPrefixes;
+	}
+
+	/**
+	 * Gets the executor used for prefix work which shouldn't run on LuckPerms' threads
+	 *
+	 * @return - The executor
+	 */
+	public PrefixExecutor getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Gets the rate limiter for commands which modify prefixes
+	 *
+	 * @return - The rate limiter, or null if rate limiting is disabled
+	 */
+	public @Nullable RateLimiter getRateLimiter() {
+		return rateLimiter;
+	}
+
+	/**
+	 * Gets a player's selection for the given server
+	 *
+	 * @param uuid - The player's uuid
+	 * @param server - The server, or null for the player's global selection
+	 * @return - The selection, if one is set
+	 */
+	public @Nullable PrefixSelection getSelection(UUID uuid, @Nullable String server) {
+		return sessions.getSelection(uuid, server);
+	}
+
+	/**
+	 * Loads the history of the given user from their meta into memory
+	 * Called when players join and on reload, so the history is recorded against the current registry and size.
+	 *
+	 * @param user - The user
+	 */
+	private void loadHistory(User user) {
+		if (historySize <= 0) {
+			sessions.setHistory(user.getUniqueId(), null);
+			return;
+		}
+
+		String value = null;
+
+		for (MetaNode node : user.getNodes(NodeType.META)) {
+			if (node.getMetaKey().equals(HISTORY_META_KEY) && getServerContext(node) == null) {
+				value = node.getMetaValue();
+			}
+		}
+
+		sessions.setHistory(user.getUniqueId(), PrefixHistory.decode(value, registry, historySize));
+	}
+
+	/**
+	 * Gets the previous global selections of the given player
+	 *
+	 * @param player - The player
+	 * @return - The selections which still exist, newest first, or an empty list if history is disabled
+	 */
+	public List<PrefixSelection> getHistory(Player player) {
+		PrefixHistory history = sessions.getHistory(player.getUniqueId());
+		return history != null ? history.getEntries(registry) : Collections.emptyList();
+	}
+
+	/**
+	 * Gets the selection /prefix undo would restore for the given player
+	 *
+	 * @param player - The player
+	 * @return - The newest selection in the player's history, or null if there is nothing to restore
+	 */
+	public @Nullable PrefixSelection getUndoSelection(Player player) {
+		PrefixHistory history = sessions.getHistory(player.getUniqueId());
+		return history != null ? history.peek(registry) : null;
+	}
+
+	/**
+	 * Restores the newest selection in the given player's history as their global prefix
+	 * The restored selection is removed from the history and the replaced selection is not added, so repeated undos
+	 * step further back. Permissions are not checked, callers should check the result of
+	 * {@link #getUndoSelection(Player)} first.
+	 *
+	 * @param player - The player
+	 * @return - Completable future indicating whether restoring was successful
+	 */
+	public CompletableFuture<Boolean> undoPrefix(Player player) {
+		PrefixHistory history = sessions.getHistory(player.getUniqueId());
+		User user = userManager.getUser(player.getUniqueId());
+
+		if (history == null || user == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		PrefixHistory updated = history.copy();
+		PrefixSelection selection = updated.pop(registry);
+
+		if (selection == null) {
+			return CompletableFuture.completedFuture(false);
+		}
+
+		return applyPrefix(user, selection.prefix(), selection.colour(), null, updated, true);
+	}
+
+	/**
+	 * Finds the online players matching all of the given selectors
+	 *
+	 * @param selectors - The selectors
+	 * @return - The matching players
+	 */
+	public List<Player> selectPlayers(List<PlayerSelector> selectors) {
+		return proxy.getAllPlayers().stream().filter(player -> selectors.stream().allMatch(selector -> {
+			String value = selector.value();
+
+			return switch (selector.type()) {
+				case ALL -> true;
+				case SERVER -> player.getCurrentServer()
+						.map(connection -> connection.getServerInfo().getName().equalsIgnoreCase(value))
+						.orElse(false);
+				case PERMISSION -> value != null && player.hasPermission(value);
+				case CURRENT_PREFIX -> {
+					Prefix prefix = sessions.getPrefix(player.getUniqueId());
+					yield prefix != null && prefix.getId().equals(value);
+				}
+			};
+		})).toList();
+	}
+
+	/**
+	 * Applies the given global prefix to, or clears the global prefix of, each of the given players
+	 * At most bulk-changes.concurrency saves are in flight at once. Players whose prefix already matches are counted as
+	 * unchanged without saving, and players without permission to use the prefix or colour are skipped. Instead of
+	 * pushing an update to other servers for every player, a single LuckPerms network sync is requested once all
+	 * saves have completed.
+	 * Unless the actor is the console or has the bypass permission, each save waits for a token from the rate limit
+	 * buckets of both the actor and the target, so a bulk change is limited in the same way as individual changes.
+	 *
+	 * @param actor - The command source making the change, for the audit journal
+	 * @param targets - The players to change
+	 * @param prefix - The prefix to apply, or null to clear the players' prefixes
+	 * @param colour - The colour to apply, or null to clear the players' prefixes
+	 * @param progress - Called with the number of players processed and the total number of players
+	 * @return - Completable future of the aggregated result
+	 */
+	public CompletableFuture<BulkPipeline.Result> applyBulk(CommandSource actor, List<Player> targets,
+															@Nullable Prefix prefix, @Nullable PrefixColour colour,
+															BiConsumer<Integer, Integer> progress) {
+		RateLimiter limiter = rateLimiter;
+		UUID limited = limiter != null && actor instanceof Player player
+				&& !player.hasPermission("prefixes.bypass-rate-limit") ? player.getUniqueId() : null;
+
+		Function<Player, CompletableFuture<BulkPipeline.Outcome>> operation = target -> {
+			User user = userManager.getUser(target.getUniqueId());
+			PrefixSelection previous = getSelection(target.getUniqueId(), null);
+
+			if (user == null) {
+				return CompletableFuture.completedFuture(BulkPipeline.Outcome.FAILED);
+			}
+
+			if (prefix == null || colour == null) {
+				if (previous == null) {
+					return CompletableFuture.completedFuture(BulkPipeline.Outcome.UNCHANGED);
+				}
+
+				return awaitRateLimit(limiter, limited, target.getUniqueId())
+						.thenCompose(ignored -> clearPrefix(user, null, true, false)).thenApply(success -> {
+					recordAudit(actor, AuditJournal.Action.CLEAR, success, target, null, previous, null, null);
+					return success ? BulkPipeline.Outcome.CHANGED : BulkPipeline.Outcome.FAILED;
+				});
+			}
+
+			if (previous != null && previous.prefix().getId().equals(prefix.getId())
+					&& previous.colour().getId().equals(colour.getId())) {
+				return CompletableFuture.completedFuture(BulkPipeline.Outcome.UNCHANGED);
+			}
+
+			if (!isAllowed(target, prefix, false) || !isAllowed(target, colour, false)) {
+				return CompletableFuture.completedFuture(BulkPipeline.Outcome.SKIPPED);
+			}
+
+			return awaitRateLimit(limiter, limited, target.getUniqueId()).thenCompose(ignored -> {
+				PrefixHistory history = sessions.pushHistory(target.getUniqueId(),
+															 new PrefixSelection(prefix, colour));
+
+				return applyPrefix(user, prefix, colour, null, history, false);
+			}).thenApply(success -> {
+				recordAudit(actor, AuditJournal.Action.APPLY, success, target, null, previous, prefix, colour);
+				return success ? BulkPipeline.Outcome.CHANGED : BulkPipeline.Outcome.FAILED;
+			});
+		};
+
+		return new BulkPipeline<>(targets, operation, bulkConcurrency, progress).run().thenApply(result -> {
+			if (result.changed() > 0) {
+				luckperms.getMessagingService().ifPresent(MessagingService::pushUpdate);
+			}
+
+			return result;
+		});
+	}
+
+	/**
+	 * Waits until a rate limit token can be taken from the buckets of both the actor and the target, then takes it
+	 * Tokens are only requested once both buckets should have one, so waiting doesn't count as rejected changes.
+	 *
+	 * @param limiter - The rate limiter, or null if rate limiting is disabled
+	 * @param actor - The player making the change, or null if they aren't limited
+	 * @param target - The player whose prefix will be changed
+	 * @return - Completable future which completes once the token has been taken
+	 */
+	private CompletableFuture<Void> awaitRateLimit(@Nullable RateLimiter limiter, @Nullable UUID actor, UUID target) {
+		if (limiter == null || actor == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		long wait = Math.max(limiter.getWaitMillis(actor), limiter.getWaitMillis(target));
+
+		if (wait == 0 && limiter.tryAcquire(actor, target)) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		// Another concurrent save may have taken the token first, so wait at least a little before trying again
+		Executor delayed = CompletableFuture.delayedExecutor(Math.max(wait, 50), TimeUnit.MILLISECONDS, executor);
+		return CompletableFuture.runAsync(() -> {}, delayed)
+				.thenCompose(ignored -> awaitRateLimit(limiter, actor, target));
+	}
+
+	/**
+	 * Gets a player's current prefix
+	 *
+	 * @param player - The player
+	 * @return - The player's prefix, if one is set
+	 */
+	public Prefix getCurrentPrefix(Player player) {
+		return sessions.getPrefix(player.getUniqueId());
+	}
+
+	@Nullable TabListUpdater getTabListUpdater() {
+		return tabListUpdater;
+	}
+
+	/**
+	 * Gets the tab list display name for the given player, including their current prefix
+	 *
+	 * @param player - The player
+	 * @return - The display name
+	 */
+	Component getTabListName(Player player) {
+		PrefixSelection selection = sessions.getActiveSelection(player.getUniqueId());
+
+		if (selection == null) {
+			return Component.text(player.getUsername());
+		}
+
+		boolean bedrock = isBedrock(player);
+		AnimationTicker ticker = animationTicker;
+		PrefixRender render = ticker != null ? selection.frame(ticker.getTick()) : selection.prefixRender();
+
+		return render.withSuffix(player.getUsername(), bedrock);
+	}
+
+	/**
+	 * Gets a colour by its id
+	 *
+	 * @param id - The colour id
+	 * @return - The colour, if one exists
+	 */
+	public PrefixColour getColour(String id) {
+		return registry.getColour(id);
+	}
+
+	/**
+	 * Returns a list of prefixs the given player is allowed to use, respecting prefix and player permissions
+	 *
+	 * @param player - The player
+	 * @return - List of allowed prefixes
+	 */
+	public List<Prefix> getAllowedPrefixes(Player player, boolean includeLocked) {
+		return registry.getPrefixes().stream()
+				.filter(p -> isAllowed(player, p, includeLocked))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns whether the given player is allowed to use the given prefix, respecting prefix and player permissions
+	 *
+	 * @param player - The player
+	 * @param prefix - The prefix
+	 * @param includeLocked - Whether to allow locked unlockable prefixes
+	 * @return - Whether the prefix is allowed
+	 */
+	public boolean isAllowed(Player player, Prefix prefix, boolean includeLocked) {
+		return prefix.isAllowed(player::hasPermission, includeLocked);
+	}
+
+	/**
+	 * Returns a list of colours the given player is allowed to use, respecting colour and player permissions
+	 *
+	 * @param player - The player
+	 * @return - List of allowed colours
+	 */
+	public List<PrefixColour> getAllowedColours(Player player, boolean includeLocked) {
+		return registry.getColours().stream()
+				.filter(c -> isAllowed(player, c, includeLocked))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Returns a list of colours the given player is allowed to use with the given prefix, respecting colour and player
+	 * permissions and the prefix's allowed and denied colours
+	 *
+	 * @param player - The player
+	 * @param prefix - The prefix
+	 * @param includeLocked - Whether to include locked unlockable colours
+	 * @return - List of allowed colours
+	 */
+	public List<PrefixColour> getAllowedColours(Player player, Prefix prefix, boolean includeLocked) {
+		PrefixRegistry registry = this.registry;
+		List<PrefixColour> colours = registry.getColours();
+		BitSet allowed = prefix.filterColours(getAllowedColourMask(player, registry, includeLocked));
+		List<PrefixColour> result = new ArrayList<>(allowed.cardinality());
+
+		for (int i = allowed.nextSetBit(0); i >= 0; i = allowed.nextSetBit(i + 1)) {
+			result.add(colours.get(i));
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the ordinals of all colours the given player is allowed to use, respecting colour and player permissions
+	 * The masks are cached per player until their permissions are recalculated, so the result is a copy which the
+	 * caller may modify.
+	 *
+	 * @param player - The player
+	 * @param includeLocked - Whether to include locked unlockable colours
+	 * @return - The allowed colour ordinals
+	 */
+	public BitSet getAllowedColourMask(Player player, boolean includeLocked) {
+		return getAllowedColourMask(player, registry, includeLocked);
+	}
+
+	private BitSet getAllowedColourMask(Player player, PrefixRegistry registry, boolean includeLocked) {
+		// Built while holding the map entry, so a concurrent invalidation can't be overwritten by a stale mask
+		ColourMasks masks = colourMasks.compute(player.getUniqueId(), (uuid, existing) -> {
+			if (existing != null && existing.registry() == registry) {
+				return existing;
+			}
+
+			return new ColourMasks(registry, createColourMask(player, registry.getColours(), false),
+								   createColourMask(player, registry.getColours(), true));
+		});
+
+		return (BitSet) (includeLocked ? masks.allowedIncludingLocked() : masks.allowed()).clone();
+	}
+
+	private BitSet createColourMask(Player player, List<PrefixColour> colours, boolean includeLocked) {
+		BitSet allowed = new BitSet(colours.size());
+
+		for (int i = 0; i < colours.size(); i++) {
+			if (isAllowed(player, colours.get(i), includeLocked)) {
+				allowed.set(i);
+			}
+		}
+
+		return allowed;
+	}
+
+	/**
+	 * Returns whether the given player is allowed to use the given colour, respecting colour and player permissions
+	 *
+	 * @param player - The player
+	 * @param colour - The colour
+	 * @param includeLocked - Whether to allow locked unlockable colours
+	 * @return - Whether the colour is allowed
+	 */
+	public boolean isAllowed(Player player, PrefixColour colour, boolean includeLocked) {
+		return colour.isAllowed(player::hasPermission, includeLocked);
+	}
+
+	/**
+	 * Finds prefixes with ids similar to the given unknown id, for "did you mean" suggestions
+	 *
+	 * @param player - The player to filter suggestions for, or null to include all prefixes
+	 * @param id - The unknown id
+	 * @param limit - The maximum number of prefixes to return
+	 * @return - Similar prefixes the player is allowed to use, closest first
+	 */
+	public List<Prefix> getSimilarPrefixes(@Nullable Player player, String id, int limit) {
+		return registry.getPrefixTree().search(id, getMaxSuggestionDistance(id)).stream()
+				.map(BKTree.Match::value)
+				.filter(prefix -> player == null || isAllowed(player, prefix, false))
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Finds colours with ids similar to the given unknown id, for "did you mean" suggestions
+	 *
+	 * @param player - The player to filter suggestions for, or null to include all colours
+	 * @param id - The unknown id
+	 * @param limit - The maximum number of colours to return
+	 * @return - Similar colours the player is allowed to use, closest first
+	 */
+	public List<PrefixColour> getSimilarColours(@Nullable Player player, String id, int limit) {
+		return registry.getColourTree().search(id, getMaxSuggestionDistance(id)).stream()
+				.map(BKTree.Match::value)
+				.filter(colour -> player == null || isAllowed(player, colour, false))
+				.limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	private static int getMaxSuggestionDistance(String id) {
+		return Math.min(2, Math.max(1, id.length() / 4));
+	}
+
+	/**
+	 * Gets the category with the given id
+	 *
+	 * @param id - The category id
+	 * @return - The category, or null if it does not exist
+	 */
+	public @Nullable PrefixCategory getCategory(String id) {
+		return registry.getCategory(id);
+	}
+
+	/**
+	 * Gets all loaded categories, in menu order
+	 *
+	 * @return - The categories, empty if no prefixes have a category
+	 */
+	public Collection<PrefixCategory> getCategories() {
+		return registry.getCategories();
+	}
+
+	/**
+	 * Returns whether prefixes are grouped into categories
+	 *
+	 * @return - Whether categories are enabled
+	 */
+	public boolean isCategoriesEnabled() {
+		return !registry.getCategories().isEmpty();
+	}
+
+	/**
+	 * Gets the index of prefixes by id, used for command suggestions
+	 *
+	 * @return - The prefix index
+	 */
+	public IdIndex<Prefix> getPrefixIndex() {
+		return registry.getPrefixIndex();
+	}
+
+	/**
+	 * Gets the index of colours by id, used for command suggestions
+	 *
+	 * @return - The colour index
+	 */
+	public IdIndex<PrefixColour> getColourIndex() {
+		return registry.getColourIndex();
+	}
+
+	/**
+	 * Parses the config files and checks the prefixes of all online players against them, without applying anything
+	 * Players are checked using their session state in the same way as {@link #checkPrefix(User)}, so no LuckPerms
+	 * data is loaded or saved.
+	 *
+	 * @return - The results of the check
+	 * @throws IOException - If any config file could not be read or parsed
+	 */
+	public synchronized ReloadPreview previewReload() throws IOException {
+		ParsedConfig parsed = parseConfig();
+		boolean perServer = parsed.configuration().node("per-server-prefixes", "enabled").getBoolean(false);
+
+		Map<UUID, String> players = new LinkedHashMap<>();
+
+		for (Player player : proxy.getAllPlayers()) {
+			players.put(player.getUniqueId(), player.getUsername());
+		}
+
+		return ReloadPreview.create(parsed.registry(), sessions, players, perServer, RELOAD_PREVIEW_SAMPLES);
+	}
+
+	/**
+	 * Reloads the configuration and reapplies prefixes to all online players
+	 * If the configuration fails to load the previous configuration remains active and players are not rechecked
+	 *
+	 * @return - Whether the configuration was reloaded
+	 */
+	public synchronized boolean reload() {
+		if (!loadConfig()) {
+			return false;
+		}
+
+		for (Player player : proxy.getAllPlayers()) {
+			checkPrefix(player);
+			unlockTracker.reset(player.getUniqueId(), registry, player::hasPermission);
+		}
+
+		// Backends discard entries from older generations, so every player is republished with the new ordinals
+		for (Player player : proxy.getAllPlayers()) {
+			publishPrefix(player.getUniqueId());
+		}
+
+		// Prefixes may render differently without any selection changing, only changed names are sent
+		TabListUpdater updater = tabListUpdater;
+
+		if (updater != null) {
+			updater.markDirty(proxy.getAllPlayers().stream().map(Player::getUniqueId).toList());
+		}
+
+		// The watcher is replaced last, as this reload may have been triggered by it
+		configureWatcher(autoReload, autoReloadDebounce);
+
+		return true;
+	}
+
+	public ProxyServer getProxy() {
+		return proxy;
+	}
+
+	public Logger getLogger() {
+		return logger;
+	}
+
+	/**
+	 * Gets the current registry generation, which is incremented each time the config is loaded
+	 * Prefix and colour ordinals are only comparable within a single generation
+	 *
+	 * @return - The registry generation
+	 */
+	public int getRegistryGeneration() {
+		return registry.getGeneration();
+	}
+
+	PrefixRegistry getRegistry() {
+		return registry;
+	}
+}
@@ -0,0 +1,186 @@
+/*
+ * Prefixes, a Velocity prefix plugin
+ *
+ * Copyright (c) 2026 James Lyne
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package uk.co.notnull.prefixes;
+
+import com.velocitypowered.api.proxy.Player;
+import com.velocitypowered.api.proxy.player.TabList;
+import net.kyori.adventure.text.Component;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages tab list display names of online players
+ * Changes are coalesced over the update interval, and only entries whose rendered name changed since the last
+ * update are sent. Updates are applied viewer by viewer so each viewer's tab list is only walked once per update.
+ */
+public class TabListUpdater {
+	private final Prefixes plugin;
+	private volatile long interval;
+
+	private final Map<UUID, Component> displayNames = new ConcurrentHashMap<>();
+
+	private Set<UUID> dirty = new HashSet<>();
+	private Set<UUID> connected = new HashSet<>();
+	private boolean updateScheduled = false;
+	private boolean stopped = false;
+
+	public TabListUpdater(Prefixes plugin, long interval) {
+		this.plugin = plugin;
+		this.interval = interval;
+	}
+
+	/**
+	 * Marks the given player's display name as possibly changed
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	public synchronized void markDirty(@NotNull UUID uuid) {
+		dirty.add(uuid);
+		scheduleUpdate();
+	}
+
+	/**
+	 * Marks the display names of the given players as possibly changed
+	 *
+	 * @param uuids - The players' uuids
+	 */
+	public synchronized void markDirty(@NotNull Collection<UUID> uuids) {
+		dirty.addAll(uuids);
+		scheduleUpdate();
+	}
+
+	/**
+	 * Marks the given player as having connected to a new server
+	 * The backend will have resent their tab list, so all known display names are resent to them, and their own
+	 * entry is resent to everyone else
+	 *
+	 * @param uuid - The player's uuid
+	 */
+	public synchronized void markConnected(@NotNull UUID uuid) {
+		dirty.add(uuid);
+		connected.add(uuid);
+		scheduleUpdate();
+	}
+
+	public void remove(@NotNull UUID uuid) {
+		displayNames.remove(uuid);
+	}
+
+	public long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Sets the delay used to coalesce updates, taking effect from the next scheduled update
+	 *
+	 * @param interval - The delay in milliseconds
+	 */
+	public void setInterval(long interval) {
+		this.interval = interval;
+	}
+
+	/**
+	 * Stops updating display names and removes those already sent, restoring the names provided by backends
+	 */
+	public void stop() {
+		synchronized (this) {
+			stopped = true;
+			dirty.clear();
+			connected.clear();
+		}
+
+		for (Player viewer : plugin.getProxy().getAllPlayers()) {
+			TabList tabList = viewer.getTabList();
+
+			displayNames.keySet().forEach(uuid -> tabList.getEntry(uuid)
+					.ifPresent(entry -> entry.setDisplayName(null)));
+		}
+
+		displayNames.clear();
+	}
+
+	private void scheduleUpdate() {
+		if (!updateScheduled && !stopped) {
+			updateScheduled = true;
+			plugin.getProxy().getScheduler().buildTask(plugin, this::update)
+					.delay(interval, TimeUnit.MILLISECONDS)
+					.schedule();
+		}
+	}
+
+	private void update() {
+		Set<UUID> dirty;
+		Set<UUID> connected;
+
+		synchronized (this) {
+			if (stopped) {
+				return;
+			}
+
+			dirty = this.dirty;
+			connected = this.connected;
+			this.dirty = new HashSet<>();
+			this.connected = new HashSet<>();
+			updateScheduled = false;
+		}
+
+		Map<UUID, Component> changed = new HashMap<>();
+
+		for (UUID uuid : dirty) {
+			Player player = plugin.getProxy().getPlayer(uuid).orElse(null);
+
+			if (player == null) {
+				displayNames.remove(uuid);
+				continue;
+			}
+
+			Component displayName = plugin.getTabListName(player);
+			Component previous = displayNames.put(uuid, displayName);
+
+			if (connected.contains(uuid) || !displayName.equals(previous)) {
+				changed.put(uuid, displayName);
+			}
+		}
+
+		if (changed.isEmpty() && connected.isEmpty()) {
+			return;
+		}
+
+		for (Player viewer : plugin.getProxy().getAllPlayers()) {
+			TabList tabList = viewer.getTabList();
+			Map<UUID, Component> updates = connected.contains(viewer.getUniqueId()) ? displayNames : changed;
+
+			updates.forEach((uuid, displayName) -> tabList.getEntry(uuid)
+					.ifPresent(entry -> entry.setDisplayName(displayName)));
+		}
+	}
+}